@@ -0,0 +1,38 @@
+package br.dev.pubfuture.desafio.benchmark;
+
+import br.dev.pubfuture.desafio.DesafioApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Inicializa o contexto da aplicação para os benchmarks, sem servidor web e com um banco H2 embarcado em
+ * memória exclusivo para cada execução, de modo que os resultados não dependam do arquivo 'desafioDB'.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @param properties propriedades adicionais no formato 'chave=valor'.
+     * @return Retorna o contexto da aplicação inicializado.
+     */
+    static ConfigurableApplicationContext start(String... properties) {
+        List<String> all = new ArrayList<>(Arrays.asList(
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "spring.jpa.show-sql=false",
+                "spring.h2.console.enabled=false",
+                "logging.level.root=WARN"));
+        all.addAll(Arrays.asList(properties));
+        return new SpringApplicationBuilder(DesafioApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(all.toArray(new String[0]))
+                .run();
+    }
+
+}
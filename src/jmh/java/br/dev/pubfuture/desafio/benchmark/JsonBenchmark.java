@@ -0,0 +1,89 @@
+package br.dev.pubfuture.desafio.benchmark;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark da serialização Json de Receita e Despesa, incluindo os campos 'LocalDate' no formato dd-MM-yyyy
+ * e os valores monetários em centavos representados em decimal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBenchmark {
+
+    private ObjectWriter receitaWriter;
+    private ObjectReader receitaReader;
+    private ObjectWriter despesaWriter;
+    private ObjectReader despesaReader;
+    private Receita receita;
+    private Despesa despesa;
+    private byte[] receitaJson;
+    private byte[] despesaJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        receitaWriter = objectMapper.writerFor(Receita.class);
+        receitaReader = objectMapper.readerFor(Receita.class);
+        despesaWriter = objectMapper.writerFor(Despesa.class);
+        despesaReader = objectMapper.readerFor(Despesa.class);
+        receita = Receita.builder()
+                .id(123456)
+                .value(1_234_56)
+                .receivingDate(LocalDate.of(2022, 1, 16))
+                .expectedReceiptDate(LocalDate.of(2022, 1, 15))
+                .description("SALARIO JANEIRO")
+                .account(42)
+                .typeOfRevenue(Receita.Revenue.SALARIO)
+                .build();
+        despesa = Despesa.builder()
+                .id(654321)
+                .value(98_76)
+                .payday(LocalDate.of(2022, 1, 16))
+                .expectedPaymentDate(LocalDate.of(2022, 1, 10))
+                .typeOfExpense(Despesa.TypeOfExpense.MORADIA)
+                .account(42)
+                .build();
+        receitaJson = receitaWriter.writeValueAsBytes(receita);
+        despesaJson = despesaWriter.writeValueAsBytes(despesa);
+    }
+
+    @Benchmark
+    public byte[] receitaSerialize() throws IOException {
+        return receitaWriter.writeValueAsBytes(receita);
+    }
+
+    @Benchmark
+    public Receita receitaDeserialize() throws IOException {
+        return receitaReader.readValue(receitaJson);
+    }
+
+    @Benchmark
+    public Receita receitaRoundTrip() throws IOException {
+        return receitaReader.readValue(receitaWriter.writeValueAsBytes(receita));
+    }
+
+    @Benchmark
+    public byte[] despesaSerialize() throws IOException {
+        return despesaWriter.writeValueAsBytes(despesa);
+    }
+
+    @Benchmark
+    public Despesa despesaDeserialize() throws IOException {
+        return despesaReader.readValue(despesaJson);
+    }
+
+    @Benchmark
+    public Despesa despesaRoundTrip() throws IOException {
+        return despesaReader.readValue(despesaWriter.writeValueAsBytes(despesa));
+    }
+
+}
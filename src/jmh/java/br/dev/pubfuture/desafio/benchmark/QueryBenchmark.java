@@ -0,0 +1,90 @@
+package br.dev.pubfuture.desafio.benchmark;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import br.dev.pubfuture.desafio.businesslayer.service.DespesaService;
+import br.dev.pubfuture.desafio.businesslayer.service.ReceitaService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark das consultas por intervalo de datas e por tipo, com 10 mil e 1 milhão de registros.
+ * As tabelas são populadas diretamente por JDBC em lotes, distribuindo as datas por cinco anos e os tipos
+ * uniformemente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class QueryBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2018, 1, 1);
+    private static final int DAYS = 5 * 365;
+    private static final int BATCH = 5_000;
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private ReceitaService receitaService;
+    private DespesaService despesaService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        receitaService = context.getBean(ReceitaService.class);
+        despesaService = context.getBean(DespesaService.class);
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        SplittableRandom random = new SplittableRandom(42);
+        Receita.Revenue[] revenues = Receita.Revenue.values();
+        Despesa.TypeOfExpense[] expenses = Despesa.TypeOfExpense.values();
+        List<Object[]> receitas = new ArrayList<>(BATCH);
+        List<Object[]> despesas = new ArrayList<>(BATCH);
+        for (int i = 1; i <= rows; i++) {
+            Date day = Date.valueOf(FIRST_DAY.plusDays(random.nextInt(DAYS)));
+            long value = 1 + random.nextInt(1_000_000);
+            int account = 1 + random.nextInt(999);
+            receitas.add(new Object[]{i, value, day, day, "RECEITA " + i, account,
+                    revenues[random.nextInt(revenues.length)].name()});
+            despesas.add(new Object[]{i, value, day, day, account, expenses[random.nextInt(expenses.length)].name()});
+            if (receitas.size() == BATCH || i == rows) {
+                jdbcTemplate.batchUpdate("INSERT INTO receita (id, valor, dt_receb, dt_recb_esp, descricao, conta, "
+                        + "tp_receita) VALUES (?, ?, ?, ?, ?, ?, ?)", receitas);
+                jdbcTemplate.batchUpdate("INSERT INTO despesa (id, valor, dt_pagto, dt_pag_esp, conta, tp_despesa) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)", despesas);
+                receitas.clear();
+                despesas.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Receitas de um mês no meio do período populado.
+     */
+    @Benchmark
+    public List<Receita> receitaByReceivingDateBetween() {
+        return receitaService.findAllByReceivingDateBetween(LocalDate.of(2020, 6, 1), LocalDate.of(2020, 6, 30));
+    }
+
+    /**
+     * Despesas de um tipo (1/8 da tabela).
+     */
+    @Benchmark
+    public List<Despesa> despesaByTypeOfExpense() {
+        return despesaService.findDespesaByTypeOfExpense(Despesa.TypeOfExpense.MORADIA);
+    }
+
+}
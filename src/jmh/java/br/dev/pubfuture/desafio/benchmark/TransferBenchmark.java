@@ -0,0 +1,77 @@
+package br.dev.pubfuture.desafio.benchmark;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.businesslayer.service.ContaService;
+import br.dev.pubfuture.desafio.presentation.ContaController;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark do fluxo de transferência entre contas, pelo controlador e pelo serviço, contra um H2 embarcado.
+ * Executado com e sem o agrupamento de 'commits' ('batch') e com várias 'threads', a fim de medir tanto a
+ * latência quanto a vazão sob concorrência.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(8)
+public class TransferBenchmark {
+
+    /**
+     * Habilita o estágio de agrupamento de 'commits' das transferências.
+     */
+    @Param({"false", "true"})
+    public boolean batch;
+
+    /**
+     * Quantidade de contas sobre as quais as transferências são sorteadas (menos contas, mais disputa).
+     */
+    @Param({"16", "1000"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private ContaController contaController;
+    private ContaService contaService;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("desafio.transfer.batch.enabled=" + batch);
+        contaController = context.getBean(ContaController.class);
+        contaService = context.getBean(ContaService.class);
+        firstId = Long.MAX_VALUE;
+        for (int i = 0; i < accounts; i++) {
+            Conta conta = contaService.save(Conta.builder()
+                    .balance(1_000_000_000L)
+                    .accountType(Conta.AccountType.CONTA_CORRENTE)
+                    .financialInstitution("BANCO " + i)
+                    .build());
+            firstId = Math.min(firstId, conta.getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object controllerTransfer() {
+        return contaController.transferValue(randomTransfer());
+    }
+
+    @Benchmark
+    public Object serviceTransfer() {
+        return contaService.transferValue(randomTransfer());
+    }
+
+    private Conta.TransferValue randomTransfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long from = firstId + random.nextInt(accounts);
+        long to = firstId + random.nextInt(accounts);
+        return new Conta.TransferValue(from, to, 1 + random.nextInt(100));
+    }
+
+}
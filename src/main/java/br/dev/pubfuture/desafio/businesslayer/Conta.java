@@ -1,5 +1,7 @@
 package br.dev.pubfuture.desafio.businesslayer;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.*;
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -31,11 +33,14 @@ public class Conta {
 
     /**
      * Campo validado 'balance' cujo nome da coluna na tabela do banco de dados será 'saldo'.
+     * O saldo é armazenado em centavos (BIGINT, escala 'Money.SCALE') e representado em decimal no Json.
      * Não aceita entrada nula, propondo uma mensagem para validação desconforme.
      */
-    @Column(name = "saldo")
+    @Column(name = "saldo", columnDefinition = "BIGINT")
     @NotNull(message = "Saldo não pode ser nulo.")
-    private float balance;
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long balance;
 
     /**
      * Campo validado 'accountType' cujo nome da coluna na tabela do banco de dados será 'tp_conta'.
@@ -80,7 +85,54 @@ public class Conta {
     public static class TransferValue {
         private long from;
         private long to;
-        private float value;
+        @JsonSerialize(using = Money.Serializer.class)
+        @JsonDeserialize(using = Money.Deserializer.class)
+        private long value;
+    }
+
+    /**
+     * Classe enum 'TransferMode', contendo os modos de liquidação de um lote de transferências.
+     * ATOMIC: todas as transferências são aplicadas ou nenhuma é.
+     * BEST_EFFORT: as transferências válidas são aplicadas e as demais são reportadas individualmente.
+     */
+    public enum TransferMode {
+        ATOMIC,
+        BEST_EFFORT
+    }
+
+    /**
+     * Classe interna utilizada para devolver o resultado de uma operação de transferência entre contas,
+     * contendo a situação da operação e os saldos resultantes das contas envolvidas.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    @Builder
+    public static class TransferResult {
+        private Status status;
+        private long from;
+        @JsonSerialize(using = Money.Serializer.class)
+        @JsonDeserialize(using = Money.Deserializer.class)
+        private long fromBalance;
+        private long to;
+        @JsonSerialize(using = Money.Serializer.class)
+        @JsonDeserialize(using = Money.Deserializer.class)
+        private long toBalance;
+
+        /**
+         * Classe enum 'Status', contendo as situações possíveis de uma transferência.
+         */
+        public enum Status {
+            OK,
+            NOT_FOUND,
+            INSUFFICIENT_FUNDS,
+            INVALID_VALUE,
+            ABORTED
+        }
+
+        public static TransferResult of(Status status, long from, long to) {
+            return TransferResult.builder().status(status).from(from).to(to).build();
+        }
     }
 
 }
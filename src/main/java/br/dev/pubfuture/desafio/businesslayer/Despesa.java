@@ -1,6 +1,8 @@
 package br.dev.pubfuture.desafio.businesslayer;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.*;
 import javax.persistence.*;
 import javax.validation.constraints.Max;
@@ -13,11 +15,17 @@ import java.time.LocalDate;
  * em uma tabela denominada 'despesa' do banco de dados H2.
  * A fim de evitar código clichê, foi utilizada a biblioteca 'Project Lombok', a qual automatiza a criação dos
  * métodos 'Setters' e 'Getters', construtores, toString, builders, etc.
+ * Os índices secundários atendem às consultas por período (dt_pagto), por tipo (tp_despesa) e por conta; o índice
+ * composto (conta, dt_pagto) também atende às consultas apenas por conta, por ser ela a primeira coluna.
  *
  * @author Jean C. Naumann
  */
 @Entity
-@Table(name = "despesa")
+@Table(name = "despesa", indexes = {
+        @Index(name = "idx_despesa_dt_pagto", columnList = "dt_pagto"),
+        @Index(name = "idx_despesa_tp_despesa", columnList = "tp_despesa"),
+        @Index(name = "idx_despesa_conta_dt_pagto", columnList = "conta, dt_pagto")
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
@@ -26,18 +34,24 @@ public class Despesa {
 
     /**
      * Campo Id incrementado automaticamente.
+     * Gerado pela sequência 'despesa_seq' com alocação em blocos de 50 valores, o que dispensa uma consulta à
+     * sequência por registro e permite que as inserções sejam agrupadas em lotes JDBC.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "despesa_seq")
+    @SequenceGenerator(name = "despesa_seq", sequenceName = "despesa_seq", allocationSize = 50)
     private long id;
 
     /**
      * Campo validado 'value' cujo nome da coluna na tabela do banco de dados será 'valor'.
+     * O valor é armazenado em centavos (BIGINT, escala 'Money.SCALE') e representado em decimal no Json.
      * Não aceita entrada nula, propondo uma mensagem para validação desconforme.
      */
-    @Column(name = "valor")
+    @Column(name = "valor", columnDefinition = "BIGINT")
     @NotNull(message = "Valor não pode ser nulo.")
-    private float value;
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long value;
 
     /**
      * Campo validado 'payday' cujo nome da coluna na tabela do banco de dados será 'dt_pagto'.
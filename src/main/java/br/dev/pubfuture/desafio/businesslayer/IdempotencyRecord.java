@@ -0,0 +1,65 @@
+package br.dev.pubfuture.desafio.businesslayer;
+
+import lombok.*;
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * Entidade JPA IdempotencyRecord, representando a resposta de uma requisição enviada com o cabeçalho
+ * 'Idempotency-Key', persistida na tabela 'idempotencia'. Uma nova requisição com a mesma chave recebe a resposta
+ * gravada, sem executar novamente a operação, até a data de expiração.
+ * A tabela acompanha o esquema do domínio ('spring.jpa.hibernate.ddl-auto'), de modo que uma resposta gravada
+ * nunca se refere a registros descartados na reinicialização. Um 'status' igual a zero marca uma execução ainda
+ * sem resposta gravada.
+ */
+@Entity
+@Table(name = "idempotencia", indexes = {
+        @Index(name = "idx_idempotencia_expira", columnList = "expira")
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class IdempotencyRecord {
+
+    /**
+     * Chave informada pelo cliente no cabeçalho 'Idempotency-Key'.
+     */
+    @Id
+    @Column(name = "chave", length = 255)
+    private String key;
+
+    /**
+     * Resumo SHA-256 (hexadecimal) do método, do endereço e do corpo da requisição original, utilizado para recusar
+     * a reutilização da chave em uma requisição diferente.
+     */
+    @Column(name = "requisicao", length = 64, nullable = false)
+    private String fingerprint;
+
+    /**
+     * 'Status code' da resposta.
+     */
+    @Column(name = "status", nullable = false)
+    private int status;
+
+    /**
+     * Cabeçalhos da resposta, um por linha no formato 'Nome: valor'.
+     */
+    @Column(name = "cabecalhos", length = 4000)
+    private String headers;
+
+    /**
+     * Corpo da resposta.
+     */
+    @Lob
+    @Column(name = "corpo")
+    @ToString.Exclude
+    private byte[] body;
+
+    /**
+     * Data e hora de expiração do registro.
+     */
+    @Column(name = "expira", nullable = false)
+    private Instant expiresAt;
+
+}
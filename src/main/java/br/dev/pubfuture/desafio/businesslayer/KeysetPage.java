@@ -0,0 +1,50 @@
+package br.dev.pubfuture.desafio.businesslayer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Classe utilizada na API para representar uma página de uma listagem paginada por chave ('keyset'):
+ * os registros são ordenados pelo 'id' e a próxima página começa após o último 'id' retornado, dispensando
+ * o uso de OFFSET.
+ * @param <T> tipo dos registros da página.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class KeysetPage<T> {
+
+    /**
+     * Cabeçalho HTTP em que as listagens devolvem o cursor da próxima página.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Registros da página.
+     */
+    private List<T> items;
+
+    /**
+     * Cursor da próxima página (último 'id' desta página) ou nulo quando não há mais registros.
+     */
+    private Long next;
+
+    /**
+     * Monta uma página a partir de uma consulta que buscou um registro além do limite, o que permite saber se
+     * existe uma próxima página sem uma consulta adicional.
+     * @param fetched registros buscados (até limit + 1).
+     * @param limit tamanho da página.
+     * @param id função que extrai o 'id' de um registro.
+     * @return Retorna a página com o cursor da próxima, se houver.
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, int limit, ToLongFunction<T> id) {
+        if (fetched.size() <= limit)
+            return new KeysetPage<>(fetched, null);
+        List<T> items = fetched.subList(0, limit);
+        return new KeysetPage<>(items, id.applyAsLong(items.get(limit - 1)));
+    }
+
+}
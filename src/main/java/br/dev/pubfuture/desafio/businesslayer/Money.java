@@ -0,0 +1,76 @@
+package br.dev.pubfuture.desafio.businesslayer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Representação monetária em ponto fixo.
+ * Os valores são armazenados e calculados como 'long' em centavos (unidades menores, escala 2), o que evita
+ * os desvios de arredondamento do 'float' e o 'boxing' nos cálculos. Na API (Json) os valores continuam
+ * representados em decimal, por meio do serializador e desserializador internos.
+ */
+public final class Money {
+
+    /**
+     * Quantidade de casas decimais das unidades menores (centavos).
+     */
+    public static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    /**
+     * Converte um valor decimal em centavos, recusando valores com mais casas decimais que a escala.
+     * @param value valor decimal.
+     * @return Retorna o valor em centavos.
+     * @throws ArithmeticException quando o valor possuir mais de duas casas decimais ou exceder um 'long'.
+     */
+    public static long toCents(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converte um valor em centavos em decimal.
+     * @param cents valor em centavos.
+     * @return Retorna o valor decimal com escala 2.
+     */
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * Serializa centavos como número decimal (ex.: 1234 como 12.34).
+     */
+    public static class Serializer extends JsonSerializer<Long> {
+        @Override
+        public void serialize(Long cents, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(toDecimal(cents));
+        }
+    }
+
+    /**
+     * Desserializa um número (ou texto) decimal em centavos (ex.: 12.34 como 1234).
+     */
+    public static class Deserializer extends JsonDeserializer<Long> {
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            try {
+                if (p.currentToken() == JsonToken.VALUE_STRING)
+                    return toCents(new BigDecimal(p.getText().trim()));
+                return toCents(p.getDecimalValue());
+            } catch (ArithmeticException | NumberFormatException e) {
+                return (Long) ctxt.handleWeirdStringValue(Long.class, p.getText(),
+                        "valor monetário inválido (máximo de %d casas decimais)", SCALE);
+            }
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package br.dev.pubfuture.desafio.businesslayer;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.*;
 import javax.persistence.*;
 import javax.validation.constraints.*;
@@ -11,11 +13,17 @@ import java.time.LocalDate;
  * em uma tabela denominada 'receita' do banco de dados H2.
  * A fim de evitar código clichê, foi utilizada a biblioteca 'Project Lombok', a qual automatiza a criação dos
  * métodos 'Setters' e 'Getters', construtores, toString, builders, etc.
+ * Os índices secundários atendem às consultas por período (dt_receb), por tipo (tp_receita) e por conta; o índice
+ * composto (conta, dt_receb) também atende às consultas apenas por conta, por ser ela a primeira coluna.
  *
  * @author Jean C. Naumann
  */
 @Entity
-@Table(name = "receita")
+@Table(name = "receita", indexes = {
+        @Index(name = "idx_receita_dt_receb", columnList = "dt_receb"),
+        @Index(name = "idx_receita_tp_receita", columnList = "tp_receita"),
+        @Index(name = "idx_receita_conta_dt_receb", columnList = "conta, dt_receb")
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
@@ -24,18 +32,24 @@ public class Receita {
 
     /**
      * Campo Id incrementado automaticamente.
+     * Gerado pela sequência 'receita_seq' com alocação em blocos de 50 valores, o que dispensa uma consulta à
+     * sequência por registro e permite que as inserções sejam agrupadas em lotes JDBC.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "receita_seq")
+    @SequenceGenerator(name = "receita_seq", sequenceName = "receita_seq", allocationSize = 50)
     private long id;
 
     /**
      * Campo validado 'value' cujo nome da coluna na tabela do banco de dados será 'valor'.
+     * O valor é armazenado em centavos (BIGINT, escala 'Money.SCALE') e representado em decimal no Json.
      * Não aceita entrada nula, propondo uma mensagem para validação desconforme.
      */
-    @Column(name = "valor")
+    @Column(name = "valor", columnDefinition = "BIGINT")
     @NotNull(message = "Valor não pode ser nulo.")
-    private float value;
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long value;
 
     /**
      * Campo validado 'receivingDate' cujo nome da coluna na tabela do banco de dados será 'dt_receb'.
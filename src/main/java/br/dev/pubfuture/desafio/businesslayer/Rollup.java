@@ -0,0 +1,83 @@
+package br.dev.pubfuture.desafio.businesslayer;
+
+import lombok.*;
+import javax.persistence.*;
+import java.io.Serializable;
+
+/**
+ * Entidade JPA Rollup, representando o resumo mensal dos lançamentos persistido na tabela 'resumo_mensal'.
+ * Cada registro acumula o somatório (em centavos) e a quantidade de receitas ou despesas de um mês, de uma conta
+ * e de um tipo, e é mantido incrementalmente pelas camadas de serviço na mesma transação dos lançamentos.
+ */
+@Entity
+@Table(name = "resumo_mensal")
+@IdClass(Rollup.Key.class)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Builder
+public class Rollup {
+
+    /**
+     * Natureza do lançamento (receita ou despesa).
+     */
+    @Id
+    @Column(name = "lancamento")
+    @Enumerated(EnumType.STRING)
+    private Kind kind;
+
+    /**
+     * Mês no formato numérico yyyyMM (ex.: 202201).
+     */
+    @Id
+    @Column(name = "mes")
+    private int yearMonth;
+
+    /**
+     * Conta dos lançamentos.
+     */
+    @Id
+    @Column(name = "conta")
+    private int account;
+
+    /**
+     * Tipo de receita ou de despesa (nome da constante).
+     */
+    @Id
+    @Column(name = "tipo")
+    private String type;
+
+    /**
+     * Somatório dos valores, em centavos.
+     */
+    @Column(name = "total", columnDefinition = "BIGINT")
+    private long total;
+
+    /**
+     * Quantidade de lançamentos.
+     */
+    @Column(name = "qtd")
+    private long quantity;
+
+    /**
+     * Classe enum 'Kind', contendo as naturezas de lançamento resumidas.
+     */
+    public enum Kind {
+        RECEITA,
+        DESPESA
+    }
+
+    /**
+     * Classe interna com a chave composta do resumo.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    public static class Key implements Serializable {
+        private Kind kind;
+        private int yearMonth;
+        private int account;
+        private String type;
+    }
+
+}
@@ -0,0 +1,48 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utilitário que adia a execução de uma ação até o 'commit' da transação corrente, de modo que estruturas
+ * mantidas em memória só reflitam alterações efetivamente gravadas (uma transação desfeita não as altera).
+ * Sem transação ativa, a ação é executada imediatamente.
+ */
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    /**
+     * Registra a ação para execução após o 'commit'.
+     * @param action ação a ser executada.
+     */
+    static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else
+            action.run();
+    }
+
+    /**
+     * Registra uma ação para o término da transação corrente, confirmada ou desfeita.
+     * @param action ação executada ao término da transação.
+     * @return Retorna falso, sem registrar a ação, quando não houver transação ativa.
+     */
+    static boolean afterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return false;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+        return true;
+    }
+
+}
@@ -0,0 +1,71 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.time.Duration;
+
+/**
+ * Configuração dos caches de leitura por 'id' de cada entidade, com tamanho máximo e tempo de vida
+ * configuráveis individualmente ('desafio.cache.{entidade}.max-size' e 'desafio.cache.{entidade}.ttl'), dos caches
+ * das consultas por intervalo de datas, limitados pela quantidade de registros ('desafio.cache.{entidade}.range.*'),
+ * e dos agrupamentos de consultas concorrentes ('single-flight'), com tempo de vida opcional ('desafio.singleflight.ttl').
+ */
+@Configuration
+public class CacheConfiguration {
+
+    @Bean
+    public EntityCache<Conta> contaCache(MeterRegistry registry,
+                                         @Value("${desafio.cache.conta.max-size:10000}") long maxSize,
+                                         @Value("${desafio.cache.conta.ttl:10m}") Duration ttl) {
+        return new EntityCache<>("conta", maxSize, ttl, registry);
+    }
+
+    @Bean
+    public EntityCache<Receita> receitaCache(MeterRegistry registry,
+                                             @Value("${desafio.cache.receita.max-size:10000}") long maxSize,
+                                             @Value("${desafio.cache.receita.ttl:10m}") Duration ttl) {
+        return new EntityCache<>("receita", maxSize, ttl, registry);
+    }
+
+    @Bean
+    public EntityCache<Despesa> despesaCache(MeterRegistry registry,
+                                             @Value("${desafio.cache.despesa.max-size:10000}") long maxSize,
+                                             @Value("${desafio.cache.despesa.ttl:10m}") Duration ttl) {
+        return new EntityCache<>("despesa", maxSize, ttl, registry);
+    }
+
+    @Bean
+    public RangeQueryCache<Receita> receitaRangeCache(
+            MeterRegistry registry,
+            @Value("${desafio.cache.receita.range.max-rows:100000}") long maxRows,
+            @Value("${desafio.cache.receita.range.ttl:10m}") Duration ttl) {
+        return new RangeQueryCache<>(Rollup.Kind.RECEITA, "receita.range", maxRows, ttl, registry);
+    }
+
+    @Bean
+    public RangeQueryCache<Despesa> despesaRangeCache(
+            MeterRegistry registry,
+            @Value("${desafio.cache.despesa.range.max-rows:100000}") long maxRows,
+            @Value("${desafio.cache.despesa.range.ttl:10m}") Duration ttl) {
+        return new RangeQueryCache<>(Rollup.Kind.DESPESA, "despesa.range", maxRows, ttl, registry);
+    }
+
+    @Bean
+    public SingleFlight receitaFlights(MeterRegistry registry,
+                                       @Value("${desafio.singleflight.ttl:0ms}") Duration ttl) {
+        return new SingleFlight("receita", ttl, registry);
+    }
+
+    @Bean
+    public SingleFlight despesaFlights(MeterRegistry registry,
+                                       @Value("${desafio.singleflight.ttl:0ms}") Duration ttl) {
+        return new SingleFlight("despesa", ttl, registry);
+    }
+
+}
@@ -0,0 +1,39 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+/**
+ * Núcleo de varredura filtrada das colunas do 'ColumnarStore': soma os centavos e conta as linhas cujo dia está
+ * no intervalo informado e cujo tipo e conta coincidem com os filtros (valores negativos desativam o filtro).
+ * Há uma implementação escalar e outra com a 'Vector API' (jdk.incubator.vector), compilada apenas com
+ * '-PvectorApi' e utilizada quando o módulo estiver disponível na JVM ('--add-modules jdk.incubator.vector').
+ */
+interface ColumnScan {
+
+    /**
+     * Quantidade de posições livres mantidas ao final de cada coluna, a fim de que as leituras vetoriais do
+     * último bloco nunca ultrapassem o tamanho dos vetores.
+     */
+    int PADDING = 64;
+
+    /**
+     * @return Retorna um vetor com a soma, em centavos, na posição 0 e a quantidade de linhas na posição 1.
+     */
+    long[] sumCount(int size, int[] days, long[] cents, byte[] types, short[] accounts,
+                    int startDay, int endDay, int type, int account);
+
+    /**
+     * @param vector indica se a implementação vetorial deve ser utilizada, quando disponível.
+     * @return Retorna a implementação vetorial, quando habilitada, compilada e disponível, ou a escalar.
+     */
+    static ColumnScan select(boolean vector) {
+        if (vector && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (ColumnScan) Class.forName("br.dev.pubfuture.desafio.businesslayer.service.VectorColumnScan")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                //segue com a implementação escalar
+            }
+        }
+        return new ScalarColumnScan();
+    }
+
+}
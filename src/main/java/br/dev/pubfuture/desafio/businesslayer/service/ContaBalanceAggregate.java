@@ -0,0 +1,162 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Money;
+import br.dev.pubfuture.desafio.persistence.ContaRepository;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.annotation.PostConstruct;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Somatório dos saldos das contas mantido em memória.
+ * É reconstruído a partir da tabela 'conta' na inicialização e, a partir daí, atualizado com a diferença de
+ * saldo de cada criação, alteração e remoção após o 'commit' da respectiva transação. As transferências não
+ * alteram o somatório. A leitura não toca o banco de dados.
+ * Cada transação com diferença de saldo mantém um bloqueio compartilhado do início do seu 'commit' até acumular
+ * a diferença; a conferência e a reconstrução utilizam o bloqueio exclusivo, de modo que nunca observam um
+ * 'commit' já refletido na tabela e ainda não acumulado no somatório.
+ */
+@Component
+public class ContaBalanceAggregate {
+
+    /**
+     * Instanciação do objeto do repositório 'ContaRepository'.
+     */
+    private final ContaRepository contaRepository;
+
+    /**
+     * Somatório particionado, em centavos, a fim de evitar contenção entre escritas concorrentes.
+     */
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Compartilhado entre as transações que confirmam diferenças e exclusivo da conferência e da reconstrução.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Método construtor do agregado.
+     * @param contaRepository repositório de contas.
+     */
+    @Autowired
+    public ContaBalanceAggregate(ContaRepository contaRepository) {
+        this.contaRepository = contaRepository;
+    }
+
+    /**
+     * Reconstrói o somatório a partir do 'SELECT SUM(saldo)' da tabela.
+     */
+    @PostConstruct
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            Long sum = contaRepository.totalBalance();
+            total.reset();
+            total.add(sum == null ? 0 : sum);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Acumula a diferença de saldo de uma operação após o 'commit' da transação corrente (descartada se ela for
+     * desfeita) ou, sem transação ativa, imediatamente.
+     * @param delta diferença, em centavos, entre o saldo novo e o anterior.
+     */
+    public void addAfterCommit(long delta) {
+        if (delta == 0) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                lock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!locked) return;
+                try {
+                    if (status == STATUS_COMMITTED) total.add(delta);
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Acumula a diferença de saldo de uma operação já confirmada.
+     * @param delta diferença, em centavos, entre o saldo novo e o anterior.
+     */
+    void add(long delta) {
+        lock.readLock().lock();
+        try {
+            total.add(delta);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Retorna o somatório mantido em memória, em centavos.
+     */
+    public long value() {
+        return total.sum();
+    }
+
+    /**
+     * Confere o somatório mantido com o 'SELECT SUM(saldo)' da tabela e, opcionalmente, o reconstrói com a mesma
+     * leitura. Os 'commits' com diferença de saldo aguardam o término da conferência, e a conferência aguarda os
+     * que já iniciaram, de modo que uma divergência nunca é transitória.
+     * @param repair reconstrói o somatório quando houver divergência.
+     * @return Retorna o resultado da conferência.
+     */
+    public Check check(boolean repair) {
+        lock.writeLock().lock();
+        try {
+            long maintained = total.sum();
+            Long sum = contaRepository.totalBalance();
+            long actual = sum == null ? 0 : sum;
+            boolean consistent = maintained == actual;
+            if (!consistent && repair) {
+                total.reset();
+                total.add(actual);
+            }
+            return new Check(maintained, actual, actual - maintained, consistent, !consistent && repair);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Classe interna com o resultado da conferência do somatório.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    public static class Check {
+        @JsonSerialize(using = Money.Serializer.class)
+        private long maintained;
+        @JsonSerialize(using = Money.Serializer.class)
+        private long actual;
+        @JsonSerialize(using = Money.Serializer.class)
+        private long drift;
+        private boolean consistent;
+        private boolean repaired;
+    }
+
+}
@@ -1,11 +1,16 @@
 package br.dev.pubfuture.desafio.businesslayer.service;
 
 import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
 import br.dev.pubfuture.desafio.persistence.ContaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import javax.sql.DataSource;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Camada de serviço de Conta.
@@ -15,68 +20,197 @@ import java.util.Optional;
 @Service
 public class ContaService {
 
+    /**
+     * Campos atualizáveis pelo 'endpoint' PATCH e as respectivas colunas. O saldo não é atualizável: após o
+     * cadastro, ele é alterado pelo motor de transferências, sob as suas travas, e uma escrita direta seria
+     * sobrescrita por uma liquidação em curso, desviando o somatório mantido em memória.
+     */
+    static final PartialUpdate<Conta> PATCH = new PartialUpdate<Conta>("conta", (rs, row) ->
+            Conta.builder()
+                    .id(rs.getLong("id"))
+                    .balance(rs.getLong("saldo"))
+                    .accountType(Conta.AccountType.valueOf(rs.getString("tp_conta")))
+                    .financialInstitution(rs.getString("inst_fin"))
+                    .build())
+            .column("accountType", "tp_conta", conta -> PartialUpdate.name(conta.getAccountType()),
+                    (to, from) -> to.setAccountType(from.getAccountType()))
+            .column("financialInstitution", "inst_fin", Conta::getFinancialInstitution,
+                    (to, from) -> to.setFinancialInstitution(from.getFinancialInstitution()));
+
     /**
      * Instanciação do objeto do repositório 'ContaRepository'.
      */
     private final ContaRepository contaRepository ;
 
+    /**
+     * Limites das listagens paginadas.
+     */
+    private final Pagination pagination;
+
+    /**
+     * Estágio de agrupamento ('group commit') à frente do motor de transferências.
+     */
+    private final TransferBatcher transferBatcher;
+
+    /**
+     * Motor de transferências, utilizado diretamente na liquidação de lotes.
+     */
+    private final TransferEngine transferEngine;
+
+    /**
+     * Somatório dos saldos mantido em memória.
+     */
+    private final ContaBalanceAggregate balanceAggregate;
+
+    /**
+     * Cache de leitura das contas por 'id'.
+     */
+    private final EntityCache<Conta> contaCache;
+
+    /**
+     * Acesso JDBC utilizado nas atualizações parciais.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
     /**
      * Método construtor da classe Conta.
      * @param contaRepository
+     * @param transferBatcher
+     * @param transferEngine
+     * @param balanceAggregate
+     * @param pagination
+     * @param contaCache
+     * @param dataSource
      */
     @Autowired
-    public ContaService(ContaRepository contaRepository) {
+    public ContaService(ContaRepository contaRepository, TransferBatcher transferBatcher,
+                        TransferEngine transferEngine, ContaBalanceAggregate balanceAggregate,
+                        Pagination pagination, EntityCache<Conta> contaCache, DataSource dataSource) {
         this.contaRepository = contaRepository;
+        this.transferBatcher = transferBatcher;
+        this.transferEngine = transferEngine;
+        this.balanceAggregate = balanceAggregate;
+        this.pagination = pagination;
+        this.contaCache = contaCache;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
     }
 
     /**
      * Este método retorna um objeto da classe 'Conta' para salvamento.
      * @param toSave parâmetro/objeto de salvamento.
+     * A diferença de saldo é acumulada no somatório mantido em memória após o 'commit'.
      * @return Retorna um objeto Conta
      */
+    @Transactional
     public Conta save(Conta toSave) {
-        return contaRepository.save(toSave);
+        Long previous = toSave.getId() == 0 ? null : contaRepository.balanceForUpdate(toSave.getId());
+        Conta saved = contaRepository.save(toSave);
+        long delta = saved.getBalance() - (previous == null ? 0 : previous);
+        balanceAggregate.addAfterCommit(delta);
+        if (previous != null) contaCache.evictAfterCommit(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Este método atualiza apenas os campos informados de uma conta em um único comando SQL, que também devolve o
+     * registro anterior ('PartialUpdate'). O saldo não é alterado, portanto o somatório mantido em memória também
+     * não.
+     * @param id Código identificador do registro.
+     * @param values Conta com os novos valores dos campos informados.
+     * @param fields Campos a serem atualizados, dentre os 'patchableFields'.
+     * @return Retorna a conta atualizada ou um Optional vazio quando não existir.
+     */
+    @Transactional
+    public Optional<Conta> patch(long id, Conta values, Set<String> fields) {
+        PartialUpdate.Change<Conta> change = PATCH.apply(jdbcTemplate, id, values, fields);
+        if (change == null) return Optional.empty();
+        contaCache.evictAfterCommit(id);
+        return Optional.of(change.getAfter());
+    }
+
+    /**
+     * @return Retorna os nomes dos campos aceitos na atualização parcial ('patch').
+     */
+    public Set<String> patchableFields() {
+        return PATCH.fields();
     }
 
     /**
      * A função desta método é remover uma conta através do seu 'id'.
+     * O saldo removido é descontado do somatório mantido em memória após o 'commit'.
      * @param id Código identificador do registro.
      */
-    public void deleteById(Long id) { contaRepository.deleteById(id); }
+    @Transactional
+    public void deleteById(Long id) {
+        Long previous = contaRepository.balanceForUpdate(id);
+        contaRepository.deleteById(id);
+        if (previous != null) balanceAggregate.addAfterCommit(-previous);
+        contaCache.evictAfterCommit(id);
+    }
 
     /**
      * Este método retorna um objeto da classe 'Optional' para verificação se ele existe no banco de dados.
      * A referida classe é utilizada a fim de evitar NPE, ou seja, a mesma necessariamente conterá nada ou
      * uma valor não nulo.
+     * A consulta é servida pelo cache de leitura, invalidado a cada gravação, remoção e transferência.
      * @param id Código identificador do registro.
      * @return Retorna um objeto Optional vazio ou não nulo.
      */
     public Optional<Conta> findById(Long id) {
-        return contaRepository.findById(id);
+        return contaCache.get(id, contaRepository::findById);
     }
 
     /**
-     * Método que retorna todas as contas existentes na tabela correspondente (conta) do banco de dados.
-     * @return Retorna uma coleção de todas as contas existentes na base de dados.
+     * Método que retorna uma página das contas existentes na tabela correspondente (conta) do banco de dados,
+     * paginada por chave ('keyset') a partir do cursor informado.
+     * @param after Cursor ('id' do último registro da página anterior, ou 0 para a primeira página).
+     * @param limit Tamanho de página solicitado, limitado pelo máximo configurado no servidor.
+     * @return Retorna uma página de contas e o cursor da próxima página.
      */
-    public List<Conta> findAll() {
-        return (List<Conta>) contaRepository.findAll();
+    public KeysetPage<Conta> findAll(long after, Integer limit) {
+        int size = pagination.limit(limit);
+        return KeysetPage.of(contaRepository.findByIdGreaterThanOrderByIdAsc(after, pagination.lookahead(size)),
+                size, Conta::getId);
     }
 
     /**
      * Este método retorna o somatório de todas as contas existentes na base de dados.
-     * @return Retorna um 'float' correspondente ao somatório de todas as contas cadastradas.
+     * O valor é servido pelo agregado mantido em memória, sem consulta ao banco de dados.
+     * @return Retorna um 'long' correspondente ao somatório, em centavos, de todas as contas cadastradas.
      */
-    public Float totalBalance() { return contaRepository.totalBalance(); }
+    public long totalBalance() { return balanceAggregate.value(); }
+
+    /**
+     * Este método confere o somatório mantido em memória com o somatório real da tabela 'conta'. A conexão é
+     * obtida pela transação antes do bloqueio exclusivo da conferência, que assim não disputa o 'pool' com as
+     * transações que aguardam o bloqueio para confirmar.
+     * @param repair reconstrói o somatório quando houver divergência.
+     * @return Retorna o resultado da conferência.
+     */
+    @Transactional(readOnly = true)
+    public ContaBalanceAggregate.Check checkTotalBalance(boolean repair) {
+        return balanceAggregate.check(repair);
+    }
+
+    /**
+     * Este método realiza a transferência de valores entre contas, delegando ao motor de transferências a
+     * verificação de saldo, o débito e o crédito em uma única transação. As transferências concorrentes são
+     * agrupadas em lotes com um único 'commit'.
+     * @param transferValue Objeto da classe interna Conta.TransferValue com origem, destino e valor.
+     * @return Retorna um objeto Conta.TransferResult com a situação da operação e os saldos resultantes.
+     */
+    public Conta.TransferResult transferValue(Conta.TransferValue transferValue) {
+        return transferBatcher.transfer(transferValue);
+    }
 
     /**
-     * Este método auxiliar de transferência realiza o salvamento das informações na base de dados.
-     * @param from Conta de origem onde será debitado o valor pretendido à transferência.
-     * @param to Conta destino onde será creditado o valor recebido da transferência.
+     * Este método liquida um lote de transferências em uma única transação.
+     * @param transfers Coleção de objetos da classe interna Conta.TransferValue.
+     * @param mode Modo de liquidação: ATOMIC (tudo ou nada) ou BEST_EFFORT (resultado por item).
+     * @return Retorna uma coleção de resultados, na mesma ordem dos itens recebidos.
      */
-    public void transferValue(Conta from, Conta to) {
-        contaRepository.save(from);
-        contaRepository.save(to);
+    public List<Conta.TransferResult> transferAll(List<Conta.TransferValue> transfers, Conta.TransferMode mode) {
+        return transferEngine.settle(transfers, mode);
     }
 
 }
@@ -0,0 +1,185 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 'Buffer' de bytes reutilizado na escrita de CSV (separador ';', vírgula decimal e datas dd/MM/yyyy, como nas
+ * planilhas em português). Números, valores monetários e datas são convertidos diretamente em dígitos ASCII e
+ * os textos codificados em UTF-8 caractere a caractere, sem criar 'String', 'BigDecimal' ou 'LocalDate' por
+ * registro. O 'buffer' é descarregado no 'OutputStream' apenas quando fica cheio. Não é 'thread-safe'.
+ */
+final class CsvBuffer {
+
+    static final byte SEPARATOR = ';';
+
+    /**
+     * Marca de ordem de bytes do UTF-8, que permite às planilhas reconhecerem a codificação.
+     */
+    static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final OutputStream out;
+    private final byte[] bytes;
+    private int position;
+
+    /**
+     * @param out destino dos bytes.
+     * @param size tamanho do 'buffer'; deve comportar ao menos 20 bytes (maior número representável).
+     */
+    CsvBuffer(OutputStream out, int size) {
+        this.out = out;
+        this.bytes = new byte[Math.max(64, size)];
+    }
+
+    /**
+     * Escreve bytes pré-codificados (cabeçalho, nomes de tipos).
+     */
+    CsvBuffer raw(byte[] value) throws IOException {
+        if (value.length > bytes.length) {
+            flush();
+            out.write(value);
+            return this;
+        }
+        ensure(value.length);
+        System.arraycopy(value, 0, bytes, position, value.length);
+        position += value.length;
+        return this;
+    }
+
+    CsvBuffer separator() throws IOException {
+        return put(SEPARATOR);
+    }
+
+    CsvBuffer newline() throws IOException {
+        return put((byte) '\n');
+    }
+
+    /**
+     * Escreve um número inteiro em decimal.
+     */
+    CsvBuffer number(long value) throws IOException {
+        ensure(20);
+        //acumulado em negativo, para que Long.MIN_VALUE também seja representado
+        long negative = value < 0 ? value : -value;
+        if (value < 0) bytes[position++] = '-';
+        int digits = 1;
+        for (long rest = negative / 10; rest != 0; rest /= 10) digits++;
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            bytes[i] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        }
+        position = end;
+        return this;
+    }
+
+    /**
+     * Escreve um valor em centavos com vírgula decimal e duas casas (ex.: 123456 como 1234,56).
+     */
+    CsvBuffer money(long cents) throws IOException {
+        ensure(24);
+        long units = cents / 100;
+        int fraction = (int) Math.abs(cents % 100);
+        if (cents < 0 && units == 0) put((byte) '-');
+        number(units);
+        bytes[position++] = ',';
+        bytes[position++] = (byte) ('0' + fraction / 10);
+        bytes[position++] = (byte) ('0' + fraction % 10);
+        return this;
+    }
+
+    /**
+     * Escreve uma data, recebida como dia da época, no formato dd/MM/yyyy. O cálculo do dia, do mês e do ano é
+     * o mesmo de 'LocalDate.ofEpochDay' (calendário gregoriano proléptico, com março como primeiro mês).
+     */
+    CsvBuffer date(long epochDay) throws IOException {
+        long zero = epochDay + 719_468;
+        long era = (zero >= 0 ? zero : zero - 146_096) / 146_097;
+        long dayOfEra = zero - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        ensure(10);
+        twoDigits(day);
+        bytes[position++] = '/';
+        twoDigits(month);
+        bytes[position++] = '/';
+        if (year < 0 || year > 9999) return number(year);
+        twoDigits((int) (year / 100));
+        twoDigits((int) (year % 100));
+        return this;
+    }
+
+    /**
+     * Escreve um texto em UTF-8, entre aspas (com as aspas internas duplicadas) quando contiver o separador,
+     * aspas ou quebras de linha. Nulo é escrito como campo vazio.
+     */
+    CsvBuffer text(CharSequence value) throws IOException {
+        if (value == null) return this;
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == SEPARATOR || c == '"' || c == '\n' || c == '\r';
+        }
+        if (quoted) put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            ensure(4);
+            if (c < 0x80) {
+                if (c == '"') bytes[position++] = '"';
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xC0 | c >> 6);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+                bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                //surrogate isolado: substituído, como faz o codificador UTF-8 do Java
+                bytes[position++] = '?';
+            } else {
+                bytes[position++] = (byte) (0xE0 | c >> 12);
+                bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        if (quoted) put((byte) '"');
+        return this;
+    }
+
+    /**
+     * Descarrega o 'buffer' no 'OutputStream'.
+     */
+    void flush() throws IOException {
+        if (position > 0) out.write(bytes, 0, position);
+        position = 0;
+    }
+
+    static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private CsvBuffer put(byte value) throws IOException {
+        ensure(1);
+        bytes[position++] = value;
+        return this;
+    }
+
+    private void twoDigits(int value) {
+        bytes[position++] = (byte) ('0' + value / 10);
+        bytes[position++] = (byte) ('0' + value % 10);
+    }
+
+    private void ensure(int size) throws IOException {
+        if (position + size > bytes.length) flush();
+    }
+
+}
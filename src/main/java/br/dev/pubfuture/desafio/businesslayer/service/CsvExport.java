@@ -0,0 +1,166 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Camada de serviço da exportação de receitas e despesas em CSV, para planilhas.
+ * Os registros são lidos do cursor JDBC em blocos de 'FETCH_SIZE' e escritos em um único 'buffer' de bytes
+ * reutilizado ('CsvBuffer'), sem passar pelas entidades JPA: as datas chegam do banco de dados como dia da época
+ * e os tipos como posição ordinal, de modo que, por registro, apenas a descrição da receita é criada como
+ * 'String'. A memória utilizada é a do 'buffer', qualquer que seja a quantidade de registros.
+ * A interrupção da 'thread' (por exemplo, no esgotamento do tempo da requisição assíncrona) encerra a leitura
+ * do cursor antes do próximo registro, com 'InterruptedIOException'.
+ */
+@Service
+public class CsvExport {
+
+    /**
+     * Quantidade de registros por leitura do cursor e tamanho do 'buffer', em bytes.
+     */
+    private static final int FETCH_SIZE = 500;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String EPOCH = "DATE '1970-01-01'";
+
+    private static final String RECEITA_SQL = "SELECT id, DATEDIFF(DAY, " + EPOCH + ", dt_receb), "
+            + "DATEDIFF(DAY, " + EPOCH + ", dt_recb_esp), valor, descricao, "
+            + ordinal("tp_receita", Receita.Revenue.values()) + ", conta FROM receita";
+    private static final String DESPESA_SQL = "SELECT id, DATEDIFF(DAY, " + EPOCH + ", dt_pagto), "
+            + "DATEDIFF(DAY, " + EPOCH + ", dt_pag_esp), valor, "
+            + ordinal("tp_despesa", Despesa.TypeOfExpense.values()) + ", conta FROM despesa";
+
+    private static final byte[] RECEITA_HEADER =
+            CsvBuffer.encode("id;data;data_esperada;valor;descricao;tipo;conta\n");
+    private static final byte[] DESPESA_HEADER = CsvBuffer.encode("id;data;data_esperada;valor;tipo;conta\n");
+
+    /**
+     * Nomes dos tipos já codificados, na posição ordinal.
+     */
+    private static final byte[][] REVENUES = names(Receita.Revenue.values());
+    private static final byte[][] EXPENSES = names(Despesa.TypeOfExpense.values());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Método construtor do serviço de exportação.
+     * @param dataSource conexão com o banco de dados; dentro de uma transação do JPA, a mesma conexão é utilizada.
+     */
+    @Autowired
+    public CsvExport(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Escreve as receitas, em ordem de 'id', opcionalmente limitadas a um intervalo de datas de recebimento.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @param out destino do CSV; não é fechado.
+     * @throws IOException quando a escrita falhar ou a 'thread' for interrompida.
+     */
+    @Transactional(readOnly = true)
+    public void receitas(LocalDate start, LocalDate end, OutputStream out) throws IOException {
+        CsvBuffer csv = new CsvBuffer(out, BUFFER_SIZE);
+        csv.raw(CsvBuffer.BOM).raw(RECEITA_HEADER);
+        export(RECEITA_SQL, "dt_receb", start, end, csv, rs -> {
+            csv.number(rs.getLong(1)).separator();
+            date(csv, rs, 2).separator();
+            date(csv, rs, 3).separator();
+            csv.money(rs.getLong(4)).separator()
+                    .text(rs.getString(5)).separator();
+            type(csv, rs, 6, REVENUES).separator()
+                    .number(rs.getInt(7)).newline();
+        });
+    }
+
+    /**
+     * Escreve as despesas, em ordem de 'id', opcionalmente limitadas a um intervalo de datas de pagamento.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @param out destino do CSV; não é fechado.
+     * @throws IOException quando a escrita falhar ou a 'thread' for interrompida.
+     */
+    @Transactional(readOnly = true)
+    public void despesas(LocalDate start, LocalDate end, OutputStream out) throws IOException {
+        CsvBuffer csv = new CsvBuffer(out, BUFFER_SIZE);
+        csv.raw(CsvBuffer.BOM).raw(DESPESA_HEADER);
+        export(DESPESA_SQL, "dt_pagto", start, end, csv, rs -> {
+            csv.number(rs.getLong(1)).separator();
+            date(csv, rs, 2).separator();
+            date(csv, rs, 3).separator();
+            csv.money(rs.getLong(4)).separator();
+            type(csv, rs, 5, EXPENSES).separator()
+                    .number(rs.getInt(6)).newline();
+        });
+    }
+
+    private void export(String sql, String dateColumn, LocalDate start, LocalDate end, CsvBuffer csv, Row row)
+            throws IOException {
+        RowCallbackHandler handler = rs -> {
+            try {
+                if (Thread.currentThread().isInterrupted())
+                    throw new InterruptedIOException("Exportação interrompida.");
+                row.write(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        try {
+            if (start == null && end == null) jdbcTemplate.query(sql + " ORDER BY id", handler);
+            else jdbcTemplate.query(sql + " WHERE " + dateColumn + " BETWEEN ? AND ? ORDER BY id", handler,
+                    Periods.start(start), Periods.end(end));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        csv.flush();
+    }
+
+    private static CsvBuffer date(CsvBuffer csv, ResultSet rs, int column) throws SQLException, IOException {
+        long epochDay = rs.getLong(column);
+        return rs.wasNull() ? csv : csv.date(epochDay);
+    }
+
+    private static CsvBuffer type(CsvBuffer csv, ResultSet rs, int column, byte[][] names)
+            throws SQLException, IOException {
+        int ordinal = rs.getInt(column);
+        return rs.wasNull() ? csv : csv.raw(names[ordinal]);
+    }
+
+    /**
+     * @return Retorna a expressão SQL que converte o nome gravado ('EnumType.STRING') na posição ordinal.
+     */
+    private static String ordinal(String column, Enum<?>[] values) {
+        StringBuilder sql = new StringBuilder("CASE ").append(column);
+        for (Enum<?> value : values)
+            sql.append(" WHEN '").append(value.name()).append("' THEN ").append(value.ordinal());
+        return sql.append(" END").toString();
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        return Arrays.stream(values).map(value -> CsvBuffer.encode(value.name())).toArray(byte[][]::new);
+    }
+
+    /**
+     * Escrita de um registro do cursor.
+     */
+    @FunctionalInterface
+    private interface Row {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+}
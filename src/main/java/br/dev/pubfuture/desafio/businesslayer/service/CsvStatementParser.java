@@ -0,0 +1,179 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Leitura incremental de um extrato em CSV, registro a registro, com separador ';' ou ',' (detectado no
+ * cabeçalho) e campos entre aspas com aspas duplicadas ("") como escape.
+ * O cabeçalho é obrigatório e identifica as colunas pelo nome, em português ou inglês: data/date e
+ * valor/amount/value (obrigatórias), descricao/description/memo, tipo/type e conta/account. Um registro maior que
+ * 'MAX_RECORD' caracteres é descartado até o fim da linha e informado como erro, o que limita a memória
+ * utilizada a um registro.
+ */
+final class CsvStatementParser implements StatementParser {
+
+    /**
+     * Tamanho máximo de um registro, em caracteres.
+     */
+    static final int MAX_RECORD = 64 * 1024;
+
+    private final Reader reader;
+    private final StringBuilder record = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private char separator;
+    private int date = -1;
+    private int amount = -1;
+    private int description = -1;
+    private int type = -1;
+    private int account = -1;
+
+    /**
+     * Número da linha em que começa o registro atual e da próxima linha a ser lida.
+     */
+    private long line;
+    private long nextLine = 1;
+    private boolean started;
+    private boolean eof;
+
+    /**
+     * @param reader conteúdo do arquivo; convém que seja 'buffered', pois é lido caractere a caractere.
+     */
+    CsvStatementParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public StatementLine next() throws IOException {
+        if (!started) {
+            started = true;
+            String error = header();
+            if (error != null) {
+                eof = true;
+                return StatementLine.error(line, error);
+            }
+        }
+        while (!eof) {
+            if (!read()) return StatementLine.error(line, "Linha excede " + MAX_RECORD + " caracteres.");
+            if (record.length() == 0 && eof) return null;
+            if (record.toString().isBlank()) continue;
+            return parse();
+        }
+        return null;
+    }
+
+    /**
+     * Lê o cabeçalho, detecta o separador e localiza as colunas.
+     * @return Retorna a mensagem de erro ou nulo quando o cabeçalho for válido.
+     */
+    private String header() throws IOException {
+        do {
+            if (!read()) return "Cabeçalho excede " + MAX_RECORD + " caracteres.";
+            if (record.length() == 0 && eof) return "Arquivo vazio.";
+        } while (record.toString().isBlank());
+        //marca de ordem de bytes gravada por planilhas (e pela exportação em CSV)
+        if (record.charAt(0) == '\uFEFF') record.deleteCharAt(0);
+        String text = record.toString();
+        separator = text.indexOf(';') >= 0 ? ';' : ',';
+        split();
+        for (int column = 0; column < fields.size(); column++) {
+            switch (fields.get(column).trim().toLowerCase(Locale.ROOT)) {
+                case "data": case "date": date = column; break;
+                case "valor": case "amount": case "value": amount = column; break;
+                case "descricao": case "descrição": case "description": case "memo": description = column; break;
+                case "tipo": case "type": type = column; break;
+                case "conta": case "account": account = column; break;
+                default: //colunas desconhecidas são ignoradas
+            }
+        }
+        if (date < 0 || amount < 0) return "Cabeçalho sem as colunas 'data' e 'valor'.";
+        return null;
+    }
+
+    private StatementLine parse() {
+        split();
+        try {
+            String dateText = field(date);
+            String amountText = field(amount);
+            if (dateText == null || amountText == null) return StatementLine.error(line, "Data e valor obrigatórios.");
+            String accountText = field(account);
+            return new StatementLine(line, StatementParser.parseDate(dateText),
+                    StatementParser.parseCents(amountText), field(description), field(type),
+                    accountText == null ? null : Integer.valueOf(accountText), null);
+        } catch (NumberFormatException e) {
+            return StatementLine.error(line, "Conta inválida: " + field(account));
+        } catch (IllegalArgumentException e) {
+            return StatementLine.error(line, e.getMessage());
+        }
+    }
+
+    /**
+     * @return Retorna o campo sem espaços nas extremidades ou nulo quando ausente ou vazio.
+     */
+    private String field(int column) {
+        if (column < 0 || column >= fields.size()) return null;
+        String value = fields.get(column).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Lê o próximo registro para 'record', sem o fim de linha. Quebras de linha entre aspas fazem parte do campo.
+     * @return Retorna falso quando o registro exceder o tamanho máximo; o restante da linha é descartado.
+     */
+    private boolean read() throws IOException {
+        record.setLength(0);
+        line = nextLine;
+        boolean quoted = false;
+        boolean overflow = false;
+        int c;
+        while ((c = reader.read()) >= 0) {
+            if (c == '\n') {
+                nextLine++;
+                if (!quoted || overflow) break;
+            } else if (c == '\r') {
+                continue;
+            } else if (c == '"') {
+                quoted = !quoted;
+            }
+            if (overflow) continue;
+            if (record.length() == MAX_RECORD) {
+                overflow = true;
+                record.setLength(0);
+                continue;
+            }
+            record.append((char) c);
+        }
+        if (c < 0) eof = true;
+        return !overflow;
+    }
+
+    /**
+     * Divide o registro atual em campos, removendo as aspas e os escapes.
+     */
+    private void split() {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == separator && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+    }
+
+}
@@ -1,12 +1,29 @@
 package br.dev.pubfuture.desafio.businesslayer.service;
 
 import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import br.dev.pubfuture.desafio.persistence.Aggregate;
 import br.dev.pubfuture.desafio.persistence.DespesaRepository;
+import br.dev.pubfuture.desafio.persistence.RollupTotal;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.sql.Types;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Camada de serviço de Despesa.
@@ -16,76 +33,472 @@ import java.util.Optional;
 @Service
 public class DespesaService {
 
+    /**
+     * Quantidade de registros por lote nas inserções em massa (igual a hibernate.jdbc.batch_size).
+     */
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * Quantidade de valores reservados a cada leitura da sequência 'despesa_seq' (igual ao 'allocationSize' de
+     * 'Despesa').
+     */
+    private static final int ID_ALLOCATION = 50;
+
+    /**
+     * Inserção com o 'id' já reservado, utilizada pela gravação assíncrona.
+     */
+    private static final String INSERT = "INSERT INTO despesa (id, valor, dt_pagto, dt_pag_esp, tp_despesa, conta) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Campos atualizáveis pelo 'endpoint' PATCH e as respectivas colunas.
+     */
+    static final PartialUpdate<Despesa> PATCH = new PartialUpdate<Despesa>("despesa", (rs, row) ->
+            Despesa.builder()
+                    .id(rs.getLong("id"))
+                    .value(rs.getLong("valor"))
+                    .payday(rs.getObject("dt_pagto", LocalDate.class))
+                    .expectedPaymentDate(rs.getObject("dt_pag_esp", LocalDate.class))
+                    .typeOfExpense(Despesa.TypeOfExpense.valueOf(rs.getString("tp_despesa")))
+                    .account(rs.getInt("conta"))
+                    .build())
+            .column("value", "valor", Despesa::getValue, (to, from) -> to.setValue(from.getValue()))
+            .column("payday", "dt_pagto", Despesa::getPayday, (to, from) -> to.setPayday(from.getPayday()))
+            .column("expectedPaymentDate", "dt_pag_esp", Despesa::getExpectedPaymentDate,
+                    (to, from) -> to.setExpectedPaymentDate(from.getExpectedPaymentDate()))
+            .column("typeOfExpense", "tp_despesa", despesa -> PartialUpdate.name(despesa.getTypeOfExpense()),
+                    (to, from) -> to.setTypeOfExpense(from.getTypeOfExpense()))
+            .column("account", "conta", Despesa::getAccount, (to, from) -> to.setAccount(from.getAccount()));
+
     /**
      * Instanciação do objeto do repositório 'DespesaRepository'.
      */
     private final DespesaRepository despesaRepository;
 
+    /**
+     * Limites das listagens paginadas.
+     */
+    private final Pagination pagination;
+
+    /**
+     * Resumo mensal das despesas, mantido na mesma transação de cada gravação e remoção.
+     */
+    private final MonthlyRollup monthlyRollup;
+
+    /**
+     * Distribuidor das alterações às projeções em memória e índice de somas por intervalo de datas.
+     */
+    private final Ledger ledger;
+    private final FenwickIndex fenwickIndex;
+
+    /**
+     * Cópia colunar em memória, utilizada nas varreduras analíticas.
+     */
+    private final ColumnarStore columnarStore;
+
+    /**
+     * Cache de leitura das despesas por 'id'.
+     */
+    private final EntityCache<Despesa> despesaCache;
+
+    /**
+     * Agrupamento das consultas de somatório e por tipo idênticas e concorrentes.
+     */
+    private final SingleFlight despesaFlights;
+
+    /**
+     * Cache das consultas por intervalo de datas, invalidado por data a cada gravação confirmada.
+     */
+    private final RangeQueryCache<Despesa> despesaRangeCache;
+
+    /**
+     * Contadores em memória da quantidade e do somatório por tipo e por tipo e conta.
+     */
+    private final TypeCounters typeCounters;
+
+    /**
+     * Acesso JDBC utilizado nas atualizações parciais.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Contexto de persistência, utilizado para desanexar as entidades percorridas na exportação.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Método construtor da classe Despesa.
      * @param despesaRepository
+     * @param pagination
+     * @param monthlyRollup
+     * @param ledger
+     * @param fenwickIndex
+     * @param columnarStore
+     * @param despesaCache
+     * @param despesaFlights
+     * @param despesaRangeCache
+     * @param typeCounters
+     * @param dataSource
      */
     @Autowired
-    public DespesaService(DespesaRepository despesaRepository) {
+    public DespesaService(DespesaRepository despesaRepository, Pagination pagination, MonthlyRollup monthlyRollup,
+                          Ledger ledger, FenwickIndex fenwickIndex, ColumnarStore columnarStore,
+                          EntityCache<Despesa> despesaCache, SingleFlight despesaFlights,
+                          RangeQueryCache<Despesa> despesaRangeCache, TypeCounters typeCounters,
+                          DataSource dataSource) {
         this.despesaRepository = despesaRepository;
+        this.pagination = pagination;
+        this.monthlyRollup = monthlyRollup;
+        this.ledger = ledger;
+        this.fenwickIndex = fenwickIndex;
+        this.columnarStore = columnarStore;
+        this.despesaCache = despesaCache;
+        this.despesaFlights = despesaFlights;
+        this.despesaRangeCache = despesaRangeCache;
+        this.typeCounters = typeCounters;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
     }
 
     /**
      * Este método retorna um objeto da classe 'Despesa' para salvamento.
+     * O resumo mensal recebe a diferença entre o registro anterior (quando se trata de uma alteração) e o novo.
      * @param toSave parâmetro/objeto de salvamento.
      * @return Retorna um objeto Despesa
      */
+    @Transactional
     public Despesa save(Despesa toSave) {
-        return despesaRepository.save(toSave);
+        MonthlyRollup.Delta delta = monthlyRollup.delta(Rollup.Kind.DESPESA);
+        Despesa before = toSave.getId() == 0 ? null : despesaRepository.findForUpdate(toSave.getId()).orElse(null);
+        //o anterior é copiado antes da gravação, que o sobrescreve no contexto de persistência
+        LedgerEntry previous = LedgerEntry.of(before);
+        if (before != null) remove(delta, before);
+        Despesa saved = despesaRepository.save(toSave);
+        add(delta, saved).apply();
+        ledger.publish(Rollup.Kind.DESPESA, previous, LedgerEntry.of(saved));
+        if (before != null) despesaCache.evictAfterCommit(saved.getId());
+        despesaFlights.invalidateAfterCommit();
+        return saved;
+    }
+
+    /**
+     * Este método atualiza apenas os campos informados de uma despesa em um único comando SQL, que também devolve o
+     * registro anterior ('PartialUpdate'); o resumo mensal, as projeções em memória e os caches recebem a
+     * diferença como nas demais gravações.
+     * @param id Código identificador do registro.
+     * @param values Despesa com os novos valores dos campos informados.
+     * @param fields Campos a serem atualizados, dentre os 'patchableFields'.
+     * @return Retorna a despesa atualizada ou um Optional vazio quando não existir.
+     */
+    @Transactional
+    public Optional<Despesa> patch(long id, Despesa values, Set<String> fields) {
+        PartialUpdate.Change<Despesa> change = PATCH.apply(jdbcTemplate, id, values, fields);
+        if (change == null) return Optional.empty();
+        MonthlyRollup.Delta delta = monthlyRollup.delta(Rollup.Kind.DESPESA);
+        remove(delta, change.getBefore());
+        add(delta, change.getAfter()).apply();
+        ledger.publish(Rollup.Kind.DESPESA, LedgerEntry.of(change.getBefore()), LedgerEntry.of(change.getAfter()));
+        despesaCache.evictAfterCommit(id);
+        despesaFlights.invalidateAfterCommit();
+        return Optional.of(change.getAfter());
+    }
+
+    /**
+     * @return Retorna os nomes dos campos aceitos na atualização parcial ('patch').
+     */
+    public Set<String> patchableFields() {
+        return PATCH.fields();
+    }
+
+    /**
+     * Este método inclui uma coleção de despesas novas em uma única transação. As inserções são agrupadas em lotes
+     * JDBC (hibernate.jdbc.batch_size) e o contexto de persistência é descarregado e limpo a cada lote, de modo
+     * que a memória utilizada não cresça com o tamanho da coleção. Alterações não são aceitas: todos os 'id'
+     * devem ser 0.
+     * @param toSave coleção de objetos a serem incluídos.
+     * @return Retorna as entidades gravadas, na ordem recebida, com os 'id' gerados.
+     * @throws IllegalArgumentException quando algum item informar o 'id'.
+     */
+    @Transactional
+    public List<Despesa> saveAll(List<Despesa> toSave) {
+        for (Despesa item : toSave)
+            if (item.getId() != 0)
+                throw new IllegalArgumentException("Id não pode ser informado na inclusão em lote.");
+        MonthlyRollup.Delta delta = monthlyRollup.delta(Rollup.Kind.DESPESA);
+        List<Despesa> saved = new ArrayList<>(toSave.size());
+        List<LedgerEntry> current = new ArrayList<>(toSave.size());
+        for (int i = 0; i < toSave.size(); i++) {
+            Despesa item = despesaRepository.save(toSave.get(i));
+            add(delta, item);
+            saved.add(item);
+            current.add(LedgerEntry.of(item));
+            if ((i + 1) % BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        delta.apply();
+        ledger.publishAll(Rollup.Kind.DESPESA, Collections.nCopies(current.size(), null), current);
+        despesaFlights.invalidateAfterCommit();
+        return saved;
+    }
+
+    /**
+     * Este método reserva o 'id' de uma nova despesa no mesmo gerador (sequência 'despesa_seq') utilizado nas gravações
+     * comuns, sem gravá-la, para a gravação assíncrona.
+     * @param toInsert Despesa a ser gravada posteriormente.
+     * @return Retorna o 'id' reservado.
+     */
+    @Transactional
+    public long allocateId(Despesa toInsert) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        return ((Number) session.getFactory().getMetamodel().entityPersister(Despesa.class).getIdentifierGenerator()
+                .generate(session, toInsert)).longValue();
+    }
+
+    /**
+     * Este método insere, em uma única transação e em lotes JDBC, despesas novas cujo 'id' já foi reservado
+     * ('allocateId'), mantendo o resumo mensal e as projeções em memória como nas demais gravações. A inserção é
+     * feita diretamente por JDBC, sem a consulta prévia de cada 'id' que o Hibernate faria ao gravar uma entidade
+     * com o 'id' informado.
+     * @param toInsert coleção de despesas novas, com o 'id' reservado.
+     */
+    @Transactional
+    public void insertAll(List<Despesa> toInsert) {
+        MonthlyRollup.Delta delta = monthlyRollup.delta(Rollup.Kind.DESPESA);
+        //insere com o 'id' informado; um 'id' repetido falha pela chave primária
+        jdbcTemplate.batchUpdate(INSERT, toInsert, BATCH_SIZE, (ps, item) -> {
+            ps.setLong(1, item.getId());
+            ps.setLong(2, item.getValue());
+            ps.setObject(3, item.getPayday(), Types.DATE);
+            ps.setObject(4, item.getExpectedPaymentDate(), Types.DATE);
+            ps.setString(5, item.getTypeOfExpense() == null ? null : item.getTypeOfExpense().name());
+            ps.setInt(6, item.getAccount());
+        });
+        List<LedgerEntry> current = new ArrayList<>(toInsert.size());
+        for (Despesa item : toInsert) {
+            add(delta, item);
+            current.add(LedgerEntry.of(item));
+        }
+        delta.apply();
+        ledger.publishAll(Rollup.Kind.DESPESA, Collections.nCopies(current.size(), null), current);
+        despesaFlights.invalidateAfterCommit();
+    }
+
+    /**
+     * @param id Código identificador do registro.
+     * @return Retorna verdadeiro quando existir a despesa com o 'id' informado.
+     */
+    public boolean existsById(long id) {
+        return despesaRepository.existsById(id);
+    }
+
+    /**
+     * Este método reposiciona a sequência 'despesa_seq' após o maior 'id' gravado. As despesas recuperadas do diário
+     * da gravação assíncrona são inseridas com o 'id' reservado antes da reinicialização, enquanto a sequência
+     * recriada com o esquema recomeça em 1; sem o reposicionamento, os próximos 'id' colidiriam com os
+     * recuperados.
+     */
+    public void restartIdSequence() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM despesa", Long.class);
+        if (max == null) return;
+        //o gerador 'pooled' utiliza os valores que antecedem cada valor lido, até o tamanho da alocação
+        jdbcTemplate.execute("ALTER SEQUENCE despesa_seq RESTART WITH " + (max + ID_ALLOCATION));
     }
 
     /**
      * A função desta método é remover uma despesa através do seu 'id'.
+     * O registro removido é descontado do resumo mensal na mesma transação.
      * @param id Código identificador do registro.
      */
-    public void deleteById(Long id) { despesaRepository.deleteById(id); }
+    @Transactional
+    public void deleteById(Long id) {
+        Optional<Despesa> before = despesaRepository.findForUpdate(id);
+        LedgerEntry removedEntry = LedgerEntry.of(before.orElse(null));
+        despesaRepository.deleteById(id);
+        before.ifPresent(removed -> remove(monthlyRollup.delta(Rollup.Kind.DESPESA), removed).apply());
+        ledger.publish(Rollup.Kind.DESPESA, removedEntry, null);
+        despesaCache.evictAfterCommit(id);
+        despesaFlights.invalidateAfterCommit();
+    }
 
     /**
      * Este método retorna um objeto da classe 'Optional' para verificação se ele existe no banco de dados.
      * A referida classe é utilizada a fim de evitar NPE, ou seja, a mesma necessariamente conterá nada ou
      * uma valor não nulo.
+     * A consulta é servida pelo cache de leitura, invalidado a cada gravação e remoção.
      * @param id Código identificador do registro.
      * @return Retorna um objeto Optional vazio ou não nulo.
      */
-    public Optional<Despesa> findById(Long id) { return despesaRepository.findById(id); }
+    public Optional<Despesa> findById(Long id) {
+        return despesaCache.get(id, despesaRepository::findById);
+    }
 
     /**
-     * Método que retorna todas as despesas existentes na tabela correspondente (despesa) do banco de dados.
-     * @return Retorna uma coleção de todas as despesas existentes na base de dados.
+     * Método que retorna uma página das despesas existentes na tabela correspondente (despesa) do banco de dados,
+     * paginada por chave ('keyset') a partir do cursor informado.
+     * @param after Cursor ('id' do último registro da página anterior, ou 0 para a primeira página).
+     * @param limit Tamanho de página solicitado, limitado pelo máximo configurado no servidor.
+     * @return Retorna uma página de despesas e o cursor da próxima página.
      */
-    public List<Despesa> findAll() {
-        return (List<Despesa>) despesaRepository.findAll();
+    public KeysetPage<Despesa> findAll(long after, Integer limit) {
+        int size = pagination.limit(limit);
+        return KeysetPage.of(despesaRepository.findByIdGreaterThanOrderByIdAsc(after, pagination.lookahead(size)),
+                size, Despesa::getId);
     }
 
     /**
      * Este método retorna o somatório de todas as despesas existentes na base de dados.
-     * @return Retorna um 'float' correspondente ao somatório de todas as despesas cadastradas.
+     * Chamadas idênticas e concorrentes compartilham uma única consulta ('SingleFlight').
+     * @return Retorna um 'long' correspondente ao somatório, em centavos, de todas as despesas cadastradas.
      */
-    public Float totalExpenses() { return despesaRepository.totalExpenses(); }
+    public long totalExpenses() {
+        return despesaFlights.get("total", () -> {
+            Long total = despesaRepository.totalExpenses();
+            return total == null ? 0L : total;
+        });
+    }
 
     /**
      * Este método tem a finalidade de buscar as despesas cadastradas em um determinado intervalo de datas.
      * @param paydayStart Objeto LocalDate contendo a data inicial do intervalo de datas desejado.
      * @param paydayEnd Objeto LocalDate contendo a data final do intervalo de datas desejado.
+     * O resultado é mantido em cache por intervalo ('RangeQueryCache').
      * @return Retorna uma coleção das despesas existentes na base de dados no intervalo desejado.
      */
     public List<Despesa> findAllByPaydayBetween(LocalDate paydayStart, LocalDate paydayEnd) {
-        return despesaRepository.findAllByPaydayBetween(paydayStart, paydayEnd);
+        return despesaRangeCache.get(paydayStart, paydayEnd, despesaRepository::findAllByPaydayBetween);
     }
 
     /**
      * Este método tem a finalidade de buscar as despesas cadastradas por tipo de despesa.
      * @param typeOfExpense Espera por um objeto da classe interna Despesa.TypeOfExpense, o qual contém
      *                as constantes passíveis de ser utilizadas.
+     * Chamadas idênticas e concorrentes compartilham uma única consulta ('SingleFlight').
      * @return Retorna uma coleção das despesas existentes na base de dados por 'tipo de despesa'.
      */
     public List<Despesa> findDespesaByTypeOfExpense(Despesa.TypeOfExpense typeOfExpense) {
-        return despesaRepository.findDespesaByTypeOfExpense(typeOfExpense);
+        return despesaFlights.get(typeOfExpense, () ->
+                Collections.unmodifiableList(despesaRepository.findDespesaByTypeOfExpense(typeOfExpense)));
+    }
+
+    /**
+     * Este método agrega as despesas no próprio banco de dados ('GROUP BY'), sem carregar as entidades, retornando
+     * o somatório, a quantidade, o menor e o maior valor de cada grupo.
+     * @param dimension Agrupamento desejado: por tipo, por conta ou por mês.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @return Retorna uma coleção com uma linha por grupo.
+     */
+    public List<Aggregate> aggregate(Aggregate.Dimension dimension, LocalDate start, LocalDate end) {
+        LocalDate from = Periods.start(start);
+        LocalDate to = Periods.end(end);
+        switch (dimension) {
+            case TYPE:
+                return despesaRepository.aggregateByType(from, to);
+            case ACCOUNT:
+                return despesaRepository.aggregateByAccount(from, to);
+            default:
+                return despesaRepository.aggregateByMonth(from, to);
+        }
+    }
+
+    /**
+     * Este método percorre as despesas cadastradas, opcionalmente limitadas a um intervalo de datas, entregando-as
+     * uma a uma ao consumidor informado. A leitura é feita por cursor em uma transação somente leitura e cada
+     * entidade é desanexada do contexto de persistência após o uso, mantendo a memória constante
+     * independentemente da quantidade de registros.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @param consumer Consumidor de cada registro.
+     */
+    @Transactional(readOnly = true)
+    public void forEach(LocalDate start, LocalDate end, Consumer<Despesa> consumer) {
+        try (Stream<Despesa> stream = start == null && end == null ? despesaRepository.streamAll()
+                : despesaRepository.streamAllByPaydayBetweenOrderById(Periods.start(start), Periods.end(end))) {
+            stream.forEach(despesa -> {
+                consumer.accept(despesa);
+                entityManager.detach(despesa);
+            });
+        }
+    }
+
+    /**
+     * Este método retorna o somatório das despesas de um intervalo de datas, opcionalmente de uma conta e de um
+     * tipo, consultando o índice em memória em O(log n), sem acessar o banco de dados.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @param account Conta (opcional).
+     * @param typeOfExpense Tipo (opcional).
+     * @return Retorna o somatório, em centavos.
+     */
+    public long rangeSum(LocalDate start, LocalDate end, Integer account, Despesa.TypeOfExpense typeOfExpense) {
+        return fenwickIndex.sum(Rollup.Kind.DESPESA, Periods.start(start).toEpochDay(), Periods.end(end).toEpochDay(),
+                account, typeOfExpense == null ? null : typeOfExpense.ordinal());
+    }
+
+    /**
+     * Este método retorna a quantidade e o somatório das despesas de cada tipo, opcionalmente de uma conta, lidos
+     * dos contadores mantidos em memória, sem consulta ao banco de dados.
+     * @param account Conta (opcional).
+     * @return Retorna o somatório, em centavos, e a quantidade de cada tipo, na ordem das constantes.
+     */
+    public EnumMap<Despesa.TypeOfExpense, TypeCounters.Stats> typeStats(Integer account) {
+        TypeCounters.Stats[] totals = typeCounters.stats(Rollup.Kind.DESPESA, account);
+        EnumMap<Despesa.TypeOfExpense, TypeCounters.Stats> stats = new EnumMap<>(Despesa.TypeOfExpense.class);
+        for (Despesa.TypeOfExpense type : Despesa.TypeOfExpense.values())
+            stats.put(type, totals[type.ordinal()]);
+        return stats;
+    }
+
+    /**
+     * Este método soma e conta as despesas de um intervalo de datas, opcionalmente de um tipo e de uma conta,
+     * varrendo a cópia colunar em memória, sem instanciar entidades.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @param typeOfExpense Tipo (opcional).
+     * @param account Conta (opcional).
+     * @return Retorna o somatório, em centavos, e a quantidade de despesas.
+     */
+    public ColumnarStore.Totals scan(LocalDate start, LocalDate end, Despesa.TypeOfExpense typeOfExpense,
+                                    Integer account) {
+        return columnarStore.scan(Rollup.Kind.DESPESA, Periods.start(start).toEpochDay(), Periods.end(end).toEpochDay(),
+                typeOfExpense == null ? null : typeOfExpense.ordinal(), account);
+    }
+
+    /**
+     * Este método retorna o relatório mensal das despesas, lido do resumo mensal (uma linha por mês).
+     * @param year Ano desejado (opcional, o ano corrente quando não informado).
+     * @return Retorna os totais de cada mês do ano que possua despesas.
+     */
+    public List<RollupTotal> monthlyReport(Integer year) {
+        return monthlyRollup.monthly(Rollup.Kind.DESPESA, year == null ? LocalDate.now().getYear() : year);
+    }
+
+    /**
+     * Este método retorna o relatório anual das despesas, lido do resumo mensal.
+     * @param from Ano inicial (opcional).
+     * @param to Ano final (opcional).
+     * @return Retorna os totais de cada ano do intervalo que possua despesas.
+     */
+    public List<RollupTotal> yearlyReport(Integer from, Integer to) {
+        return monthlyRollup.yearly(Rollup.Kind.DESPESA, from, to);
+    }
+
+    /**
+     * Este método reconstrói o resumo mensal das despesas a partir da tabela 'despesa'.
+     * @return Retorna a quantidade de registros do resumo reconstruídos.
+     */
+    public int rebuildRollup() {
+        return monthlyRollup.rebuild(Rollup.Kind.DESPESA);
+    }
+
+    private static MonthlyRollup.Delta add(MonthlyRollup.Delta delta, Despesa despesa) {
+        return delta.add(despesa.getPayday(), despesa.getAccount(), despesa.getTypeOfExpense(), despesa.getValue());
+    }
+
+    private static MonthlyRollup.Delta remove(MonthlyRollup.Delta delta, Despesa despesa) {
+        return delta.remove(despesa.getPayday(), despesa.getAccount(), despesa.getTypeOfExpense(), despesa.getValue());
     }
 
 }
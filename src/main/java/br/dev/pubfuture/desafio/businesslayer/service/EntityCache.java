@@ -0,0 +1,63 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+/**
+ * Cache de leitura ('read-through') das consultas por 'id' de uma entidade, limitado em quantidade (política
+ * W-TinyLFU do Caffeine) e em tempo de vida.
+ * A consistência é mantida por invalidação após o 'commit' de cada gravação: a carga de uma chave ocorre de
+ * forma atômica dentro do cache e uma invalidação concorrente aguarda o seu término, de modo que um valor lido
+ * antes do 'commit' nunca permanece no cache depois da invalidação correspondente.
+ * @param <T> tipo da entidade.
+ */
+public class EntityCache<T> {
+
+    private final Cache<Long, T> cache;
+
+    /**
+     * @param name nome do cache nas métricas ('cache.gets', 'cache.evictions', etc.).
+     * @param maxSize quantidade máxima de entidades.
+     * @param ttl tempo de vida de cada entidade após a carga.
+     * @param registry registro de métricas.
+     */
+    public EntityCache(String name, long maxSize, Duration ttl, MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    /**
+     * @param id Código identificador da entidade.
+     * @param loader consulta ao banco de dados, executada apenas na ausência da entidade no cache.
+     * @return Retorna a entidade do cache ou carregada pela consulta; entidades inexistentes não são guardadas.
+     */
+    public Optional<T> get(long id, LongFunction<Optional<T>> loader) {
+        return Optional.ofNullable(cache.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Invalida a entidade após o 'commit' da transação corrente (ou imediatamente, sem transação).
+     * @param id Código identificador da entidade.
+     */
+    public void evictAfterCommit(long id) {
+        AfterCommit.run(() -> cache.invalidate(id));
+    }
+
+    /**
+     * Invalida um conjunto de entidades após o 'commit' da transação corrente.
+     * @param ids Códigos identificadores das entidades.
+     */
+    public void evictAllAfterCommit(Iterable<Long> ids) {
+        AfterCommit.run(() -> cache.invalidateAll(ids));
+    }
+
+}
@@ -0,0 +1,189 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import org.springframework.stereotype.Component;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice em memória de somas por intervalo de datas, formado por árvores de Fenwick ('binary indexed trees')
+ * indexadas pelo dia da época ('epoch day').
+ * Há uma árvore para cada combinação de conta e tipo e, além delas, árvores agregadas por conta, por tipo e
+ * geral, de modo que qualquer consulta (com ou sem conta e tipo) e qualquer alteração custam O(log n),
+ * independentemente da quantidade de lançamentos. As árvores são esparsas (blocos de dias alocados sob demanda),
+ * de modo que datas distantes entre si não alocam os dias intermediários.
+ */
+@Component
+public class FenwickIndex implements LedgerProjection {
+
+    /**
+     * Posição utilizada como curinga: as contas e os tipos são gravados a partir de 1 (conta + 1 e ordinal + 1),
+     * de modo que nenhum valor real, inclusive a conta 0, coincida com ela.
+     */
+    private static final int ANY = 0;
+
+    private final Map<Rollup.Kind, Map<Long, Tree>> trees = new EnumMap<>(Rollup.Kind.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FenwickIndex() {
+        for (Rollup.Kind kind : Rollup.Kind.values())
+            trees.put(kind, new HashMap<>());
+    }
+
+    @Override
+    public void apply(Rollup.Kind kind, LedgerEntry before, LedgerEntry after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) add(kind, before, -before.getCents());
+            if (after != null) add(kind, after, after.getCents());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear(Rollup.Kind kind) {
+        lock.writeLock().lock();
+        try {
+            trees.get(kind).clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Soma os valores dos lançamentos de um intervalo de dias.
+     * @param kind natureza do lançamento.
+     * @param startDay dia inicial (inclusive), como dia da época.
+     * @param endDay dia final (inclusive), como dia da época.
+     * @param account conta (nula para todas).
+     * @param type posição ordinal do tipo (nula para todos).
+     * @return Retorna o somatório, em centavos.
+     */
+    public long sum(Rollup.Kind kind, long startDay, long endDay, Integer account, Integer type) {
+        lock.readLock().lock();
+        try {
+            Tree tree = trees.get(kind).get(key(account == null ? ANY : account + 1L, type == null ? ANY : type + 1));
+            return tree == null ? 0 : tree.range(startDay, endDay);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Rollup.Kind kind, LedgerEntry entry, long cents) {
+        Map<Long, Tree> byKey = trees.get(kind);
+        long account = entry.getAccount() + 1L;
+        int type = entry.getType() + 1;
+        for (long key : new long[]{key(account, type), key(account, ANY), key(ANY, type), key(ANY, ANY)})
+            byKey.computeIfAbsent(key, k -> new Tree()).add(entry.getEpochDay(), cents);
+    }
+
+    private static long key(long account, int type) {
+        return (account << 8) | type;
+    }
+
+    /**
+     * Árvore de Fenwick esparsa: os dias são divididos em blocos de 'BLOCK_DAYS' dias e apenas os blocos com
+     * lançamentos são alocados, cada um com a sua própria árvore. Uma segunda árvore, sobre a posição de cada
+     * bloco na ordem dos blocos alocados, guarda os totais dos blocos. A memória é proporcional à quantidade de
+     * blocos com lançamentos, e não à distância entre a menor e a maior data (uma data em 9999 não aloca os dias
+     * entre ela e as demais). Consultas e alterações custam O(log n); a criação de um bloco reconstrói a árvore
+     * dos totais em O(blocos).
+     */
+    static final class Tree {
+
+        private static final int BLOCK_DAYS = 256;
+        private static final int INITIAL_BLOCKS = 4;
+
+        /**
+         * Blocos alocados, em ordem crescente: número do bloco, árvore dos dias e total de cada um.
+         */
+        private int[] ids = new int[INITIAL_BLOCKS];
+        private long[][] blocks = new long[INITIAL_BLOCKS][];
+        private long[] totals = new long[INITIAL_BLOCKS];
+        private int count;
+
+        /**
+         * Árvore dos totais dos blocos, indexada pela posição do bloco (a partir de 1).
+         */
+        private long[] upper = new long[INITIAL_BLOCKS + 1];
+
+        void add(int day, long delta) {
+            int id = Math.floorDiv(day, BLOCK_DAYS);
+            int rank = Arrays.binarySearch(ids, 0, count, id);
+            if (rank < 0) rank = insert(-rank - 1, id);
+            long[] block = blocks[rank];
+            for (int i = Math.floorMod(day, BLOCK_DAYS) + 1; i <= BLOCK_DAYS; i += i & -i)
+                block[i] += delta;
+            totals[rank] += delta;
+            for (int i = rank + 1; i <= count; i += i & -i)
+                upper[i] += delta;
+        }
+
+        long range(long startDay, long endDay) {
+            if (count == 0 || endDay < startDay) return 0;
+            return prefix(endDay) - prefix(startDay - 1);
+        }
+
+        /**
+         * @return Retorna a quantidade de blocos alocados.
+         */
+        int blocks() {
+            return count;
+        }
+
+        /**
+         * @return Retorna a soma dos dias até 'day' (inclusive).
+         */
+        private long prefix(long day) {
+            long id = Math.floorDiv(day, BLOCK_DAYS);
+            int rank = id < Integer.MIN_VALUE ? -1 : id > Integer.MAX_VALUE ? -count - 1
+                    : Arrays.binarySearch(ids, 0, count, (int) id);
+            //blocos anteriores ao do dia, somados pela árvore dos totais
+            int before = rank < 0 ? -rank - 1 : rank;
+            long sum = 0;
+            for (int i = before; i > 0; i -= i & -i)
+                sum += upper[i];
+            if (rank >= 0) {
+                long[] block = blocks[rank];
+                for (int i = (int) Math.floorMod(day, (long) BLOCK_DAYS) + 1; i > 0; i -= i & -i)
+                    sum += block[i];
+            }
+            return sum;
+        }
+
+        /**
+         * Aloca um bloco na posição informada e reconstrói a árvore dos totais em O(blocos).
+         * @return Retorna a posição do bloco.
+         */
+        private int insert(int rank, int id) {
+            if (count == ids.length) {
+                int size = count * 2;
+                ids = Arrays.copyOf(ids, size);
+                blocks = Arrays.copyOf(blocks, size);
+                totals = Arrays.copyOf(totals, size);
+                upper = new long[size + 1];
+            }
+            System.arraycopy(ids, rank, ids, rank + 1, count - rank);
+            System.arraycopy(blocks, rank, blocks, rank + 1, count - rank);
+            System.arraycopy(totals, rank, totals, rank + 1, count - rank);
+            ids[rank] = id;
+            blocks[rank] = new long[BLOCK_DAYS + 1];
+            totals[rank] = 0;
+            count++;
+            Arrays.fill(upper, 0);
+            for (int i = 1; i <= count; i++) {
+                upper[i] += totals[i - 1];
+                int parent = i + (i & -i);
+                if (parent <= count) upper[parent] += upper[i];
+            }
+            return rank;
+        }
+
+    }
+
+}
@@ -0,0 +1,295 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.IdempotencyRecord;
+import br.dev.pubfuture.desafio.persistence.IdempotencyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.*;
+
+/**
+ * Registro das respostas das requisições enviadas com o cabeçalho 'Idempotency-Key'.
+ * As respostas ficam em um cache limitado em memória (W-TinyLFU) e na tabela 'idempotencia', ambos com o mesmo
+ * tempo de vida. Antes da execução, a chave é marcada na tabela, em transação própria e curta, como uma execução
+ * sem resposta; a resposta substitui a marcação ao final e uma execução sem resposta gravada (erro do servidor)
+ * remove a marcação. Uma marcação sem execução em andamento indica uma execução interrompida, cujo resultado é
+ * desconhecido: a chave não volta a ser executada ('INDETERMINATE'). Uma requisição com uma chave em execução
+ * aguarda a primeira e recebe a sua resposta, em vez de executar a operação novamente; se a primeira não gravar
+ * resposta, a que aguardava passa a executar. A coordenação das execuções é feita em memória, pois o banco de
+ * dados H2 em arquivo é exclusivo de uma única instância da aplicação.
+ */
+@Service
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    /**
+     * 'Status code' da marcação de uma execução sem resposta gravada.
+     */
+    private static final int PENDING = 0;
+
+    private final IdempotencyRepository idempotencyRepository;
+    private final Clock clock;
+    private final Duration ttl;
+
+    /**
+     * Tempo máximo de espera por uma execução em andamento, em nanossegundos.
+     */
+    private final long waitNanos;
+
+    private final Cache<String, IdempotencyRecord> cache;
+
+    /**
+     * Execuções em andamento por chave.
+     */
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService purger;
+
+    private final Counter replayed;
+    private final Counter executed;
+    private final Counter conflicts;
+
+    /**
+     * Método construtor do registro de idempotência.
+     * @param idempotencyRepository repositório da tabela 'idempotencia'.
+     * @param registry registro de métricas.
+     * @param maxSize quantidade máxima de respostas em memória.
+     * @param ttl tempo de vida de cada resposta.
+     * @param wait tempo máximo de espera por uma execução em andamento com a mesma chave.
+     * @param purgeInterval intervalo da remoção dos registros expirados da tabela.
+     */
+    @Autowired
+    public IdempotencyStore(IdempotencyRepository idempotencyRepository, MeterRegistry registry,
+                            @Value("${desafio.idempotency.max-size:10000}") long maxSize,
+                            @Value("${desafio.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${desafio.idempotency.wait:30s}") Duration wait,
+                            @Value("${desafio.idempotency.purge-interval:1h}") Duration purgeInterval) {
+        this(idempotencyRepository, registry, maxSize, ttl, wait, purgeInterval, Clock.systemUTC());
+    }
+
+    IdempotencyStore(IdempotencyRepository idempotencyRepository, MeterRegistry registry, long maxSize,
+                     Duration ttl, Duration wait, Duration purgeInterval, Clock clock) {
+        this.idempotencyRepository = idempotencyRepository;
+        this.clock = clock;
+        this.ttl = ttl;
+        this.waitNanos = wait.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "idempotency");
+        this.replayed = counter(registry, "replayed");
+        this.executed = counter(registry, "executed");
+        this.conflicts = counter(registry, "conflict");
+        this.purger = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "idempotency-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, purgeInterval.toMillis());
+        purger.scheduleWithFixedDelay(this::purge, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        purger.shutdownNow();
+    }
+
+    /**
+     * Inicia uma requisição com chave de idempotência.
+     * @param key chave informada pelo cliente.
+     * @param fingerprint resumo da requisição.
+     * @return Retorna a resposta gravada ('REPLAY'), a recusa por chave reutilizada em outra requisição
+     * ('MISMATCH'), por tempo de espera esgotado ('BUSY') ou por execução interrompida ('INDETERMINATE'), ou a
+     * autorização para executar ('EXECUTE'), que deve ser seguida de 'complete' ou 'abandon'.
+     * @throws org.springframework.dao.DataAccessException quando a marcação não puder ser gravada; a operação não
+     * deve ser executada.
+     */
+    public Outcome begin(String key, String fingerprint) throws InterruptedException {
+        long deadline = System.nanoTime() + waitNanos;
+        while (true) {
+            IdempotencyRecord stored = cache.getIfPresent(key);
+            if (stored != null) return replay(stored, fingerprint);
+            Flight flight = new Flight(fingerprint);
+            Flight running = inFlight.putIfAbsent(key, flight);
+            if (running == null) return start(key, fingerprint);
+            if (!running.fingerprint.equals(fingerprint)) return mismatch();
+            try {
+                stored = running.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                conflicts.increment();
+                return new Outcome(Outcome.Type.BUSY, null);
+            } catch (ExecutionException e) {
+                stored = null;
+            }
+            if (stored != null) return replay(stored, fingerprint);
+            //a execução anterior não gravou resposta: nova tentativa de executar
+        }
+    }
+
+    /**
+     * Grava a resposta de uma execução autorizada por 'begin', em transação própria, e a entrega às requisições
+     * que a aguardam.
+     * @param key chave informada pelo cliente.
+     * @param fingerprint resumo da requisição.
+     * @param status 'status code' da resposta.
+     * @param headers cabeçalhos da resposta, um por linha.
+     * @param body corpo da resposta.
+     * @throws org.springframework.dao.DataAccessException quando a gravação falhar; a execução é encerrada e a
+     * marcação permanece, de modo que as repetições recebem 'INDETERMINATE' em vez de executar novamente.
+     */
+    public void complete(String key, String fingerprint, int status, String headers, byte[] body) {
+        IdempotencyRecord record = new IdempotencyRecord(key, fingerprint, status, headers, body,
+                clock.instant().plus(ttl));
+        try {
+            idempotencyRepository.save(record);
+        } catch (RuntimeException e) {
+            release(key, null);
+            throw e;
+        }
+        cache.put(key, record);
+        executed.increment();
+        release(key, record);
+    }
+
+    /**
+     * Encerra uma execução autorizada por 'begin' sem gravar a resposta, removendo a marcação; uma requisição que
+     * a aguarda passa a executar.
+     * @param key chave informada pelo cliente.
+     */
+    public void abandon(String key) {
+        try {
+            idempotencyRepository.deleteById(key);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao remover a marcação da chave de idempotência {}.", key, e);
+        }
+        release(key, null);
+    }
+
+    /**
+     * Com a execução registrada em memória, consulta a tabela: uma resposta gravada é repetida e uma marcação
+     * indica uma execução interrompida. Sem registro, grava a marcação e autoriza a execução.
+     */
+    private Outcome start(String key, String fingerprint) {
+        Outcome outcome;
+        try {
+            IdempotencyRecord stored = lookup(key);
+            if (stored == null) {
+                idempotencyRepository.save(new IdempotencyRecord(key, fingerprint, PENDING, null, null,
+                        clock.instant().plus(ttl)));
+                return new Outcome(Outcome.Type.EXECUTE, null);
+            }
+            outcome = stored.getStatus() == PENDING ? indeterminate(stored, fingerprint)
+                    : replay(stored, fingerprint);
+        } catch (RuntimeException e) {
+            release(key, null);
+            throw e;
+        }
+        release(key, null);
+        return outcome;
+    }
+
+    /**
+     * Encerra a execução em memória, entregando a resposta (ou nulo) às requisições que a aguardam.
+     */
+    private void release(String key, IdempotencyRecord record) {
+        Flight flight = inFlight.remove(key);
+        if (flight != null) flight.result.complete(record);
+    }
+
+    /**
+     * Remove os registros expirados da tabela.
+     */
+    void purge() {
+        try {
+            int removed = idempotencyRepository.deleteExpired(clock.instant());
+            if (removed > 0) log.debug("{} respostas de idempotência expiradas removidas.", removed);
+        } catch (RuntimeException e) {
+            log.warn("Falha ao remover as respostas de idempotência expiradas.", e);
+        }
+    }
+
+    /**
+     * @return Retorna o registro da chave ainda não expirado; apenas as respostas são guardadas no cache.
+     */
+    private IdempotencyRecord lookup(String key) {
+        IdempotencyRecord stored = cache.getIfPresent(key);
+        if (stored != null) return stored;
+        stored = idempotencyRepository.findById(key)
+                .filter(record -> record.getExpiresAt().isAfter(clock.instant()))
+                .orElse(null);
+        if (stored != null && stored.getStatus() != PENDING) cache.put(key, stored);
+        return stored;
+    }
+
+    private Outcome indeterminate(IdempotencyRecord stored, String fingerprint) {
+        if (!stored.getFingerprint().equals(fingerprint)) return mismatch();
+        conflicts.increment();
+        return new Outcome(Outcome.Type.INDETERMINATE, null);
+    }
+
+    private Outcome replay(IdempotencyRecord stored, String fingerprint) {
+        if (!stored.getFingerprint().equals(fingerprint)) return mismatch();
+        replayed.increment();
+        return new Outcome(Outcome.Type.REPLAY, stored);
+    }
+
+    private Outcome mismatch() {
+        conflicts.increment();
+        return new Outcome(Outcome.Type.MISMATCH, null);
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("desafio.idempotency")
+                .description("Requisições com chave de idempotência")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * Resultado de 'begin' e, na repetição, a resposta gravada.
+     */
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
+    public static final class Outcome {
+
+        public enum Type {
+            EXECUTE,
+            REPLAY,
+            MISMATCH,
+            BUSY,
+            INDETERMINATE
+        }
+
+        private final Type type;
+        private final IdempotencyRecord record;
+    }
+
+    /**
+     * Execução em andamento: o resumo da requisição e a resposta, concluída com nulo quando não for gravada.
+     */
+    private static final class Flight {
+        final String fingerprint;
+        final CompletableFuture<IdempotencyRecord> result = new CompletableFuture<>();
+
+        Flight(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+
+}
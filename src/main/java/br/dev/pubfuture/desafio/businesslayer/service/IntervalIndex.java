@@ -0,0 +1,148 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Índice de intervalos fechados [início, fim] em uma árvore balanceada ('treap') ordenada pelo início, em que cada
+ * nó guarda o maior fim da sua subárvore. A consulta pelos intervalos que contêm um ponto descarta as subárvores
+ * cujo maior fim é anterior ao ponto e as subárvores à direita de um início posterior a ele, custando
+ * O(log n + k) para k intervalos encontrados. Não é 'thread-safe'.
+ * @param <K> tipo da chave associada a cada intervalo.
+ */
+final class IntervalIndex<K> {
+
+    private Node<K> root;
+    private long sequence;
+    private int size;
+
+    /**
+     * Inclui um intervalo; intervalos iguais são mantidos como nós distintos.
+     * @return Retorna o nó incluído, utilizado na sua remoção.
+     */
+    Node<K> add(long start, long end, K key) {
+        Node<K> node = new Node<>(start, end, key, ++sequence, ThreadLocalRandom.current().nextInt());
+        root = insert(root, node);
+        size++;
+        return node;
+    }
+
+    /**
+     * Remove um nó incluído anteriormente; a remoção de um nó ausente não tem efeito.
+     */
+    void remove(Node<K> node) {
+        if (node.removed) return;
+        node.removed = true;
+        root = delete(root, node);
+        size--;
+    }
+
+    /**
+     * Percorre as chaves dos intervalos que contêm o ponto.
+     */
+    void stab(long point, Consumer<K> action) {
+        stab(root, point, action);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static <K> void stab(Node<K> node, long point, Consumer<K> action) {
+        while (node != null && node.maxEnd >= point) {
+            stab(node.left, point, action);
+            if (node.start > point) return;
+            if (node.end >= point) action.accept(node.key);
+            node = node.right;
+        }
+    }
+
+    private static <K> Node<K> insert(Node<K> node, Node<K> added) {
+        if (node == null) return added;
+        if (added.compareTo(node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        node.update();
+        return node;
+    }
+
+    private static <K> Node<K> delete(Node<K> node, Node<K> removed) {
+        if (node == null) return null;
+        if (node == removed) return merge(node.left, node.right);
+        if (removed.compareTo(node) < 0) node.left = delete(node.left, removed);
+        else node.right = delete(node.right, removed);
+        node.update();
+        return node;
+    }
+
+    private static <K> Node<K> merge(Node<K> left, Node<K> right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static <K> Node<K> rotateRight(Node<K> node) {
+        Node<K> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        return left;
+    }
+
+    private static <K> Node<K> rotateLeft(Node<K> node) {
+        Node<K> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        return right;
+    }
+
+    /**
+     * Nó da árvore, ordenado pelo início e, nos empates, pela ordem de inclusão.
+     */
+    static final class Node<K> implements Comparable<Node<K>> {
+        final long start;
+        final long end;
+        final K key;
+        final long sequence;
+        final int priority;
+        long maxEnd;
+        boolean removed;
+        Node<K> left;
+        Node<K> right;
+
+        Node(long start, long end, K key, long sequence, int priority) {
+            this.start = start;
+            this.end = end;
+            this.key = key;
+            this.sequence = sequence;
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+
+        void update() {
+            long max = end;
+            if (left != null && left.maxEnd > max) max = left.maxEnd;
+            if (right != null && right.maxEnd > max) max = right.maxEnd;
+            maxEnd = max;
+        }
+
+        @Override
+        public int compareTo(Node<K> other) {
+            int byStart = Long.compare(start, other.start);
+            return byStart != 0 ? byStart : Long.compare(sequence, other.sequence);
+        }
+    }
+
+}
@@ -0,0 +1,266 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import br.dev.pubfuture.desafio.persistence.DespesaRepository;
+import br.dev.pubfuture.desafio.persistence.ReceitaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Distribuidor das alterações de receitas e despesas às projeções mantidas em memória ('LedgerProjection').
+ * Na inicialização as projeções são carregadas percorrendo as tabelas por cursor; a partir daí cada gravação e
+ * remoção das camadas de serviço é entregue a todas as projeções após o 'commit' da respectiva transação.
+ * Cada transação recebe um número de sequência no início do seu 'commit' ('beforeCommit') e as entregas são
+ * feitas na ordem desses números: uma entrega aguarda apenas as transações que já iniciaram o 'commit', e não as
+ * que ainda estão em andamento, e as de transações desfeitas são descartadas. Como as camadas de serviço leem o
+ * registro anterior com o registro travado até o 'commit', as alterações de um mesmo registro recebem números na
+ * ordem dos 'commits'.
+ * As projeções são executadas por uma única 'thread' de entrega, fora do monitor da sequência; a 'thread' que
+ * confirma a transação apenas registra a entrega e aguarda, por tempo limitado, que ela seja aplicada, de modo
+ * que a própria requisição observe a alteração nas leituras seguintes.
+ */
+@Component
+public class Ledger {
+
+    private static final Logger log = LoggerFactory.getLogger(Ledger.class);
+
+    /**
+     * Entrega vazia, registrada no lugar das publicações de transações desfeitas.
+     */
+    private static final Runnable DISCARDED = () -> { };
+
+    /**
+     * Tempo máximo, em milissegundos, que a 'thread' que confirma a transação aguarda a sua entrega.
+     */
+    private static final long AWAIT_MILLIS = 5000;
+
+    private final ReceitaRepository receitaRepository;
+    private final DespesaRepository despesaRepository;
+    private final List<LedgerProjection> projections;
+
+    /**
+     * Transação somente leitura utilizada na carga.
+     */
+    private final TransactionTemplate readOnly;
+
+    /**
+     * Contexto de persistência, utilizado para desanexar as entidades percorridas na carga.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Último número de sequência reservado, último enviado à 'thread' de entrega e último entregue, e as entregas
+     * prontas aguardando as anteriores, protegidos por 'order'.
+     */
+    private final Object order = new Object();
+    private long reserved;
+    private long dispatched;
+    private long delivered;
+    private final Map<Long, Runnable> ready = new HashMap<>();
+
+    /**
+     * 'Thread' única de entrega: as entregas são executadas na ordem em que são enviadas.
+     */
+    private final ExecutorService deliveries = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ledger-delivery");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Método construtor do distribuidor.
+     * @param receitaRepository repositório de receitas.
+     * @param despesaRepository repositório de despesas.
+     * @param projections projeções registradas no contexto do Spring.
+     * @param transactionManager gerenciador de transações do Spring.
+     */
+    @Autowired
+    public Ledger(ReceitaRepository receitaRepository, DespesaRepository despesaRepository,
+                  List<LedgerProjection> projections, PlatformTransactionManager transactionManager) {
+        this.receitaRepository = receitaRepository;
+        this.despesaRepository = despesaRepository;
+        this.projections = projections;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /**
+     * Carrega todas as projeções a partir das tabelas 'receita' e 'despesa'.
+     */
+    @PostConstruct
+    public void load() {
+        readOnly.executeWithoutResult(status -> {
+            for (LedgerProjection projection : projections) {
+                projection.clear(Rollup.Kind.RECEITA);
+                projection.clear(Rollup.Kind.DESPESA);
+            }
+            try (Stream<Receita> receitas = receitaRepository.streamAll()) {
+                receitas.forEach(receita -> {
+                    deliver(Rollup.Kind.RECEITA, null, LedgerEntry.of(receita));
+                    entityManager.detach(receita);
+                });
+            }
+            try (Stream<Despesa> despesas = despesaRepository.streamAll()) {
+                despesas.forEach(despesa -> {
+                    deliver(Rollup.Kind.DESPESA, null, LedgerEntry.of(despesa));
+                    entityManager.detach(despesa);
+                });
+            }
+        });
+    }
+
+    /**
+     * Publica uma alteração, entregue às projeções após o 'commit' da transação corrente, na ordem dos
+     * 'commits'.
+     * @param kind natureza do lançamento.
+     * @param before lançamento anterior (nulo em uma inclusão).
+     * @param after lançamento novo (nulo em uma remoção).
+     */
+    public void publish(Rollup.Kind kind, LedgerEntry before, LedgerEntry after) {
+        if (before == null && after == null) return;
+        sequence(() -> deliver(kind, before, after));
+    }
+
+    /**
+     * Publica um lote de alterações com uma única sincronização de transação.
+     * @param kind natureza do lançamento.
+     * @param before lançamentos anteriores (elementos nulos nas inclusões).
+     * @param after lançamentos novos, na mesma posição dos anteriores.
+     */
+    public void publishAll(Rollup.Kind kind, List<LedgerEntry> before, List<LedgerEntry> after) {
+        if (after.isEmpty()) return;
+        sequence(() -> {
+            for (int i = 0; i < after.size(); i++)
+                deliver(kind, before.get(i), after.get(i));
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        deliveries.shutdown();
+    }
+
+    /**
+     * Registra a entrega para o término da transação corrente: o número de sequência é reservado no início do
+     * 'commit' e a entrega é descartada se a transação for desfeita. Sem transação ativa, a entrega é imediata.
+     * @param delivery entrega às projeções.
+     */
+    private void sequence(Runnable delivery) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            long sequence = reserve();
+            complete(sequence, delivery);
+            await(sequence);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long sequence;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                sequence = reserve();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                //desfeita antes do 'commit': nenhum número reservado
+                if (sequence == 0) return;
+                complete(sequence, status == STATUS_COMMITTED ? delivery : DISCARDED);
+                if (status == STATUS_COMMITTED) await(sequence);
+            }
+        });
+    }
+
+    private long reserve() {
+        synchronized (order) {
+            return ++reserved;
+        }
+    }
+
+    /**
+     * Marca um número de sequência como concluído e envia à 'thread' de entrega, em ordem, as entregas cujos
+     * números anteriores já foram todos concluídos.
+     */
+    private void complete(long sequence, Runnable delivery) {
+        synchronized (order) {
+            ready.put(sequence, delivery);
+            Runnable next;
+            while ((next = ready.remove(dispatched + 1)) != null) {
+                long number = ++dispatched;
+                Runnable task = next;
+                try {
+                    deliveries.execute(() -> run(number, task));
+                } catch (RejectedExecutionException e) {
+                    //aplicação em encerramento: a entrega é feita pela própria 'thread'
+                    run(number, task);
+                }
+            }
+        }
+    }
+
+    /**
+     * Executa uma entrega na 'thread' de entrega e avisa as 'threads' que a aguardam.
+     */
+    private void run(long sequence, Runnable delivery) {
+        try {
+            delivery.run();
+        } catch (RuntimeException e) {
+            //uma projeção com falha não impede as entregas seguintes
+            log.error("Falha ao entregar a alteração {} às projeções.", sequence, e);
+        } finally {
+            synchronized (order) {
+                delivered = sequence;
+                order.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Aguarda, por tempo limitado, a entrega de um número de sequência; esgotado o tempo, a entrega segue
+     * pendente e é aplicada assim que as anteriores forem concluídas.
+     */
+    private void await(long sequence) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AWAIT_MILLIS);
+        synchronized (order) {
+            try {
+                while (delivered < sequence) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        log.warn("Alteração {} ainda não entregue às projeções após {} ms.", sequence, AWAIT_MILLIS);
+                        return;
+                    }
+                    order.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void deliver(Rollup.Kind kind, LedgerEntry before, LedgerEntry after) {
+        if (before == null && after == null) return;
+        for (LedgerProjection projection : projections)
+            projection.apply(kind, before, after);
+    }
+
+}
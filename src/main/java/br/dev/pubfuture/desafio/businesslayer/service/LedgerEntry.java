@@ -0,0 +1,43 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Representação compacta de um lançamento (receita ou despesa) entregue às projeções mantidas em memória:
+ * apenas os campos utilizados nos índices, com a data como dia da época ('epoch day') e o tipo como a posição
+ * ordinal da constante.
+ */
+@Getter
+@AllArgsConstructor
+public final class LedgerEntry {
+
+    private final long id;
+    private final int epochDay;
+    private final long cents;
+    private final int type;
+    private final int account;
+
+    /**
+     * @param receita receita de origem (pode ser nula).
+     * @return Retorna o lançamento correspondente ou nulo quando a receita for nula ou não possuir data ou tipo.
+     */
+    public static LedgerEntry of(Receita receita) {
+        if (receita == null || receita.getReceivingDate() == null || receita.getTypeOfRevenue() == null) return null;
+        return new LedgerEntry(receita.getId(), (int) receita.getReceivingDate().toEpochDay(), receita.getValue(),
+                receita.getTypeOfRevenue().ordinal(), receita.getAccount());
+    }
+
+    /**
+     * @param despesa despesa de origem (pode ser nula).
+     * @return Retorna o lançamento correspondente ou nulo quando a despesa for nula ou não possuir data ou tipo.
+     */
+    public static LedgerEntry of(Despesa despesa) {
+        if (despesa == null || despesa.getPayday() == null || despesa.getTypeOfExpense() == null) return null;
+        return new LedgerEntry(despesa.getId(), (int) despesa.getPayday().toEpochDay(), despesa.getValue(),
+                despesa.getTypeOfExpense().ordinal(), despesa.getAccount());
+    }
+
+}
@@ -0,0 +1,27 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+
+/**
+ * Projeção em memória dos lançamentos, mantida pelo componente 'Ledger'.
+ * As implementações recebem cada alteração confirmada como o par (anterior, novo): uma inclusão não possui
+ * anterior e uma remoção não possui novo. As alterações são entregues uma de cada vez, na ordem em que foram
+ * publicadas; as alterações de um mesmo registro chegam na ordem dos 'commits' ('Ledger').
+ */
+public interface LedgerProjection {
+
+    /**
+     * Aplica uma alteração confirmada.
+     * @param kind natureza do lançamento.
+     * @param before lançamento anterior (nulo em uma inclusão).
+     * @param after lançamento novo (nulo em uma remoção).
+     */
+    void apply(Rollup.Kind kind, LedgerEntry before, LedgerEntry after);
+
+    /**
+     * Descarta o conteúdo da projeção para uma natureza de lançamento, antes da sua carga.
+     * @param kind natureza do lançamento.
+     */
+    void clear(Rollup.Kind kind);
+
+}
@@ -0,0 +1,94 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import java.util.Arrays;
+
+/**
+ * Mapa de 'long' para 'int' com endereçamento aberto e sondagem linear, sem 'boxing' e sem um objeto por
+ * entrada. A chave 0 é reservada para as posições vazias (os 'id' gerados começam em 1).
+ */
+final class LongIntMap {
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntMap() {
+        keys = new long[16];
+        values = new int[16];
+    }
+
+    /**
+     * @return Retorna o valor associado à chave ou -1 quando ela não existir.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask)
+            if (keys[i] == key) return values[i];
+        return -1;
+    }
+
+    void put(long key, int value) {
+        if (key == 0) throw new IllegalArgumentException("Chave 0 reservada.");
+        if ((size + 1) * 4 > keys.length * 3) resize(keys.length * 2);
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    /**
+     * Remove a chave, deslocando para trás as entradas seguintes da mesma sequência de sondagem, de modo que
+     * nenhuma marca de remoção seja necessária.
+     */
+    void remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        //posição vazia: a chave não existe (inclusive a chave 0, reservada)
+        if (keys[i] == 0) return;
+        keys[i] = 0;
+        size--;
+        for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j], mask);
+            boolean movable = j > i ? (home <= i || home > j) : (home <= i && home > j);
+            if (movable) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                keys[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != 0) put(oldKeys[i], oldValues[i]);
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+}
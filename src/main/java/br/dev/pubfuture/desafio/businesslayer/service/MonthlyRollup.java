@@ -0,0 +1,229 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import br.dev.pubfuture.desafio.persistence.RollupRepository;
+import br.dev.pubfuture.desafio.persistence.RollupTotal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Manutenção incremental do resumo mensal (tabela 'resumo_mensal') de receitas e despesas.
+ * As camadas de serviço acumulam as diferenças de cada operação em um objeto 'Delta' e as aplicam na própria
+ * transação da operação, de modo que o resumo é confirmado ou desfeito junto com os lançamentos. Os relatórios
+ * mensais e anuais leem apenas o resumo, uma linha por mês, conta e tipo.
+ * A reconstrução de uma natureza de lançamento exclui as diferenças dessa natureza: cada transação que aplica
+ * diferenças mantém um bloqueio compartilhado até o seu término e a reconstrução, um bloqueio exclusivo.
+ */
+@Component
+public class MonthlyRollup {
+
+    /**
+     * Ordem de aplicação das diferenças, sempre a mesma, a fim de evitar 'deadlocks' entre transações que
+     * alteram os mesmos registros do resumo.
+     */
+    private static final Comparator<Rollup.Key> ORDER = Comparator.comparing(Rollup.Key::getKind)
+            .thenComparingInt(Rollup.Key::getYearMonth)
+            .thenComparingInt(Rollup.Key::getAccount)
+            .thenComparing(Rollup.Key::getType);
+
+    /**
+     * Criação de um registro do resumo já com a diferença, caso ainda não exista.
+     */
+    private static final String INSERT_IF_ABSENT = "INSERT INTO resumo_mensal "
+            + "(lancamento, mes, conta, tipo, total, qtd) SELECT ?, ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS "
+            + "(SELECT 1 FROM resumo_mensal WHERE lancamento = ? AND mes = ? AND conta = ? AND tipo = ?)";
+
+    /**
+     * Bloqueios por natureza de lançamento: compartilhado entre as transações que aplicam diferenças e exclusivo
+     * da reconstrução, ambos mantidos até o término da transação.
+     */
+    private final Map<Rollup.Kind, ReadWriteLock> locks = new EnumMap<>(Rollup.Kind.class);
+
+    /**
+     * Instanciação do objeto do repositório 'RollupRepository'.
+     */
+    private final RollupRepository rollupRepository;
+
+    /**
+     * Acesso JDBC utilizado na criação dos registros do resumo; dentro de uma transação do JPA, a mesma conexão é
+     * utilizada.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Método construtor do resumo mensal.
+     * @param rollupRepository repositório do resumo.
+     * @param dataSource conexão com o banco de dados.
+     */
+    @Autowired
+    public MonthlyRollup(RollupRepository rollupRepository, DataSource dataSource) {
+        this.rollupRepository = rollupRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        for (Rollup.Kind kind : Rollup.Kind.values())
+            locks.put(kind, new ReentrantReadWriteLock());
+    }
+
+    /**
+     * @param kind natureza dos lançamentos.
+     * @return Retorna um acumulador de diferenças vazio.
+     */
+    public Delta delta(Rollup.Kind kind) {
+        return new Delta(kind);
+    }
+
+    /**
+     * Reconstrói o resumo de uma natureza de lançamento a partir da tabela de origem, para carga inicial ou
+     * correção. A reconstrução aguarda o término das transações que já aplicaram diferenças dessa natureza, cujos
+     * lançamentos passam a constar da tabela de origem, e as que aplicarem diferenças depois dela aguardam o seu
+     * término, somando-as ao resumo reconstruído.
+     * @param kind natureza dos lançamentos.
+     * @return Retorna a quantidade de registros do resumo reconstruídos.
+     */
+    @Transactional
+    public int rebuild(Rollup.Kind kind) {
+        return holding(locks.get(kind).writeLock(), () -> {
+            rollupRepository.deleteKind(kind.name());
+            return kind == Rollup.Kind.RECEITA ? rollupRepository.rebuildReceitas()
+                    : rollupRepository.rebuildDespesas();
+        });
+    }
+
+    /**
+     * @param kind natureza dos lançamentos.
+     * @param year ano desejado.
+     * @return Retorna os totais de cada mês do ano que possua lançamentos.
+     */
+    public List<RollupTotal> monthly(Rollup.Kind kind, int year) {
+        return rollupRepository.monthly(kind.name(), year * 100 + 1, year * 100 + 12);
+    }
+
+    /**
+     * @param kind natureza dos lançamentos.
+     * @param from ano inicial (opcional).
+     * @param to ano final (opcional).
+     * @return Retorna os totais de cada ano do intervalo que possua lançamentos.
+     */
+    public List<RollupTotal> yearly(Rollup.Kind kind, Integer from, Integer to) {
+        int start = from == null ? Periods.MIN.getYear() : from;
+        int end = to == null ? Periods.MAX.getYear() : to;
+        return rollupRepository.yearly(kind.name(), start * 100 + 1, end * 100 + 12);
+    }
+
+    /**
+     * Acumula a diferença em um registro do resumo, criando-o já com a diferença quando ainda não existir.
+     * Tudo ocorre na transação do lançamento, sem ocupar uma segunda conexão do 'pool'. Se outra transação criar
+     * o mesmo registro ao mesmo tempo, a violação da chave primária desfaz apenas a inserção (o H2 desfaz o
+     * comando, não a transação) e o acúmulo segue sobre o registro criado por ela. A inserção é feita via JDBC,
+     * fora do 'proxy' transacional do repositório, para que a exceção tratada não marque a transação para
+     * 'rollback'.
+     */
+    private void increment(Rollup.Key key, long total, long quantity) {
+        String kind = key.getKind().name();
+        if (rollupRepository.increment(kind, key.getYearMonth(), key.getAccount(), key.getType(), total, quantity) > 0)
+            return;
+        try {
+            if (jdbcTemplate.update(INSERT_IF_ABSENT, kind, key.getYearMonth(), key.getAccount(), key.getType(), total,
+                    quantity, kind, key.getYearMonth(), key.getAccount(), key.getType()) > 0)
+                return;
+        } catch (DuplicateKeyException e) {
+            //registro criado concorrentemente
+        }
+        rollupRepository.increment(kind, key.getYearMonth(), key.getAccount(), key.getType(), total, quantity);
+    }
+
+    /**
+     * Executa a ação com o bloqueio, mantido até o término da transação corrente ou, sem transação, até o fim da
+     * ação.
+     */
+    private static <T> T holding(Lock lock, Supplier<T> action) {
+        lock.lock();
+        boolean deferred = false;
+        try {
+            deferred = AfterCommit.afterCompletion(lock::unlock);
+            return action.get();
+        } finally {
+            if (!deferred) lock.unlock();
+        }
+    }
+
+    /**
+     * Acumulador das diferenças de uma operação (ou de um lote), agrupadas por registro do resumo, de modo que
+     * cada registro afetado recebe uma única instrução 'UPDATE'. Uma alteração que move um lançamento de mês,
+     * de conta ou de tipo resulta na remoção do registro anterior e na adição ao novo.
+     */
+    public final class Delta {
+
+        private final Rollup.Kind kind;
+        private final Map<Rollup.Key, long[]> changes = new TreeMap<>(ORDER);
+
+        private Delta(Rollup.Kind kind) {
+            this.kind = kind;
+        }
+
+        /**
+         * Adiciona um lançamento ao resumo.
+         * @param date data do lançamento.
+         * @param account conta do lançamento.
+         * @param type tipo de receita ou de despesa.
+         * @param value valor, em centavos.
+         * @return Retorna o próprio acumulador.
+         */
+        public Delta add(LocalDate date, int account, Enum<?> type, long value) {
+            return change(date, account, type, value, 1);
+        }
+
+        /**
+         * Remove um lançamento do resumo.
+         * @param date data do lançamento.
+         * @param account conta do lançamento.
+         * @param type tipo de receita ou de despesa.
+         * @param value valor, em centavos.
+         * @return Retorna o próprio acumulador.
+         */
+        public Delta remove(LocalDate date, int account, Enum<?> type, long value) {
+            return change(date, account, type, -value, -1);
+        }
+
+        /**
+         * Aplica as diferenças acumuladas na transação corrente, ignorando as que se anulam. Enquanto houver uma
+         * reconstrução da mesma natureza em andamento, aguarda o seu término.
+         */
+        public void apply() {
+            if (changes.isEmpty()) return;
+            holding(locks.get(kind).readLock(), () -> {
+                for (Map.Entry<Rollup.Key, long[]> change : changes.entrySet()) {
+                    long[] sums = change.getValue();
+                    if (sums[0] != 0 || sums[1] != 0) increment(change.getKey(), sums[0], sums[1]);
+                }
+                return null;
+            });
+            changes.clear();
+        }
+
+        private Delta change(LocalDate date, int account, Enum<?> type, long total, long quantity) {
+            //lançamentos sem data ou tipo ficam fora do resumo, assim como na reconstrução
+            if (date == null || type == null) return this;
+            Rollup.Key key = new Rollup.Key(kind, date.getYear() * 100 + date.getMonthValue(), account, type.name());
+            long[] sums = changes.computeIfAbsent(key, k -> new long[2]);
+            sums[0] += total;
+            sums[1] += quantity;
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * Leitura incremental de um extrato em OFX, nas versões SGML (1.x, elementos sem marcação de fim) e XML (2.x).
+ * O conteúdo é percorrido marcação a marcação e cada transação (STMTTRN) gera um lançamento com a data
+ * (DTPOSTED), o valor (TRNAMT) e a descrição (MEMO ou, na sua ausência, NAME). O tamanho de cada marcação e de
+ * cada texto é limitado ('MAX_TEXT'), de modo que a memória utilizada não depende do arquivo. O cabeçalho e as
+ * demais marcações são ignorados; a conta e o tipo ficam a cargo de quem importa o extrato.
+ */
+final class OfxStatementParser implements StatementParser {
+
+    /**
+     * Tamanho máximo do texto de um elemento, em caracteres; o excedente é descartado.
+     */
+    static final int MAX_TEXT = 4 * 1024;
+
+    private final Reader reader;
+    private final StringBuilder tag = new StringBuilder();
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Caractere já lido e ainda não processado (-2 quando não houver).
+     */
+    private int pending = -2;
+    private long line = 1;
+
+    /**
+     * Transação em leitura.
+     */
+    private boolean inTransaction;
+    private long transactionLine;
+    private String date;
+    private String amount;
+    private String memo;
+    private String name;
+
+    /**
+     * @param reader conteúdo do arquivo; convém que seja 'buffered', pois é lido caractere a caractere.
+     */
+    OfxStatementParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public StatementLine next() throws IOException {
+        int c = pending == -2 ? read() : pending;
+        pending = -2;
+        while (c >= 0) {
+            if (c != '<') {
+                c = read();
+                continue;
+            }
+            String element = readTag();
+            long elementLine = line;
+            c = readText();
+            StatementLine statementLine = element(element, text.toString().trim(), elementLine);
+            if (statementLine != null) {
+                pending = c;
+                return statementLine;
+            }
+        }
+        if (inTransaction) {
+            inTransaction = false;
+            return StatementLine.error(transactionLine, "Transação (STMTTRN) não encerrada.");
+        }
+        return null;
+    }
+
+    /**
+     * Trata uma marcação e o texto que a segue.
+     * @return Retorna o lançamento quando a marcação encerrar uma transação.
+     */
+    private StatementLine element(String element, String value, long elementLine) {
+        switch (element) {
+            case "STMTTRN":
+                inTransaction = true;
+                transactionLine = elementLine;
+                date = amount = memo = name = null;
+                return null;
+            case "/STMTTRN":
+                if (!inTransaction) return null;
+                inTransaction = false;
+                return transaction();
+            default:
+        }
+        if (!inTransaction || value.isEmpty()) return null;
+        switch (element) {
+            case "DTPOSTED": date = value; break;
+            case "TRNAMT": amount = value; break;
+            case "MEMO": memo = unescape(value); break;
+            case "NAME": name = unescape(value); break;
+            default: //demais elementos são ignorados
+        }
+        return null;
+    }
+
+    private StatementLine transaction() {
+        if (date == null || amount == null)
+            return StatementLine.error(transactionLine, "Transação sem DTPOSTED ou TRNAMT.");
+        try {
+            //AAAAMMDD[HHMMSS[.XXX]][[gmt:tz]]
+            if (date.length() < 8) throw new IllegalArgumentException("Data inválida: " + date);
+            return new StatementLine(transactionLine, StatementParser.parseDate(date.substring(0, 8)),
+                    StatementParser.parseCents(amount), memo != null ? memo : name, null, null, null);
+        } catch (IllegalArgumentException e) {
+            return StatementLine.error(transactionLine, e.getMessage());
+        }
+    }
+
+    /**
+     * Substitui as entidades predefinidas do XML (OFX 2.x); no SGML, o '&' sem entidade é mantido.
+     */
+    static String unescape(String value) {
+        if (value.indexOf('&') < 0) return value;
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    /**
+     * Lê o nome da marcação (após '<') até '>', em maiúsculas.
+     */
+    private String readTag() throws IOException {
+        tag.setLength(0);
+        int c;
+        boolean attributes = false;
+        while ((c = read()) >= 0 && c != '>') {
+            //atributos (XML) são ignorados
+            if (Character.isWhitespace(c)) attributes |= tag.length() > 0;
+            else if (!attributes && tag.length() < MAX_TEXT) tag.append((char) c);
+        }
+        return tag.toString().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Lê o texto até a próxima marcação; nos elementos SGML, sem marcação de fim, o texto termina na marcação
+     * seguinte.
+     * @return Retorna o caractere que encerrou o texto ('<') ou -1 no fim do arquivo.
+     */
+    private int readText() throws IOException {
+        text.setLength(0);
+        int c;
+        while ((c = read()) >= 0 && c != '<') {
+            if (text.length() < MAX_TEXT) text.append((char) c);
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        int c = reader.read();
+        if (c == '\n') line++;
+        return c;
+    }
+
+}
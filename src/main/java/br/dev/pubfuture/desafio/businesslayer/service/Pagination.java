@@ -0,0 +1,40 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limites das listagens paginadas, impostos pelo servidor independentemente do que o cliente solicitar.
+ */
+@Component
+public class Pagination {
+
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public Pagination(@Value("${desafio.pagination.default-limit:100}") int defaultLimit,
+                      @Value("${desafio.pagination.max-limit:1000}") int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.defaultLimit = Math.min(Math.max(1, defaultLimit), this.maxLimit);
+    }
+
+    /**
+     * @param requested tamanho de página solicitado (nulo para o padrão).
+     * @return Retorna o tamanho de página efetivo, limitado ao máximo configurado.
+     */
+    public int limit(Integer requested) {
+        if (requested == null || requested < 1) return defaultLimit;
+        return Math.min(requested, maxLimit);
+    }
+
+    /**
+     * @param limit tamanho de página efetivo.
+     * @return Retorna a requisição da primeira página com um registro além do limite (sem OFFSET).
+     */
+    public Pageable lookahead(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+}
@@ -0,0 +1,130 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Atualização parcial de um registro em um único comando SQL: apenas as colunas dos campos informados são
+ * alteradas e a linha anterior é lida do próprio comando ('SELECT ... FROM OLD TABLE (UPDATE ... WHERE id = ?)',
+ * tabela de alterações do H2), em vez da consulta prévia, da consulta do 'merge' do JPA e da atualização de todas
+ * as colunas. O registro atualizado é montado a partir do anterior e dos campos informados; a ausência de linha
+ * indica que o registro não existe.
+ * Os campos aceitos formam uma lista fechada, de modo que os nomes das colunas nunca vêm da requisição.
+ * @param <T> entidade atualizada.
+ */
+final class PartialUpdate<T> {
+
+    private final String table;
+    private final RowMapper<T> rowMapper;
+    private final Map<String, Column<T>> columns = new LinkedHashMap<>();
+
+    /**
+     * @param table nome da tabela.
+     * @param rowMapper leitura de uma linha com a coluna 'id' e todas as colunas registradas.
+     */
+    PartialUpdate(String table, RowMapper<T> rowMapper) {
+        this.table = table;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * Registra um campo atualizável.
+     * @param field nome do campo na API.
+     * @param column nome da coluna.
+     * @param parameter valor do campo a ser gravado na coluna.
+     * @param copy cópia do campo de um registro (segundo argumento) para outro (primeiro argumento).
+     * @return Retorna esta atualização.
+     */
+    PartialUpdate<T> column(String field, String column, Function<T, Object> parameter, BiConsumer<T, T> copy) {
+        columns.put(field, new Column<>(column, parameter, copy));
+        return this;
+    }
+
+    /**
+     * @return Retorna os nomes dos campos atualizáveis, na ordem de registro.
+     */
+    Set<String> fields() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    /**
+     * Executa a atualização parcial.
+     * @param jdbcTemplate acesso ao banco de dados; dentro de uma transação do JPA, a mesma conexão é utilizada.
+     * @param id 'id' do registro.
+     * @param values registro com os novos valores dos campos informados (os demais são ignorados).
+     * @param fields campos a serem atualizados, não vazio.
+     * @return Retorna o registro anterior e o atualizado, ou nulo quando o registro não existir.
+     * @throws IllegalArgumentException quando um campo não for atualizável ou nenhum campo for informado.
+     */
+    Change<T> apply(JdbcTemplate jdbcTemplate, long id, T values, Set<String> fields) {
+        if (fields.isEmpty()) throw new IllegalArgumentException("Nenhum campo informado.");
+        StringJoiner assignments = new StringJoiner(", ");
+        List<Object> parameters = new ArrayList<>(fields.size() + 1);
+        List<Column<T>> updated = new ArrayList<>(fields.size());
+        for (Map.Entry<String, Column<T>> entry : columns.entrySet()) {
+            if (!fields.contains(entry.getKey())) continue;
+            Column<T> column = entry.getValue();
+            assignments.add(column.name + " = ?");
+            parameters.add(column.parameter.apply(values));
+            updated.add(column);
+        }
+        if (updated.size() != fields.size())
+            throw new IllegalArgumentException("Campo não atualizável: " + fields);
+        parameters.add(id);
+        ResultSetExtractor<Change<T>> extractor = rs -> {
+            if (!rs.next()) return null;
+            T before = rowMapper.mapRow(rs, 0);
+            T after = rowMapper.mapRow(rs, 0);
+            for (Column<T> column : updated)
+                column.copy.accept(after, values);
+            return new Change<>(before, after);
+        };
+        return jdbcTemplate.query(select() + " FROM OLD TABLE (UPDATE " + table + " SET " + assignments
+                + " WHERE id = ?)", extractor, parameters.toArray());
+    }
+
+    /**
+     * @param value constante (pode ser nula).
+     * @return Retorna o nome da constante, gravado nas colunas '@Enumerated(EnumType.STRING)'.
+     */
+    static String name(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    private String select() {
+        StringJoiner select = new StringJoiner(", ", "SELECT id, ", "");
+        for (Column<T> column : columns.values())
+            select.add(column.name);
+        return select.toString();
+    }
+
+    /**
+     * Registro anterior e atualizado.
+     */
+    @Getter
+    @AllArgsConstructor
+    static final class Change<T> {
+        private final T before;
+        private final T after;
+    }
+
+    @AllArgsConstructor
+    private static final class Column<T> {
+        final String name;
+        final Function<T, Object> parameter;
+        final BiConsumer<T, T> copy;
+    }
+
+}
@@ -0,0 +1,24 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import java.time.LocalDate;
+
+/**
+ * Limites utilizados quando um intervalo de datas opcional é informado pela metade ou não é informado.
+ */
+final class Periods {
+
+    static final LocalDate MIN = LocalDate.of(1900, 1, 1);
+    static final LocalDate MAX = LocalDate.of(9999, 12, 31);
+
+    private Periods() {
+    }
+
+    static LocalDate start(LocalDate start) {
+        return start == null ? MIN : start;
+    }
+
+    static LocalDate end(LocalDate end) {
+        return end == null ? MAX : end;
+    }
+
+}
@@ -0,0 +1,141 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Cache dos resultados das consultas por intervalo de datas, com chave (início, fim).
+ * Cada intervalo em cache é registrado em um índice de intervalos ('IntervalIndex'); uma gravação confirmada,
+ * recebida como projeção do 'Ledger', invalida apenas os intervalos que contêm a data anterior ou a nova do
+ * lançamento. A memória é limitada pela quantidade total de registros em cache ('maximumWeight').
+ * O registro no índice ocorre dentro da carga atômica do Caffeine, antes da consulta, de modo que uma
+ * invalidação concorrente aguarda a carga e descarta o seu resultado.
+ * @param <T> tipo da entidade.
+ */
+public class RangeQueryCache<T> implements LedgerProjection {
+
+    private final Rollup.Kind kind;
+
+    private final Cache<Range, Result<T>> cache;
+
+    /**
+     * Índice dos intervalos em cache, protegido pelo seu próprio monitor.
+     */
+    private final IntervalIndex<Range> index = new IntervalIndex<>();
+
+    /**
+     * @param kind natureza dos lançamentos cujas alterações invalidam o cache.
+     * @param name nome do cache nas métricas.
+     * @param maxRows quantidade máxima de registros somando todos os intervalos em cache.
+     * @param ttl tempo de vida de cada intervalo após a carga.
+     * @param registry registro de métricas.
+     */
+    public RangeQueryCache(Rollup.Kind kind, String name, long maxRows, Duration ttl, MeterRegistry registry) {
+        this.kind = kind;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxRows)
+                .weigher((Range range, Result<T> result) -> result.rows.size() + 1)
+                .expireAfterWrite(ttl)
+                .executor(Runnable::run)
+                .removalListener((Range range, Result<T> result, RemovalCause cause) -> {
+                    if (result != null) unregister(result.node);
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        Gauge.builder("desafio.range.cache.intervals", index, IntervalIndex::size)
+                .description("Intervalos registrados no índice do cache")
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    /**
+     * @param start data inicial.
+     * @param end data final.
+     * @param loader consulta ao banco de dados, executada apenas na ausência do intervalo no cache.
+     * @return Retorna a coleção (imutável) do cache ou carregada pela consulta. Consultas sem uma das datas não
+     * são guardadas.
+     */
+    public List<T> get(LocalDate start, LocalDate end, BiFunction<LocalDate, LocalDate, List<T>> loader) {
+        if (start == null || end == null) return loader.apply(start, end);
+        return cache.get(new Range(start.toEpochDay(), end.toEpochDay()), range -> {
+            IntervalIndex.Node<Range> node = register(range);
+            try {
+                return new Result<>(Collections.unmodifiableList(new ArrayList<>(loader.apply(start, end))), node);
+            } catch (RuntimeException | Error e) {
+                unregister(node);
+                throw e;
+            }
+        }).rows;
+    }
+
+    @Override
+    public void apply(Rollup.Kind kind, LedgerEntry before, LedgerEntry after) {
+        if (kind != this.kind) return;
+        List<Range> stale = new ArrayList<>();
+        synchronized (index) {
+            if (before != null) index.stab(before.getEpochDay(), stale::add);
+            if (after != null && (before == null || after.getEpochDay() != before.getEpochDay()))
+                index.stab(after.getEpochDay(), stale::add);
+        }
+        //a invalidação ocorre fora do monitor, pois aguarda as cargas em andamento, que registram no índice
+        if (!stale.isEmpty()) cache.invalidateAll(stale);
+    }
+
+    @Override
+    public void clear(Rollup.Kind kind) {
+        if (kind == this.kind) cache.invalidateAll();
+    }
+
+    private IntervalIndex.Node<Range> register(Range range) {
+        synchronized (index) {
+            return index.add(range.start, range.end, range);
+        }
+    }
+
+    private void unregister(IntervalIndex.Node<Range> node) {
+        synchronized (index) {
+            index.remove(node);
+        }
+    }
+
+    /**
+     * Chave do cache, com as datas como dia da época.
+     */
+    @EqualsAndHashCode
+    static final class Range {
+        final long start;
+        final long end;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Resultado em cache e o seu registro no índice de intervalos.
+     */
+    private static final class Result<T> {
+        final List<T> rows;
+        final IntervalIndex.Node<Range> node;
+
+        Result(List<T> rows, IntervalIndex.Node<Range> node) {
+            this.rows = rows;
+            this.node = node;
+        }
+    }
+
+}
@@ -1,12 +1,29 @@
 package br.dev.pubfuture.desafio.businesslayer.service;
 
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
 import br.dev.pubfuture.desafio.businesslayer.Receita;
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import br.dev.pubfuture.desafio.persistence.Aggregate;
 import br.dev.pubfuture.desafio.persistence.ReceitaRepository;
+import br.dev.pubfuture.desafio.persistence.RollupTotal;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.sql.Types;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Camada de serviço de Receita.
@@ -16,78 +33,478 @@ import java.util.Optional;
 @Service
 public class ReceitaService {
 
+    /**
+     * Quantidade de registros por lote nas inserções em massa (igual a hibernate.jdbc.batch_size).
+     */
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * Quantidade de valores reservados a cada leitura da sequência 'receita_seq' (igual ao 'allocationSize' de
+     * 'Receita').
+     */
+    private static final int ID_ALLOCATION = 50;
+
+    /**
+     * Inserção com o 'id' já reservado, utilizada pela gravação assíncrona.
+     */
+    private static final String INSERT = "INSERT INTO receita "
+            + "(id, valor, dt_receb, dt_recb_esp, descricao, conta, tp_receita) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Campos atualizáveis pelo 'endpoint' PATCH e as respectivas colunas.
+     */
+    static final PartialUpdate<Receita> PATCH = new PartialUpdate<Receita>("receita", (rs, row) ->
+            Receita.builder()
+                    .id(rs.getLong("id"))
+                    .value(rs.getLong("valor"))
+                    .receivingDate(rs.getObject("dt_receb", LocalDate.class))
+                    .expectedReceiptDate(rs.getObject("dt_recb_esp", LocalDate.class))
+                    .description(rs.getString("descricao"))
+                    .account(rs.getInt("conta"))
+                    .typeOfRevenue(Receita.Revenue.valueOf(rs.getString("tp_receita")))
+                    .build())
+            .column("value", "valor", Receita::getValue, (to, from) -> to.setValue(from.getValue()))
+            .column("receivingDate", "dt_receb", Receita::getReceivingDate,
+                    (to, from) -> to.setReceivingDate(from.getReceivingDate()))
+            .column("expectedReceiptDate", "dt_recb_esp", Receita::getExpectedReceiptDate,
+                    (to, from) -> to.setExpectedReceiptDate(from.getExpectedReceiptDate()))
+            .column("description", "descricao", Receita::getDescription,
+                    (to, from) -> to.setDescription(from.getDescription()))
+            .column("account", "conta", Receita::getAccount, (to, from) -> to.setAccount(from.getAccount()))
+            .column("typeOfRevenue", "tp_receita", receita -> PartialUpdate.name(receita.getTypeOfRevenue()),
+                    (to, from) -> to.setTypeOfRevenue(from.getTypeOfRevenue()));
+
     /**
      * Instanciação do objeto do repositório 'ReceitaRepository'.
      */
     private final ReceitaRepository receitaRepository;
 
+    /**
+     * Limites das listagens paginadas.
+     */
+    private final Pagination pagination;
+
+    /**
+     * Resumo mensal das receitas, mantido na mesma transação de cada gravação e remoção.
+     */
+    private final MonthlyRollup monthlyRollup;
+
+    /**
+     * Distribuidor das alterações às projeções em memória e índice de somas por intervalo de datas.
+     */
+    private final Ledger ledger;
+    private final FenwickIndex fenwickIndex;
+
+    /**
+     * Cópia colunar em memória, utilizada nas varreduras analíticas.
+     */
+    private final ColumnarStore columnarStore;
+
+    /**
+     * Cache de leitura das receitas por 'id'.
+     */
+    private final EntityCache<Receita> receitaCache;
+
+    /**
+     * Agrupamento das consultas de somatório e por tipo idênticas e concorrentes.
+     */
+    private final SingleFlight receitaFlights;
+
+    /**
+     * Cache das consultas por intervalo de datas, invalidado por data a cada gravação confirmada.
+     */
+    private final RangeQueryCache<Receita> receitaRangeCache;
+
+    /**
+     * Contadores em memória da quantidade e do somatório por tipo e por tipo e conta.
+     */
+    private final TypeCounters typeCounters;
+
+    /**
+     * Acesso JDBC utilizado nas atualizações parciais.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Contexto de persistência, utilizado para desanexar as entidades percorridas na exportação.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Método construtor da classe Receita.
      * @param receitaRepository
+     * @param pagination
+     * @param monthlyRollup
+     * @param ledger
+     * @param fenwickIndex
+     * @param columnarStore
+     * @param receitaCache
+     * @param receitaFlights
+     * @param receitaRangeCache
+     * @param typeCounters
+     * @param dataSource
      */
     @Autowired
-    public ReceitaService(ReceitaRepository receitaRepository) {
+    public ReceitaService(ReceitaRepository receitaRepository, Pagination pagination, MonthlyRollup monthlyRollup,
+                          Ledger ledger, FenwickIndex fenwickIndex, ColumnarStore columnarStore,
+                          EntityCache<Receita> receitaCache, SingleFlight receitaFlights,
+                          RangeQueryCache<Receita> receitaRangeCache, TypeCounters typeCounters,
+                          DataSource dataSource) {
         this.receitaRepository = receitaRepository;
+        this.pagination = pagination;
+        this.monthlyRollup = monthlyRollup;
+        this.ledger = ledger;
+        this.fenwickIndex = fenwickIndex;
+        this.columnarStore = columnarStore;
+        this.receitaCache = receitaCache;
+        this.receitaFlights = receitaFlights;
+        this.receitaRangeCache = receitaRangeCache;
+        this.typeCounters = typeCounters;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
     }
 
     /**
      * Este método retorna um objeto da classe 'Receita' para salvamento.
+     * O resumo mensal recebe a diferença entre o registro anterior (quando se trata de uma alteração) e o novo.
      * @param toSave parâmetro/objeto de salvamento.
      * @return Retorna um objeto Receita
      */
+    @Transactional
     public Receita save(Receita toSave) {
-        return receitaRepository.save(toSave);
+        MonthlyRollup.Delta delta = monthlyRollup.delta(Rollup.Kind.RECEITA);
+        Receita before = toSave.getId() == 0 ? null : receitaRepository.findForUpdate(toSave.getId()).orElse(null);
+        //o anterior é copiado antes da gravação, que o sobrescreve no contexto de persistência
+        LedgerEntry previous = LedgerEntry.of(before);
+        if (before != null) remove(delta, before);
+        Receita saved = receitaRepository.save(toSave);
+        add(delta, saved).apply();
+        ledger.publish(Rollup.Kind.RECEITA, previous, LedgerEntry.of(saved));
+        if (before != null) receitaCache.evictAfterCommit(saved.getId());
+        receitaFlights.invalidateAfterCommit();
+        return saved;
+    }
+
+    /**
+     * Este método atualiza apenas os campos informados de uma receita em um único comando SQL, que também devolve o
+     * registro anterior ('PartialUpdate'); o resumo mensal, as projeções em memória e os caches recebem a
+     * diferença como nas demais gravações.
+     * @param id Código identificador do registro.
+     * @param values Receita com os novos valores dos campos informados.
+     * @param fields Campos a serem atualizados, dentre os 'patchableFields'.
+     * @return Retorna a receita atualizada ou um Optional vazio quando não existir.
+     */
+    @Transactional
+    public Optional<Receita> patch(long id, Receita values, Set<String> fields) {
+        PartialUpdate.Change<Receita> change = PATCH.apply(jdbcTemplate, id, values, fields);
+        if (change == null) return Optional.empty();
+        MonthlyRollup.Delta delta = monthlyRollup.delta(Rollup.Kind.RECEITA);
+        remove(delta, change.getBefore());
+        add(delta, change.getAfter()).apply();
+        ledger.publish(Rollup.Kind.RECEITA, LedgerEntry.of(change.getBefore()), LedgerEntry.of(change.getAfter()));
+        receitaCache.evictAfterCommit(id);
+        receitaFlights.invalidateAfterCommit();
+        return Optional.of(change.getAfter());
+    }
+
+    /**
+     * @return Retorna os nomes dos campos aceitos na atualização parcial ('patch').
+     */
+    public Set<String> patchableFields() {
+        return PATCH.fields();
+    }
+
+    /**
+     * Este método inclui uma coleção de receitas novas em uma única transação. As inserções são agrupadas em lotes
+     * JDBC (hibernate.jdbc.batch_size) e o contexto de persistência é descarregado e limpo a cada lote, de modo
+     * que a memória utilizada não cresça com o tamanho da coleção. Alterações não são aceitas: todos os 'id'
+     * devem ser 0.
+     * @param toSave coleção de objetos a serem incluídos.
+     * @return Retorna as entidades gravadas, na ordem recebida, com os 'id' gerados.
+     * @throws IllegalArgumentException quando algum item informar o 'id'.
+     */
+    @Transactional
+    public List<Receita> saveAll(List<Receita> toSave) {
+        for (Receita item : toSave)
+            if (item.getId() != 0)
+                throw new IllegalArgumentException("Id não pode ser informado na inclusão em lote.");
+        MonthlyRollup.Delta delta = monthlyRollup.delta(Rollup.Kind.RECEITA);
+        List<Receita> saved = new ArrayList<>(toSave.size());
+        List<LedgerEntry> current = new ArrayList<>(toSave.size());
+        for (int i = 0; i < toSave.size(); i++) {
+            Receita item = receitaRepository.save(toSave.get(i));
+            add(delta, item);
+            saved.add(item);
+            current.add(LedgerEntry.of(item));
+            if ((i + 1) % BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        delta.apply();
+        ledger.publishAll(Rollup.Kind.RECEITA, Collections.nCopies(current.size(), null), current);
+        receitaFlights.invalidateAfterCommit();
+        return saved;
+    }
+
+    /**
+     * Este método reserva o 'id' de uma nova receita no mesmo gerador (sequência 'receita_seq') utilizado nas gravações
+     * comuns, sem gravá-la, para a gravação assíncrona.
+     * @param toInsert Receita a ser gravada posteriormente.
+     * @return Retorna o 'id' reservado.
+     */
+    @Transactional
+    public long allocateId(Receita toInsert) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        return ((Number) session.getFactory().getMetamodel().entityPersister(Receita.class).getIdentifierGenerator()
+                .generate(session, toInsert)).longValue();
+    }
+
+    /**
+     * Este método insere, em uma única transação e em lotes JDBC, receitas novas cujo 'id' já foi reservado
+     * ('allocateId'), mantendo o resumo mensal e as projeções em memória como nas demais gravações. A inserção é
+     * feita diretamente por JDBC, sem a consulta prévia de cada 'id' que o Hibernate faria ao gravar uma entidade
+     * com o 'id' informado.
+     * @param toInsert coleção de receitas novas, com o 'id' reservado.
+     */
+    @Transactional
+    public void insertAll(List<Receita> toInsert) {
+        MonthlyRollup.Delta delta = monthlyRollup.delta(Rollup.Kind.RECEITA);
+        //insere com o 'id' informado; um 'id' repetido falha pela chave primária
+        jdbcTemplate.batchUpdate(INSERT, toInsert, BATCH_SIZE, (ps, item) -> {
+            ps.setLong(1, item.getId());
+            ps.setLong(2, item.getValue());
+            ps.setObject(3, item.getReceivingDate(), Types.DATE);
+            ps.setObject(4, item.getExpectedReceiptDate(), Types.DATE);
+            ps.setString(5, item.getDescription());
+            ps.setInt(6, item.getAccount());
+            ps.setString(7, item.getTypeOfRevenue() == null ? null : item.getTypeOfRevenue().name());
+        });
+        List<LedgerEntry> current = new ArrayList<>(toInsert.size());
+        for (Receita item : toInsert) {
+            add(delta, item);
+            current.add(LedgerEntry.of(item));
+        }
+        delta.apply();
+        ledger.publishAll(Rollup.Kind.RECEITA, Collections.nCopies(current.size(), null), current);
+        receitaFlights.invalidateAfterCommit();
+    }
+
+    /**
+     * @param id Código identificador do registro.
+     * @return Retorna verdadeiro quando existir a receita com o 'id' informado.
+     */
+    public boolean existsById(long id) {
+        return receitaRepository.existsById(id);
+    }
+
+    /**
+     * Este método reposiciona a sequência 'receita_seq' após o maior 'id' gravado. As receitas recuperadas do diário
+     * da gravação assíncrona são inseridas com o 'id' reservado antes da reinicialização, enquanto a sequência
+     * recriada com o esquema recomeça em 1; sem o reposicionamento, os próximos 'id' colidiriam com os
+     * recuperados.
+     */
+    public void restartIdSequence() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM receita", Long.class);
+        if (max == null) return;
+        //o gerador 'pooled' utiliza os valores que antecedem cada valor lido, até o tamanho da alocação
+        jdbcTemplate.execute("ALTER SEQUENCE receita_seq RESTART WITH " + (max + ID_ALLOCATION));
     }
 
     /**
      * A função desta método é remover uma receita através do seu 'id'.
+     * O registro removido é descontado do resumo mensal na mesma transação.
      * @param id Código identificador do registro.
      */
-    public void deleteById(Long id) { receitaRepository.deleteById(id); }
+    @Transactional
+    public void deleteById(Long id) {
+        Optional<Receita> before = receitaRepository.findForUpdate(id);
+        LedgerEntry removedEntry = LedgerEntry.of(before.orElse(null));
+        receitaRepository.deleteById(id);
+        before.ifPresent(removed -> remove(monthlyRollup.delta(Rollup.Kind.RECEITA), removed).apply());
+        ledger.publish(Rollup.Kind.RECEITA, removedEntry, null);
+        receitaCache.evictAfterCommit(id);
+        receitaFlights.invalidateAfterCommit();
+    }
 
     /**
      * Este método retorna um objeto da classe 'Optional' para verificação se ele existe no banco de dados.
      * A referida classe é utilizada a fim de evitar NPE, ou seja, a mesma necessariamente conterá nada ou
      * uma valor não nulo.
+     * A consulta é servida pelo cache de leitura, invalidado a cada gravação e remoção.
      * @param id Código identificador do registro.
      * @return Retorna um objeto Optional vazio ou não nulo.
      */
     public Optional<Receita> findById(Long id) {
-        return receitaRepository.findById(id);
+        return receitaCache.get(id, receitaRepository::findById);
     }
 
     /**
-     * Método que retorna todas as receitas existentes na tabela correspondente (receita) do banco de dados.
-     * @return Retorna uma coleção de todas as receitas existentes na base de dados.
+     * Método que retorna uma página das receitas existentes na tabela correspondente (receita) do banco de dados,
+     * paginada por chave ('keyset') a partir do cursor informado.
+     * @param after Cursor ('id' do último registro da página anterior, ou 0 para a primeira página).
+     * @param limit Tamanho de página solicitado, limitado pelo máximo configurado no servidor.
+     * @return Retorna uma página de receitas e o cursor da próxima página.
      */
-    public List<Receita> findAll() {
-        return (List<Receita>) receitaRepository.findAll();
+    public KeysetPage<Receita> findAll(long after, Integer limit) {
+        int size = pagination.limit(limit);
+        return KeysetPage.of(receitaRepository.findByIdGreaterThanOrderByIdAsc(after, pagination.lookahead(size)),
+                size, Receita::getId);
     }
 
     /**
      * Este método retorna o somatório de todas as receitas existentes na base de dados.
-     * @return Retorna um 'float' correspondente ao somatório de todas as receitas cadastradas.
+     * Chamadas idênticas e concorrentes compartilham uma única consulta ('SingleFlight').
+     * @return Retorna um 'long' correspondente ao somatório, em centavos, de todas as receitas cadastradas.
      */
-    public Float totalBalance() { return receitaRepository.totalBalance(); }
+    public long totalBalance() {
+        return receitaFlights.get("total", () -> {
+            Long total = receitaRepository.totalBalance();
+            return total == null ? 0L : total;
+        });
+    }
 
     /**
      * Este método tem a finalidade de buscar as receitas cadastradas em um determinado intervalo de datas.
      * @param receivingDateStart Objeto LocalDate contendo a data inicial do intervalo de datas desejado.
      * @param receivingDateEnd Objeto LocalDate contendo a data final do intervalo de datas desejado.
+     * O resultado é mantido em cache por intervalo ('RangeQueryCache').
      * @return Retorna uma coleção das receitas existentes na base de dados no intervalo desejado.
      */
     public List<Receita> findAllByReceivingDateBetween(LocalDate receivingDateStart, LocalDate receivingDateEnd) {
-        return receitaRepository.findAllByReceivingDateBetween(receivingDateStart, receivingDateEnd);
+        return receitaRangeCache.get(receivingDateStart, receivingDateEnd, receitaRepository::findAllByReceivingDateBetween);
     }
 
     /**
      * Este método tem a finalidade de buscar as receitas cadastradas por tipo de receita.
      * @param revenue Espera por um objeto da classe interna Receita.Revenue, o qual contém as constantes
      *                passíveis de ser utilizadas.
+     * Chamadas idênticas e concorrentes compartilham uma única consulta ('SingleFlight').
      * @return Retorna uma coleção das receitas existentes na base de dados por 'tipo de receita'.
      */
     public List<Receita> findReceitaByTypeOfRevenue(Receita.Revenue revenue) {
-        return receitaRepository.findReceitaByTypeOfRevenue(revenue);
+        return receitaFlights.get(revenue, () ->
+                Collections.unmodifiableList(receitaRepository.findReceitaByTypeOfRevenue(revenue)));
+    }
+
+    /**
+     * Este método agrega as receitas no próprio banco de dados ('GROUP BY'), sem carregar as entidades, retornando
+     * o somatório, a quantidade, o menor e o maior valor de cada grupo.
+     * @param dimension Agrupamento desejado: por tipo, por conta ou por mês.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @return Retorna uma coleção com uma linha por grupo.
+     */
+    public List<Aggregate> aggregate(Aggregate.Dimension dimension, LocalDate start, LocalDate end) {
+        LocalDate from = Periods.start(start);
+        LocalDate to = Periods.end(end);
+        switch (dimension) {
+            case TYPE:
+                return receitaRepository.aggregateByType(from, to);
+            case ACCOUNT:
+                return receitaRepository.aggregateByAccount(from, to);
+            default:
+                return receitaRepository.aggregateByMonth(from, to);
+        }
+    }
+
+    /**
+     * Este método percorre as receitas cadastradas, opcionalmente limitadas a um intervalo de datas, entregando-as
+     * uma a uma ao consumidor informado. A leitura é feita por cursor em uma transação somente leitura e cada
+     * entidade é desanexada do contexto de persistência após o uso, mantendo a memória constante
+     * independentemente da quantidade de registros.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @param consumer Consumidor de cada registro.
+     */
+    @Transactional(readOnly = true)
+    public void forEach(LocalDate start, LocalDate end, Consumer<Receita> consumer) {
+        try (Stream<Receita> stream = start == null && end == null ? receitaRepository.streamAll()
+                : receitaRepository.streamAllByReceivingDateBetweenOrderById(Periods.start(start), Periods.end(end))) {
+            stream.forEach(receita -> {
+                consumer.accept(receita);
+                entityManager.detach(receita);
+            });
+        }
+    }
+
+    /**
+     * Este método retorna o somatório das receitas de um intervalo de datas, opcionalmente de uma conta e de um
+     * tipo, consultando o índice em memória em O(log n), sem acessar o banco de dados.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @param account Conta (opcional).
+     * @param revenue Tipo (opcional).
+     * @return Retorna o somatório, em centavos.
+     */
+    public long rangeSum(LocalDate start, LocalDate end, Integer account, Receita.Revenue revenue) {
+        return fenwickIndex.sum(Rollup.Kind.RECEITA, Periods.start(start).toEpochDay(), Periods.end(end).toEpochDay(),
+                account, revenue == null ? null : revenue.ordinal());
+    }
+
+    /**
+     * Este método retorna a quantidade e o somatório das receitas de cada tipo, opcionalmente de uma conta, lidos
+     * dos contadores mantidos em memória, sem consulta ao banco de dados.
+     * @param account Conta (opcional).
+     * @return Retorna o somatório, em centavos, e a quantidade de cada tipo, na ordem das constantes.
+     */
+    public EnumMap<Receita.Revenue, TypeCounters.Stats> typeStats(Integer account) {
+        TypeCounters.Stats[] totals = typeCounters.stats(Rollup.Kind.RECEITA, account);
+        EnumMap<Receita.Revenue, TypeCounters.Stats> stats = new EnumMap<>(Receita.Revenue.class);
+        for (Receita.Revenue type : Receita.Revenue.values())
+            stats.put(type, totals[type.ordinal()]);
+        return stats;
+    }
+
+    /**
+     * Este método soma e conta as receitas de um intervalo de datas, opcionalmente de um tipo e de uma conta,
+     * varrendo a cópia colunar em memória, sem instanciar entidades.
+     * @param start Data inicial (opcional).
+     * @param end Data final (opcional).
+     * @param revenue Tipo (opcional).
+     * @param account Conta (opcional).
+     * @return Retorna o somatório, em centavos, e a quantidade de receitas.
+     */
+    public ColumnarStore.Totals scan(LocalDate start, LocalDate end, Receita.Revenue revenue, Integer account) {
+        return columnarStore.scan(Rollup.Kind.RECEITA, Periods.start(start).toEpochDay(), Periods.end(end).toEpochDay(),
+                revenue == null ? null : revenue.ordinal(), account);
+    }
+
+    /**
+     * Este método retorna o relatório mensal das receitas, lido do resumo mensal (uma linha por mês).
+     * @param year Ano desejado (opcional, o ano corrente quando não informado).
+     * @return Retorna os totais de cada mês do ano que possua receitas.
+     */
+    public List<RollupTotal> monthlyReport(Integer year) {
+        return monthlyRollup.monthly(Rollup.Kind.RECEITA, year == null ? LocalDate.now().getYear() : year);
+    }
+
+    /**
+     * Este método retorna o relatório anual das receitas, lido do resumo mensal.
+     * @param from Ano inicial (opcional).
+     * @param to Ano final (opcional).
+     * @return Retorna os totais de cada ano do intervalo que possua receitas.
+     */
+    public List<RollupTotal> yearlyReport(Integer from, Integer to) {
+        return monthlyRollup.yearly(Rollup.Kind.RECEITA, from, to);
+    }
+
+    /**
+     * Este método reconstrói o resumo mensal das receitas a partir da tabela 'receita'.
+     * @return Retorna a quantidade de registros do resumo reconstruídos.
+     */
+    public int rebuildRollup() {
+        return monthlyRollup.rebuild(Rollup.Kind.RECEITA);
+    }
+
+    private static MonthlyRollup.Delta add(MonthlyRollup.Delta delta, Receita receita) {
+        return delta.add(receita.getReceivingDate(), receita.getAccount(), receita.getTypeOfRevenue(),
+                receita.getValue());
+    }
+
+    private static MonthlyRollup.Delta remove(MonthlyRollup.Delta delta, Receita receita) {
+        return delta.remove(receita.getReceivingDate(), receita.getAccount(), receita.getTypeOfRevenue(),
+                receita.getValue());
     }
 
 }
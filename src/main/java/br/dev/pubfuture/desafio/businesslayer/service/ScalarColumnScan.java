@@ -0,0 +1,30 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+/**
+ * Implementação escalar da varredura de colunas; também utilizada pela implementação vetorial no restante
+ * que não completa um bloco.
+ */
+final class ScalarColumnScan implements ColumnScan {
+
+    @Override
+    public long[] sumCount(int size, int[] days, long[] cents, byte[] types, short[] accounts,
+                           int startDay, int endDay, int type, int account) {
+        return sumCount(0, size, days, cents, types, accounts, startDay, endDay, type, account);
+    }
+
+    static long[] sumCount(int from, int size, int[] days, long[] cents, byte[] types, short[] accounts,
+                           int startDay, int endDay, int type, int account) {
+        long sum = 0;
+        long count = 0;
+        for (int i = from; i < size; i++) {
+            int day = days[i];
+            if (day < startDay || day > endDay) continue;
+            if (type >= 0 && types[i] != type) continue;
+            if (account >= 0 && accounts[i] != account) continue;
+            sum += cents[i];
+            count++;
+        }
+        return new long[]{sum, count};
+    }
+
+}
@@ -0,0 +1,119 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Agrupamento ('single-flight') de consultas idênticas e concorrentes.
+ * A primeira chamada de uma chave executa a consulta; as chamadas que chegam enquanto ela está em andamento
+ * aguardam e recebem o mesmo resultado (ou a mesma exceção). Opcionalmente, o resultado continua sendo
+ * compartilhado por um curto tempo de vida após o término ('micro-TTL').
+ * As gravações descartam os resultados após o 'commit' ('invalidateAfterCommit'): uma chamada posterior ao
+ * 'commit' nunca aguarda uma consulta iniciada antes dele nem recebe o seu resultado.
+ * As métricas 'desafio.singleflight.calls' distinguem as chamadas que executaram a consulta ('leader'), as
+ * que aguardaram uma consulta em andamento ('shared') e as atendidas pelo tempo de vida ('cached').
+ */
+public class SingleFlight {
+
+    private final ConcurrentHashMap<Object, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Tempo de vida do resultado após o término da consulta, em nanossegundos (zero desabilita).
+     */
+    private final long ttlNanos;
+
+    private final Counter leader;
+    private final Counter shared;
+    private final Counter cached;
+
+    /**
+     * @param name nome do agrupamento nas métricas.
+     * @param ttl tempo de vida do resultado após o término da consulta.
+     * @param registry registro de métricas.
+     */
+    public SingleFlight(String name, Duration ttl, MeterRegistry registry) {
+        this.ttlNanos = Math.max(0, ttl.toNanos());
+        this.leader = counter(registry, name, "leader");
+        this.shared = counter(registry, name, "shared");
+        this.cached = counter(registry, name, "cached");
+    }
+
+    private static Counter counter(MeterRegistry registry, String name, String result) {
+        return Counter.builder("desafio.singleflight.calls")
+                .description("Chamadas às consultas agrupadas")
+                .tag("name", name)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    /**
+     * @param key chave que identifica a consulta (parâmetros incluídos).
+     * @param loader consulta, executada apenas pela primeira chamada.
+     * @param <V> tipo do resultado.
+     * @return Retorna o resultado da consulta, próprio ou compartilhado.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Object key, Supplier<V> loader) {
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight != null) {
+                if (!flight.future.isDone()) {
+                    shared.increment();
+                    return (V) flight.join();
+                }
+                if (System.nanoTime() - flight.completedAt < ttlNanos) {
+                    cached.increment();
+                    return (V) flight.join();
+                }
+                flights.remove(key, flight);
+            }
+            Flight mine = new Flight();
+            if (flights.putIfAbsent(key, mine) != null) continue;
+            leader.increment();
+            try {
+                V value = loader.get();
+                mine.completedAt = System.nanoTime();
+                mine.future.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                //falhas não são compartilhadas além das chamadas que já aguardavam
+                flights.remove(key, mine);
+                mine.future.completeExceptionally(e);
+                throw e;
+            } finally {
+                if (ttlNanos == 0) flights.remove(key, mine);
+            }
+        }
+    }
+
+    /**
+     * Descarta os resultados, em andamento ou concluídos, após o 'commit' da transação corrente.
+     */
+    public void invalidateAfterCommit() {
+        AfterCommit.run(flights::clear);
+    }
+
+    /**
+     * Consulta em andamento ou concluída.
+     */
+    private static final class Flight {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        volatile long completedAt;
+
+        Object join() {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error) throw (Error) e.getCause();
+                throw e;
+            }
+        }
+    }
+
+}
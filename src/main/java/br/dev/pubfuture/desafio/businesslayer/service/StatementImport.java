@@ -0,0 +1,237 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Camada de serviço da importação de extratos bancários (CSV ou OFX).
+ * O arquivo é lido lançamento a lançamento, sem ser carregado em memória: cada lançamento é convertido em receita
+ * (valor positivo) ou despesa (valor negativo), validado com as mesmas restrições de 'Bean Validation' das
+ * entidades e acumulado em lotes de 'batchSize' registros, cada lote gravado em uma única transação. A memória
+ * utilizada é limitada a um lote, qualquer que seja o tamanho do arquivo. Se a transação de um lote falhar, os
+ * seus registros são regravados individualmente, de modo que o erro seja atribuído à linha que o causou.
+ * As linhas inválidas não interrompem a importação: são informadas ao 'Listener', assim como o progresso após
+ * cada lote gravado. A interrupção da 'thread' (por exemplo, no esgotamento do tempo da requisição assíncrona)
+ * encerra a importação antes da próxima linha: os lotes já gravados permanecem gravados e os registros ainda
+ * não gravados são descartados.
+ */
+@Service
+public class StatementImport {
+
+    private final ReceitaService receitaService;
+    private final DespesaService despesaService;
+    private final Validator validator;
+
+    /**
+     * Quantidade de registros por transação.
+     */
+    private final int batchSize;
+
+    /**
+     * Método construtor do serviço de importação.
+     * @param receitaService serviço de receitas.
+     * @param despesaService serviço de despesas.
+     * @param validator validador do Spring.
+     * @param batchSize quantidade de registros por transação.
+     */
+    @Autowired
+    public StatementImport(ReceitaService receitaService, DespesaService despesaService, Validator validator,
+                           @Value("${desafio.import.batch-size:1000}") int batchSize) {
+        this.receitaService = receitaService;
+        this.despesaService = despesaService;
+        this.validator = validator;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Importa um extrato.
+     * @param format formato do arquivo.
+     * @param reader conteúdo do arquivo.
+     * @param defaultAccount conta dos lançamentos sem a coluna 'conta' (sempre, no OFX).
+     * @param listener destinatário dos erros e do progresso.
+     * @return Retorna o progresso final.
+     * @throws IOException quando a leitura do arquivo falhar ou a 'thread' for interrompida
+     * ('InterruptedIOException'); os lotes já gravados permanecem gravados.
+     */
+    public Progress run(Format format, Reader reader, Integer defaultAccount, Listener listener) throws IOException {
+        StatementParser parser = format == Format.OFX ? new OfxStatementParser(reader) : new CsvStatementParser(reader);
+        Progress progress = new Progress();
+        Batch<Receita> receitas = new Batch<>(receitaService::saveAll, saved -> progress.revenues += saved);
+        Batch<Despesa> despesas = new Batch<>(despesaService::saveAll, saved -> progress.expenses += saved);
+        StatementLine line;
+        while ((line = parser.next()) != null) {
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException("Importação interrompida após " + progress.lines + " linhas.");
+            progress.lines++;
+            String error = line.getError() != null ? line.getError() : add(line, defaultAccount, receitas, despesas);
+            if (error != null) {
+                progress.errors++;
+                listener.error(line.getLine(), error);
+            }
+            if (receitas.items.size() == batchSize) flush(receitas, progress, listener);
+            if (despesas.items.size() == batchSize) flush(despesas, progress, listener);
+        }
+        flush(receitas, progress, listener);
+        flush(despesas, progress, listener);
+        progress.done = true;
+        listener.progress(progress);
+        return progress;
+    }
+
+    /**
+     * Converte e valida o lançamento e o inclui no lote correspondente.
+     * @return Retorna a mensagem de erro ou nulo quando o lançamento for válido.
+     */
+    private String add(StatementLine line, Integer defaultAccount, Batch<Receita> receitas,
+                       Batch<Despesa> despesas) {
+        if (line.getCents() == 0) return "Valor não pode ser zero.";
+        int account = line.getAccount() != null ? line.getAccount() : defaultAccount != null ? defaultAccount : 0;
+        try {
+            if (line.getCents() > 0) {
+                Receita receita = Receita.builder()
+                        .value(line.getCents())
+                        .receivingDate(line.getDate())
+                        .expectedReceiptDate(line.getDate())
+                        .description(line.getDescription())
+                        .account(account)
+                        .typeOfRevenue(type(Receita.Revenue.class, line.getType(), Receita.Revenue.OUTROS))
+                        .build();
+                return receitas.add(line.getLine(), receita);
+            }
+            Despesa despesa = Despesa.builder()
+                    .value(-line.getCents())
+                    .payday(line.getDate())
+                    .expectedPaymentDate(line.getDate())
+                    .account(account)
+                    .typeOfExpense(type(Despesa.TypeOfExpense.class, line.getType(), Despesa.TypeOfExpense.OUTROS))
+                    .build();
+            return despesas.add(line.getLine(), despesa);
+        } catch (IllegalArgumentException e) {
+            return "Tipo inválido: " + line.getType();
+        }
+    }
+
+    private static <E extends Enum<E>> E type(Class<E> type, String name, E otherwise) {
+        return name == null ? otherwise : Enum.valueOf(type, name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Grava o lote e informa o progresso ao 'Listener'.
+     */
+    private static void flush(Batch<?> batch, Progress progress, Listener listener) {
+        if (batch.items.isEmpty()) return;
+        progress.errors += batch.flush(listener);
+        listener.progress(progress);
+    }
+
+    /**
+     * Formatos de arquivo aceitos.
+     */
+    public enum Format {
+        CSV,
+        OFX
+    }
+
+    /**
+     * Destinatário dos erros por linha e do progresso da importação.
+     */
+    public interface Listener {
+
+        /**
+         * @param line número da linha do arquivo.
+         * @param message mensagem de erro.
+         */
+        void error(long line, String message);
+
+        /**
+         * @param progress progresso após cada lote gravado e ao final ('done').
+         */
+        void progress(Progress progress);
+    }
+
+    /**
+     * Classe interna com as quantidades de linhas lidas, receitas e despesas gravadas e erros.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    public static class Progress {
+        private long lines;
+        private long revenues;
+        private long expenses;
+        private long errors;
+        private boolean done;
+    }
+
+    /**
+     * Lote de registros validados e os números das suas linhas.
+     */
+    private final class Batch<T> {
+        List<T> items = new ArrayList<>(batchSize);
+        final long[] lines = new long[batchSize];
+        final Consumer<List<T>> writer;
+        final Consumer<Integer> saved;
+
+        Batch(Consumer<List<T>> writer, Consumer<Integer> saved) {
+            this.writer = writer;
+            this.saved = saved;
+        }
+
+        /**
+         * @return Retorna os erros de validação ("campo: mensagem") ou nulo quando o registro for incluído.
+         */
+        String add(long line, T item) {
+            Set<ConstraintViolation<T>> violations = validator.validate(item);
+            if (!violations.isEmpty())
+                return violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; "));
+            lines[items.size()] = line;
+            items.add(item);
+            return null;
+        }
+
+        /**
+         * Grava o lote em uma transação ou, se ela falhar, registro a registro, e inicia um novo lote.
+         * @return Retorna a quantidade de registros não gravados, informados ao 'Listener'.
+         */
+        int flush(Listener listener) {
+            int failed = 0;
+            try {
+                writer.accept(items);
+            } catch (RuntimeException e) {
+                for (int i = 0; i < items.size(); i++) {
+                    try {
+                        writer.accept(List.of(items.get(i)));
+                    } catch (RuntimeException ex) {
+                        failed++;
+                        listener.error(lines[i], String.valueOf(ex.getMessage()));
+                    }
+                }
+            }
+            saved.accept(items.size() - failed);
+            //nova coleção, pois a gravada pode continuar referenciada por quem a recebeu
+            items = new ArrayList<>(batchSize);
+            return failed;
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import java.time.LocalDate;
+
+/**
+ * Lançamento lido de um extrato bancário (CSV ou OFX), antes do mapeamento para receita ou despesa.
+ * Uma linha que não pôde ser interpretada traz apenas o número da linha e a mensagem de erro.
+ */
+@Getter
+@AllArgsConstructor
+public final class StatementLine {
+
+    /**
+     * Número da linha do arquivo (no OFX, a linha em que a transação começa).
+     */
+    private final long line;
+    private final LocalDate date;
+
+    /**
+     * Valor em centavos: positivo para créditos (receitas) e negativo para débitos (despesas).
+     */
+    private final long cents;
+    private final String description;
+
+    /**
+     * Nome da constante do tipo (opcional).
+     */
+    private final String type;
+
+    /**
+     * Conta (opcional).
+     */
+    private final Integer account;
+    private final String error;
+
+    static StatementLine error(long line, String error) {
+        return new StatementLine(line, null, 0, null, null, null, error);
+    }
+
+}
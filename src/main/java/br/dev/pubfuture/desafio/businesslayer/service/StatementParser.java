@@ -0,0 +1,67 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Money;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Leitura incremental de um extrato bancário: cada chamada consome apenas o necessário para o próximo
+ * lançamento, com 'buffers' de tamanho limitado, de modo que a memória utilizada não depende do tamanho do
+ * arquivo.
+ */
+public interface StatementParser {
+
+    /**
+     * @return Retorna o próximo lançamento (ou o erro da linha) ou nulo no fim do arquivo.
+     * @throws IOException quando a leitura do arquivo falhar.
+     */
+    StatementLine next() throws IOException;
+
+    /**
+     * Formatos de data aceitos, na ordem de tentativa.
+     */
+    List<DateTimeFormatter> DATE_FORMATS = List.of(DateTimeFormatter.ofPattern("dd/MM/yyyy"),
+            DateTimeFormatter.ofPattern("dd-MM-yyyy"), DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.BASIC_ISO_DATE);
+
+    /**
+     * @param text data em um dos formatos aceitos.
+     * @return Retorna a data.
+     * @throws IllegalArgumentException quando a data não estiver em nenhum dos formatos.
+     */
+    static LocalDate parseDate(String text) {
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(text, format);
+            } catch (DateTimeParseException e) {
+                //tenta o próximo formato
+            }
+        }
+        throw new IllegalArgumentException("Data inválida: " + text);
+    }
+
+    /**
+     * Converte um valor decimal com ponto ou vírgula decimal (ex.: -1234.56, -1.234,56 ou -1234,56) em
+     * centavos; quando ambos aparecem, o último é o separador decimal.
+     * @param text valor decimal.
+     * @return Retorna o valor em centavos.
+     * @throws IllegalArgumentException quando o valor for inválido ou tiver mais de duas casas decimais.
+     */
+    static long parseCents(String text) {
+        String value = text.trim().replace(" ", "");
+        int comma = value.lastIndexOf(',');
+        int dot = value.lastIndexOf('.');
+        if (comma > dot) value = value.replace(".", "").replace(',', '.');
+        else if (comma >= 0) value = value.replace(",", "");
+        try {
+            return Money.toCents(new BigDecimal(value));
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido: " + text);
+        }
+    }
+
+}
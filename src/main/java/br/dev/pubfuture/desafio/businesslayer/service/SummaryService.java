@@ -0,0 +1,147 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Camada de serviço do resumo da tela inicial.
+ * As consultas que compõem o resumo (somatório das contas, das receitas e das despesas e a primeira página de
+ * contas) são executadas simultaneamente em um 'pool' limitado de 'threads', de modo que a latência do resumo
+ * seja a da consulta mais lenta e não a soma de todas. Com o 'pool' e a fila ocupados, a consulta excedente é
+ * executada pela própria 'thread' da requisição ('CallerRunsPolicy'). Cada parte informa o seu tempo de
+ * execução; as partes que falharem ou excederem o prazo informam o erro sem impedir as demais.
+ */
+@Service
+public class SummaryService {
+
+    private final ContaService contaService;
+    private final ReceitaService receitaService;
+    private final DespesaService despesaService;
+
+    /**
+     * Prazo máximo de espera pelas partes, em nanossegundos.
+     */
+    private final long timeoutNanos;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Método construtor do serviço de resumo.
+     * @param contaService serviço de contas.
+     * @param receitaService serviço de receitas.
+     * @param despesaService serviço de despesas.
+     * @param registry registro de métricas.
+     * @param threads quantidade de 'threads' do 'pool'.
+     * @param queue capacidade da fila do 'pool'.
+     * @param timeout prazo máximo de espera pelas partes.
+     */
+    @Autowired
+    public SummaryService(ContaService contaService, ReceitaService receitaService, DespesaService despesaService,
+                          MeterRegistry registry,
+                          @Value("${desafio.summary.threads:4}") int threads,
+                          @Value("${desafio.summary.queue:64}") int queue,
+                          @Value("${desafio.summary.timeout:5s}") Duration timeout) {
+        this.contaService = contaService;
+        this.receitaService = receitaService;
+        this.despesaService = despesaService;
+        this.timeoutNanos = timeout.toNanos();
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queue)), task -> {
+                    Thread thread = new Thread(task, "summary-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        new ExecutorServiceMetrics(executor, "summary", Tags.empty()).bindTo(registry);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return Retorna o resumo com o resultado e o tempo de cada parte.
+     */
+    public Summary summary() {
+        long started = System.nanoTime();
+        long deadline = started + timeoutNanos;
+        CompletableFuture<Part<Long>> balance = submit(contaService::totalBalance);
+        CompletableFuture<Part<Long>> revenues = submit(receitaService::totalBalance);
+        CompletableFuture<Part<Long>> expenses = submit(despesaService::totalExpenses);
+        CompletableFuture<Part<KeysetPage<Conta>>> accounts = submit(() -> contaService.findAll(0, null));
+        return new Summary(await(balance, started, deadline), await(revenues, started, deadline),
+                await(expenses, started, deadline), await(accounts, started, deadline),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private <T> CompletableFuture<Part<T>> submit(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                T value = query.get();
+                return new Part<>(value, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), null);
+            } catch (RuntimeException e) {
+                return new Part<>(null, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        String.valueOf(e.getMessage()));
+            }
+        }, executor);
+    }
+
+    private static <T> Part<T> await(CompletableFuture<Part<T>> future, long started, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            return new Part<>(null, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), "Tempo esgotado.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Part<>(null, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), "Interrompido.");
+        } catch (ExecutionException e) {
+            return new Part<>(null, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                    String.valueOf(e.getCause().getMessage()));
+        }
+    }
+
+    /**
+     * Classe interna com as partes do resumo e o tempo total, em milissegundos.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    public static class Summary {
+        private Part<Long> balance;
+        private Part<Long> revenues;
+        private Part<Long> expenses;
+        private Part<KeysetPage<Conta>> accounts;
+        private long millis;
+    }
+
+    /**
+     * Classe interna com o resultado de uma parte (nulo em caso de erro), o seu tempo de execução, em
+     * milissegundos, e a mensagem de erro, se houver.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Data
+    public static class Part<T> {
+        private T value;
+        private long millis;
+        private String error;
+    }
+
+}
@@ -0,0 +1,271 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Estágio de 'group commit' à frente do motor de transferências.
+ * As transferências concorrentes são enfileiradas e uma única 'thread' as agrupa por até 'linger' microssegundos
+ * ou até atingir 'size' itens, aplicando o lote em uma única transação (um único 'commit' no arquivo do H2).
+ * Cada chamador recebe o seu próprio resultado através de um 'CompletableFuture'.
+ * A fila é limitada ('capacity'): quando estiver cheia (banco de dados lento), a transferência é aplicada
+ * diretamente pelo motor na 'thread' do chamador, de modo que a memória e a espera na fila não cresçam sem limite.
+ * A espera do chamador também é limitada ('timeout'): esgotado o tempo com a transferência ainda na fila, ela é
+ * retirada do lote e aplicada diretamente; se o lote já estiver em andamento, a espera falha com o resultado
+ * indeterminado.
+ */
+@Service
+public class TransferBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(TransferBatcher.class);
+
+    /**
+     * Motor de transferências que aplica os lotes.
+     */
+    private final TransferEngine transferEngine;
+
+    /**
+     * Indica se o agrupamento está habilitado; caso contrário as transferências vão direto ao motor.
+     */
+    private final boolean enabled;
+
+    /**
+     * Quantidade máxima de transferências por lote.
+     */
+    private final int size;
+
+    /**
+     * Tempo máximo de espera por novos itens após o primeiro do lote, em nanossegundos.
+     */
+    private final long lingerNanos;
+
+    /**
+     * Fila limitada de transferências pendentes.
+     */
+    private final BlockingQueue<Pending> queue;
+
+    /**
+     * Tempo máximo de espera do chamador pelo resultado do lote, em nanossegundos.
+     */
+    private final long timeoutNanos;
+
+    /**
+     * Métricas de tamanho dos lotes e de tempo de espera na fila.
+     */
+    private final DistributionSummary batchSize;
+    private final Timer queueWait;
+
+    /**
+     * Transferências aplicadas diretamente por estar a fila cheia.
+     */
+    private final Counter overflow;
+
+    /**
+     * Transferências retiradas da fila e aplicadas diretamente por esgotar o tempo de espera.
+     */
+    private final Counter timeouts;
+
+    private volatile Thread worker;
+
+    /**
+     * Método construtor do estágio de agrupamento.
+     * @param transferEngine motor de transferências.
+     * @param registry registro de métricas.
+     * @param enabled habilita o agrupamento.
+     * @param size quantidade máxima de itens por lote.
+     * @param lingerMicros tempo máximo de espera, em microssegundos.
+     * @param capacity quantidade máxima de transferências na fila.
+     * @param timeout tempo máximo de espera do chamador pelo resultado do lote.
+     */
+    @Autowired
+    public TransferBatcher(TransferEngine transferEngine, MeterRegistry registry,
+                           @Value("${desafio.transfer.batch.enabled:true}") boolean enabled,
+                           @Value("${desafio.transfer.batch.size:64}") int size,
+                           @Value("${desafio.transfer.batch.linger-micros:300}") long lingerMicros,
+                           @Value("${desafio.transfer.batch.capacity:1024}") int capacity,
+                           @Value("${desafio.transfer.batch.timeout:5s}") Duration timeout) {
+        this.transferEngine = transferEngine;
+        this.enabled = enabled;
+        this.size = Math.max(1, size);
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.timeoutNanos = timeout.toNanos();
+        this.batchSize = DistributionSummary.builder("desafio.transfer.batch.size")
+                .description("Quantidade de transferências por commit")
+                .register(registry);
+        this.queueWait = Timer.builder("desafio.transfer.batch.queue.wait")
+                .description("Tempo de espera das transferências na fila")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.overflow = Counter.builder("desafio.transfer.batch.overflow")
+                .description("Transferências aplicadas diretamente com a fila cheia")
+                .register(registry);
+        this.timeouts = Counter.builder("desafio.transfer.batch.timeout")
+                .description("Transferências aplicadas diretamente após esgotar a espera na fila")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        worker = new Thread(this::run, "transfer-batcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) thread.interrupt();
+        Pending pending;
+        while ((pending = queue.poll()) != null)
+            pending.future.completeExceptionally(new IllegalStateException("Aplicação em encerramento."));
+    }
+
+    /**
+     * Submete uma transferência e aguarda o seu resultado; com a fila cheia, a transferência é aplicada
+     * diretamente pelo motor. Dentro de uma transação do chamador, a transferência também é aplicada
+     * diretamente, para que seja confirmada na mesma transação.
+     * @param transferValue Objeto da classe interna Conta.TransferValue com origem, destino e valor.
+     * @return Retorna o resultado da transferência.
+     */
+    public Conta.TransferResult transfer(Conta.TransferValue transferValue) {
+        if (worker == null || TransactionSynchronizationManager.isActualTransactionActive())
+            return transferEngine.transfer(transferValue);
+        Pending pending = new Pending(transferValue);
+        if (!queue.offer(pending)) {
+            overflow.increment();
+            return transferEngine.transfer(transferValue);
+        }
+        try {
+            return pending.future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            //ainda não retirada pela 'thread' de agrupamento: deixa de fazer parte do lote
+            if (pending.claim()) {
+                queue.remove(pending);
+                timeouts.increment();
+                return transferEngine.transfer(transferValue);
+            }
+            throw new IllegalStateException("Transferência em andamento sem resultado após "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms; o resultado é indeterminado.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pending.claim()) throw new IllegalStateException("Transferência interrompida antes da aplicação.");
+            throw new IllegalStateException("Transferência interrompida em andamento; o resultado é indeterminado.");
+        }
+    }
+
+    /**
+     * @return Retorna a quantidade de transferências aguardando na fila.
+     */
+    int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Laço da 'thread' de agrupamento: aguarda o primeiro item e coleta os demais até o limite de tamanho ou
+     * de tempo.
+     */
+    private void run() {
+        List<Pending> batch = new ArrayList<>(size);
+        while (worker != null) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < size) {
+                    if (queue.drainTo(batch, size - batch.size()) > 0) continue;
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Aplica um lote e completa os 'futures' de cada chamador. Se a transação do lote falhar, os itens são
+     * reaplicados individualmente para que um único erro não afete os demais.
+     * @param batch lote de transferências pendentes.
+     */
+    private void flush(List<Pending> batch) {
+        //itens cujos chamadores desistiram da espera não são aplicados
+        batch.removeIf(pending -> !pending.claim());
+        if (batch.isEmpty()) return;
+        long now = System.nanoTime();
+        List<Conta.TransferValue> transfers = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            queueWait.record(now - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+            transfers.add(pending.transferValue);
+        }
+        batchSize.record(batch.size());
+        try {
+            List<Conta.TransferResult> results = transferEngine.transferAll(transfers);
+            for (int i = 0; i < batch.size(); i++)
+                batch.get(i).future.complete(results.get(i));
+        } catch (RuntimeException e) {
+            log.warn("Falha no lote de {} transferências; reaplicando individualmente.", batch.size(), e);
+            for (Pending pending : batch) {
+                try {
+                    pending.future.complete(transferEngine.transfer(pending.transferValue));
+                } catch (RuntimeException ex) {
+                    pending.future.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Transferência aguardando na fila.
+     */
+    private static final class Pending {
+        final Conta.TransferValue transferValue;
+        final CompletableFuture<Conta.TransferResult> future = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+
+        /**
+         * Indica se o item já foi reservado: pela 'thread' de agrupamento, para o lote, ou pelo chamador, que
+         * desistiu da espera.
+         */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Pending(Conta.TransferValue transferValue) {
+            this.transferValue = transferValue;
+        }
+
+        /**
+         * @return Retorna verdadeiro para quem reservar o item primeiro.
+         */
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+}
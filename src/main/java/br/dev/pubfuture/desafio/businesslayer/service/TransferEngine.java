@@ -0,0 +1,297 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.persistence.ContaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Motor de transferências entre contas.
+ * Cada conta é associada a uma faixa ('stripe') de um vetor fixo de travas, de modo que transferências entre
+ * contas disjuntas prosseguem em paralelo, enquanto as que disputam a mesma conta aguardam em fila (as travas
+ * são justas). As travas são sempre adquiridas em ordem crescente de índice, o que impede 'deadlocks', e só são
+ * liberadas após o 'commit' da transação que grava o débito e o crédito. Quando o motor participa da transação de
+ * um chamador, o 'commit' ocorre depois do retorno e as travas são liberadas no término dessa transação.
+ */
+@Service
+public class TransferEngine {
+
+    /**
+     * Instanciação do objeto do repositório 'ContaRepository'.
+     */
+    private final ContaRepository contaRepository;
+
+    /**
+     * Modelo de transação programática, a fim de que o 'commit' ocorra enquanto as travas estão adquiridas.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Vetor de travas justas; seu tamanho é sempre uma potência de dois.
+     */
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Cache de leitura das contas, invalidado após o 'commit' de cada transferência, antes da liberação das
+     * travas.
+     */
+    private final EntityCache<Conta> contaCache;
+
+    /**
+     * Método construtor do motor de transferências.
+     * @param contaRepository repositório de contas.
+     * @param transactionManager gerenciador de transações do Spring.
+     * @param stripes quantidade desejada de travas (arredondada para a próxima potência de dois).
+     * @param contaCache cache de leitura das contas.
+     */
+    @Autowired
+    public TransferEngine(ContaRepository contaRepository, PlatformTransactionManager transactionManager,
+                          @Value("${desafio.transfer.stripes:64}") int stripes, EntityCache<Conta> contaCache) {
+        this.contaRepository = contaRepository;
+        this.contaCache = contaCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++)
+            this.stripes[i] = new ReentrantLock(true);
+    }
+
+    /**
+     * Realiza a transferência de forma atômica: o débito e o crédito são gravados em uma única transação,
+     * executada com as travas das duas contas adquiridas.
+     * @param transferValue Objeto da classe interna Conta.TransferValue com origem, destino e valor.
+     * @return Retorna um objeto Conta.TransferResult com a situação da operação e os saldos resultantes.
+     */
+    public Conta.TransferResult transfer(Conta.TransferValue transferValue) {
+        return locked(List.of(transferValue), status -> {
+            Conta.TransferResult result = apply(transferValue);
+            if (result.getStatus() != Conta.TransferResult.Status.OK) {
+                status.setRollbackOnly();
+                return result;
+            }
+            fillBalances(List.of(transferValue), List.of(result));
+            evictMoved(List.of(result));
+            return result;
+        });
+    }
+
+    /**
+     * Realiza um lote de transferências em uma única transação (um único 'commit'), com as travas de todas as
+     * contas envolvidas adquiridas em ordem. Cada item é aplicado na ordem recebida e possui o seu próprio
+     * resultado: uma transferência recusada não interfere nas demais do lote.
+     * @param transfers Coleção de objetos da classe interna Conta.TransferValue.
+     * @return Retorna uma coleção de resultados, na mesma ordem dos itens recebidos.
+     */
+    public List<Conta.TransferResult> transferAll(List<Conta.TransferValue> transfers) {
+        return locked(transfers, status -> {
+            List<Conta.TransferResult> results = new ArrayList<>(transfers.size());
+            for (Conta.TransferValue transferValue : transfers)
+                results.add(apply(transferValue));
+            fillBalances(transfers, results);
+            evictMoved(results);
+            return results;
+        });
+    }
+
+    /**
+     * Liquida um lote de transferências em memória: todas as contas envolvidas são carregadas com uma única
+     * consulta 'IN', as movimentações são aplicadas na ordem recebida sobre as entidades gerenciadas e as
+     * alterações são descarregadas no 'commit' por meio do 'batching' JDBC do Hibernate.
+     * No modo ATOMIC qualquer item recusado desfaz o lote inteiro e os itens válidos são reportados como
+     * ABORTED; no modo BEST_EFFORT apenas os itens recusados deixam de ser aplicados.
+     * @param transfers Coleção de objetos da classe interna Conta.TransferValue.
+     * @param mode Modo de liquidação do lote.
+     * @return Retorna uma coleção de resultados, na mesma ordem dos itens recebidos.
+     */
+    public List<Conta.TransferResult> settle(List<Conta.TransferValue> transfers, Conta.TransferMode mode) {
+        return locked(transfers, status -> {
+            Set<Long> ids = new HashSet<>();
+            for (Conta.TransferValue transferValue : transfers) {
+                ids.add(transferValue.getFrom());
+                ids.add(transferValue.getTo());
+            }
+            Map<Long, Conta> contas = new HashMap<>();
+            for (Conta conta : contaRepository.findAllById(ids))
+                contas.put(conta.getId(), conta);
+            List<Conta.TransferResult> results = new ArrayList<>(transfers.size());
+            boolean failed = false;
+            for (Conta.TransferValue transferValue : transfers) {
+                Conta.TransferResult result = move(contas, transferValue);
+                failed |= result.getStatus() != Conta.TransferResult.Status.OK;
+                results.add(result);
+            }
+            if (failed && mode == Conta.TransferMode.ATOMIC) {
+                status.setRollbackOnly();
+                for (Conta.TransferResult result : results) {
+                    if (result.getStatus() != Conta.TransferResult.Status.OK) continue;
+                    result.setStatus(Conta.TransferResult.Status.ABORTED);
+                    result.setFromBalance(0);
+                    result.setToBalance(0);
+                }
+            } else
+                evictMoved(results);
+            return results;
+        });
+    }
+
+    /**
+     * Aplica uma transferência sobre as entidades carregadas em memória.
+     * @param contas Contas do lote, indexadas pelo 'id'.
+     * @param transferValue Objeto da classe interna Conta.TransferValue com origem, destino e valor.
+     * @return Retorna a situação da operação e os saldos logo após a movimentação.
+     */
+    private Conta.TransferResult move(Map<Long, Conta> contas, Conta.TransferValue transferValue) {
+        long from = transferValue.getFrom();
+        long to = transferValue.getTo();
+        Conta contaOrigem = contas.get(from);
+        Conta contaDestino = contas.get(to);
+        if (contaOrigem == null || contaDestino == null)
+            return Conta.TransferResult.of(Conta.TransferResult.Status.NOT_FOUND, from, to);
+        if (transferValue.getValue() <= 0)
+            return Conta.TransferResult.of(Conta.TransferResult.Status.INVALID_VALUE, from, to);
+        if (contaOrigem.getBalance() - transferValue.getValue() < 0)
+            return Conta.TransferResult.of(Conta.TransferResult.Status.INSUFFICIENT_FUNDS, from, to);
+        contaOrigem.setBalance(contaOrigem.getBalance() - transferValue.getValue());
+        contaDestino.setBalance(contaDestino.getBalance() + transferValue.getValue());
+        return Conta.TransferResult.builder()
+                .status(Conta.TransferResult.Status.OK)
+                .from(from)
+                .fromBalance(contaOrigem.getBalance())
+                .to(to)
+                .toBalance(contaDestino.getBalance())
+                .build();
+    }
+
+    /**
+     * Aplica a transferência dentro da transação corrente.
+     * O débito é condicional ao saldo ('UPDATE ... WHERE saldo >= ?'), portanto a insuficiência de saldo é
+     * detectada pela quantidade de registros alterados, sem leitura prévia das contas. As consultas de
+     * existência só são feitas no caminho de falha, para distinguir conta inexistente de saldo insuficiente.
+     * Os saldos resultantes são preenchidos posteriormente pelo método 'fillBalances'.
+     * @param transferValue Objeto da classe interna Conta.TransferValue com origem, destino e valor.
+     * @return Retorna a situação da operação.
+     */
+    private Conta.TransferResult apply(Conta.TransferValue transferValue) {
+        long from = transferValue.getFrom();
+        long to = transferValue.getTo();
+        if (transferValue.getValue() <= 0)
+            return Conta.TransferResult.of(Conta.TransferResult.Status.INVALID_VALUE, from, to);
+        if (contaRepository.debit(from, transferValue.getValue()) == 0) {
+            boolean found = contaRepository.existsById(from) && contaRepository.existsById(to);
+            return Conta.TransferResult.of(found ? Conta.TransferResult.Status.INSUFFICIENT_FUNDS
+                    : Conta.TransferResult.Status.NOT_FOUND, from, to);
+        }
+        if (contaRepository.credit(to, transferValue.getValue()) == 0) {
+            //destino inexistente: o débito é estornado, pois a transação pode conter outros itens
+            contaRepository.credit(from, transferValue.getValue());
+            return Conta.TransferResult.of(Conta.TransferResult.Status.NOT_FOUND, from, to);
+        }
+        return Conta.TransferResult.of(Conta.TransferResult.Status.OK, from, to);
+    }
+
+    /**
+     * Preenche os saldos resultantes de cada transferência bem-sucedida com uma única consulta 'IN'.
+     * Os saldos lidos são os finais; percorrendo os resultados do fim para o início e desfazendo cada
+     * movimentação obtém-se o saldo de cada conta logo após cada item.
+     * @param transfers Coleção de transferências aplicadas, com os valores movimentados.
+     * @param results Coleção de resultados produzidos pelo método 'apply', na mesma ordem das transferências.
+     */
+    private void fillBalances(List<Conta.TransferValue> transfers, List<Conta.TransferResult> results) {
+        Set<Long> ids = new HashSet<>();
+        for (Conta.TransferResult result : results) {
+            if (result.getStatus() != Conta.TransferResult.Status.OK) continue;
+            ids.add(result.getFrom());
+            ids.add(result.getTo());
+        }
+        if (ids.isEmpty()) return;
+        Map<Long, Long> balances = new HashMap<>();
+        for (Conta conta : contaRepository.findAllById(ids))
+            balances.put(conta.getId(), conta.getBalance());
+        for (int i = results.size() - 1; i >= 0; i--) {
+            Conta.TransferResult result = results.get(i);
+            if (result.getStatus() != Conta.TransferResult.Status.OK) continue;
+            long value = transfers.get(i).getValue();
+            long fromBalance = balances.get(result.getFrom());
+            long toBalance = balances.get(result.getTo());
+            result.setFromBalance(fromBalance);
+            result.setToBalance(toBalance);
+            balances.put(result.getTo(), toBalance - value);
+            balances.put(result.getFrom(), balances.get(result.getFrom()) + value);
+        }
+    }
+
+    /**
+     * Invalida no cache, após o 'commit', as contas movimentadas pelas transferências bem-sucedidas.
+     * @param results Coleção de resultados.
+     */
+    private void evictMoved(List<Conta.TransferResult> results) {
+        Set<Long> ids = new HashSet<>();
+        for (Conta.TransferResult result : results) {
+            if (result.getStatus() != Conta.TransferResult.Status.OK) continue;
+            ids.add(result.getFrom());
+            ids.add(result.getTo());
+        }
+        if (!ids.isEmpty()) contaCache.evictAllAfterCommit(ids);
+    }
+
+    /**
+     * Executa a ação em uma transação com as travas das contas envolvidas adquiridas. Fora de uma transação, as
+     * travas são liberadas após o 'commit' do próprio modelo; dentro da transação de um chamador, à qual o modelo
+     * se junta, apenas no término dessa transação, na mesma 'thread' que as adquiriu.
+     * @param transfers Coleção de transferências.
+     * @param action Ação executada na transação.
+     * @return Retorna o resultado da ação.
+     */
+    private <T> T locked(Collection<Conta.TransferValue> transfers, TransactionCallback<T> action) {
+        int[] locked = lockAll(transfers);
+        boolean deferred = false;
+        try {
+            deferred = AfterCommit.afterCompletion(() -> unlockAll(locked));
+            return transactionTemplate.execute(action);
+        } finally {
+            if (!deferred) unlockAll(locked);
+        }
+    }
+
+    /**
+     * Adquire, em ordem crescente de índice e sem repetições, as travas de todas as contas envolvidas.
+     * @param transfers Coleção de transferências.
+     * @return Retorna os índices das travas adquiridas.
+     */
+    private int[] lockAll(Collection<Conta.TransferValue> transfers) {
+        int[] indexes = transfers.stream()
+                .flatMapToInt(t -> Arrays.stream(new int[]{stripeOf(t.getFrom()), stripeOf(t.getTo())}))
+                .distinct()
+                .sorted()
+                .toArray();
+        for (int index : indexes)
+            stripes[index].lock();
+        return indexes;
+    }
+
+    /**
+     * Libera as travas na ordem inversa da aquisição.
+     * @param indexes Índices retornados pelo método 'lockAll'.
+     */
+    private void unlockAll(int[] indexes) {
+        for (int i = indexes.length - 1; i >= 0; i--)
+            stripes[indexes[i]].unlock();
+    }
+
+    /**
+     * Calcula o índice da trava associada a uma conta, espalhando os bits do 'id'.
+     * @param id Código identificador da conta.
+     * @return Retorna o índice da trava no vetor.
+     */
+    private int stripeOf(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (stripes.length - 1);
+    }
+
+}
@@ -0,0 +1,138 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Contadores em memória da quantidade e do somatório dos lançamentos por tipo e por tipo e conta, em vetores
+ * indexados pela posição ordinal do tipo (4 tipos de receita e 8 de despesa).
+ * Cada alteração (inclusive a troca de tipo ou de conta) é aplicada sob um único bloqueio de escrita, de modo
+ * que uma leitura nunca observa a alteração pela metade.
+ */
+@Component
+public class TypeCounters implements LedgerProjection {
+
+    private final Map<Rollup.Kind, Counters> counters = new EnumMap<>(Rollup.Kind.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TypeCounters() {
+        counters.put(Rollup.Kind.RECEITA, new Counters(Receita.Revenue.values().length));
+        counters.put(Rollup.Kind.DESPESA, new Counters(Despesa.TypeOfExpense.values().length));
+    }
+
+    @Override
+    public void apply(Rollup.Kind kind, LedgerEntry before, LedgerEntry after) {
+        Counters byKind = counters.get(kind);
+        lock.writeLock().lock();
+        try {
+            if (before != null) byKind.add(before, -1);
+            if (after != null) byKind.add(after, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear(Rollup.Kind kind) {
+        lock.writeLock().lock();
+        try {
+            counters.get(kind).clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param kind natureza do lançamento.
+     * @param account conta (nula para todas).
+     * @return Retorna o somatório, em centavos, e a quantidade de cada tipo, na posição ordinal do tipo.
+     */
+    public Stats[] stats(Rollup.Kind kind, Integer account) {
+        Counters byKind = counters.get(kind);
+        lock.readLock().lock();
+        try {
+            Cells cells = account == null ? byKind.all : byKind.byAccount.get(account);
+            Stats[] stats = new Stats[byKind.all.count.length];
+            for (int type = 0; type < stats.length; type++)
+                stats[type] = cells == null ? new Stats(0, 0) : new Stats(cells.sum[type], cells.count[type]);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Classe interna com o somatório, em centavos, e a quantidade de lançamentos de um tipo.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Stats {
+        private final long total;
+        private final long quantity;
+    }
+
+    /**
+     * Contadores de uma natureza de lançamento: gerais e por conta.
+     */
+    private static final class Counters {
+        final Cells all;
+        final Map<Integer, Cells> byAccount = new HashMap<>();
+
+        Counters(int types) {
+            all = new Cells(types);
+        }
+
+        void add(LedgerEntry entry, int sign) {
+            all.add(entry.getType(), sign, entry.getCents());
+            Cells cells = byAccount.computeIfAbsent(entry.getAccount(), account -> new Cells(all.count.length));
+            cells.add(entry.getType(), sign, entry.getCents());
+            //contas sem lançamentos deixam de ocupar memória
+            if (cells.isEmpty()) byAccount.remove(entry.getAccount());
+        }
+
+        void clear() {
+            all.clear();
+            byAccount.clear();
+        }
+    }
+
+    /**
+     * Quantidade e somatório por posição ordinal do tipo.
+     */
+    private static final class Cells {
+        final long[] count;
+        final long[] sum;
+
+        Cells(int types) {
+            count = new long[types];
+            sum = new long[types];
+        }
+
+        void add(int type, int sign, long cents) {
+            count[type] += sign;
+            sum[type] += sign * cents;
+        }
+
+        boolean isEmpty() {
+            for (int type = 0; type < count.length; type++)
+                if (count[type] != 0 || sum[type] != 0) return false;
+            return true;
+        }
+
+        void clear() {
+            Arrays.fill(count, 0);
+            Arrays.fill(sum, 0);
+        }
+    }
+
+}
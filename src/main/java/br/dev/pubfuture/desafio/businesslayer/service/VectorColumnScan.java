@@ -0,0 +1,53 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import jdk.incubator.vector.*;
+
+/**
+ * Implementação da varredura de colunas com a 'Vector API'.
+ * Cada bloco processa tantas linhas quantas couberem em um vetor de 'long' da arquitetura (4 com AVX2, 8 com
+ * AVX-512): dias, tipos e contas são carregados em vetores de mesma quantidade de posições, convertidos para
+ * 'long' e comparados, e a máscara resultante seleciona os centavos somados.
+ * Esta classe só é compilada com '-PvectorApi' e só é carregada quando o módulo 'jdk.incubator.vector' estiver
+ * disponível.
+ */
+final class VectorColumnScan implements ColumnScan {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final int LANES = LONGS.length();
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, shape(Integer.SIZE));
+    private static final VectorSpecies<Short> SHORTS = VectorSpecies.of(short.class, shape(Short.SIZE));
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, shape(Byte.SIZE));
+
+    @Override
+    public long[] sumCount(int size, int[] days, long[] cents, byte[] types, short[] accounts,
+                           int startDay, int endDay, int type, int account) {
+        LongVector sum = LongVector.zero(LONGS);
+        long count = 0;
+        int i = 0;
+        for (; i <= size - LANES; i += LANES) {
+            LongVector day = (LongVector) IntVector.fromArray(INTS, days, i)
+                    .convertShape(VectorOperators.I2L, LONGS, 0);
+            VectorMask<Long> mask = day.compare(VectorOperators.GE, startDay)
+                    .and(day.compare(VectorOperators.LE, endDay));
+            if (type >= 0)
+                mask = mask.and(((LongVector) ByteVector.fromArray(BYTES, types, i)
+                        .convertShape(VectorOperators.B2L, LONGS, 0)).compare(VectorOperators.EQ, type));
+            if (account >= 0)
+                mask = mask.and(((LongVector) ShortVector.fromArray(SHORTS, accounts, i)
+                        .convertShape(VectorOperators.S2L, LONGS, 0)).compare(VectorOperators.EQ, account));
+            sum = sum.add(LongVector.fromArray(LONGS, cents, i), mask);
+            count += mask.trueCount();
+        }
+        long[] tail = ScalarColumnScan.sumCount(i, size, days, cents, types, accounts, startDay, endDay, type, account);
+        return new long[]{sum.reduceLanes(VectorOperators.ADD) + tail[0], count + tail[1]};
+    }
+
+    /**
+     * @return Retorna o formato de vetor com a mesma quantidade de posições do vetor de 'long' (no mínimo 64 bits;
+     * as posições excedentes, cobertas pelo 'PADDING' das colunas, são descartadas na conversão).
+     */
+    private static VectorShape shape(int laneBits) {
+        return VectorShape.forBitSize(Math.max(64, LANES * laneBits));
+    }
+
+}
@@ -0,0 +1,531 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fila de gravação assíncrona ('write-behind') de uma entidade.
+ * As entidades validadas, já com o 'id' reservado, são registradas em um diário ('journal') em disco e colocadas
+ * em um 'buffer' circular limitado; a confirmação ao cliente ocorre após o registro no diário. Uma única 'thread'
+ * esvazia o 'buffer' em lotes, cada lote gravado em uma única transação.
+ * Com o 'buffer' cheio a entidade é recusada ('FULL') e cabe ao chamador sinalizar ao cliente que tente
+ * novamente; com a fila desabilitada ou encerrada ('CLOSED'), cabe ao chamador gravá-la de forma síncrona.
+ * O diário é dividido em segmentos de até 'segmentSize' entidades ('nome-<sequência da primeira>.journal') e cada
+ * entidade recebe um número de sequência crescente. Como o 'buffer' preserva a ordem do diário, as entidades são
+ * concluídas em ordem e basta registrar a última concluída em um arquivo de posição ('nome.checkpoint'); um
+ * segmento é removido assim que todas as suas entidades forem concluídas. Na inicialização, apenas as entidades
+ * após a posição registrada que não estiverem no banco de dados (queda da aplicação) são gravadas, antes de
+ * qualquer nova entrada; as concluídas nunca são regravadas, mesmo que tenham sido removidas depois.
+ * Uma entidade cuja gravação falha é regravada com espera exponencial; esgotadas as tentativas, é registrada no
+ * diário de falhas ('nome.deadletter') antes de ser concluída, e esse diário é regravado na inicialização. Uma
+ * entidade confirmada ao cliente, portanto, nunca é descartada.
+ * @param <T> tipo da entidade.
+ */
+public class WriteBehind<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehind.class);
+
+    /**
+     * Tentativas de gravação individual de uma entidade antes do registro no diário de falhas, e espera inicial e
+     * máxima entre elas, em milissegundos.
+     */
+    private static final int ATTEMPTS = 5;
+    private static final long BACKOFF = 100;
+    private static final long MAX_BACKOFF = 5000;
+
+    private final String name;
+    private final Class<T> type;
+    private final Consumer<List<T>> writer;
+    private final Predicate<T> persisted;
+    private final Runnable recovered;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int batchSize;
+    private final boolean fsync;
+    private final int segmentSize;
+    private final Path journalDir;
+    private final Path checkpointPath;
+    private final Path deadLetterPath;
+
+    /**
+     * 'Buffer' circular limitado (vetor de capacidade fixa).
+     */
+    private final BlockingQueue<T> buffer;
+
+    /**
+     * Segmento corrente do diário e quantidade de entidades nele, segmentos fechados com a sequência da última
+     * entidade, e sequências da última entidade registrada e da última concluída (gravada ou descartada),
+     * protegidos pelo monitor da instância.
+     */
+    private FileChannel journal;
+    private int segmentCount;
+    private final Deque<Segment> closed = new ArrayDeque<>();
+    private Path segmentPath;
+    private long appended;
+    private long completed;
+
+    private final Timer flushLatency;
+    private final DistributionSummary flushSize;
+    private final Counter rejected;
+    private final Counter failed;
+
+    private volatile Thread worker;
+    private volatile boolean stopping;
+
+    /**
+     * @param name nome da fila (métricas, 'thread' e arquivo do diário).
+     * @param type classe da entidade, utilizada na leitura do diário.
+     * @param writer gravação de um lote em uma única transação.
+     * @param persisted verifica se uma entidade do diário já está no banco de dados.
+     * @param recovered executado após a gravação das entidades recuperadas do diário (reposicionamento da
+     *                  sequência de 'id').
+     * @param objectMapper conversor Json do diário.
+     * @param settings configuração da fila.
+     * @param registry registro de métricas.
+     */
+    public WriteBehind(String name, Class<T> type, Consumer<List<T>> writer, Predicate<T> persisted,
+                       Runnable recovered, ObjectMapper objectMapper, Settings settings, MeterRegistry registry) {
+        this.name = name;
+        this.type = type;
+        this.writer = writer;
+        this.persisted = persisted;
+        this.recovered = recovered;
+        this.objectMapper = objectMapper;
+        this.enabled = settings.enabled;
+        this.batchSize = Math.max(1, settings.batchSize);
+        this.fsync = settings.fsync;
+        this.segmentSize = Math.max(1, settings.segmentSize);
+        this.journalDir = settings.journalDir;
+        this.checkpointPath = journalDir.resolve(name + ".checkpoint");
+        this.deadLetterPath = journalDir.resolve(name + ".deadletter");
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, settings.capacity));
+        Gauge.builder("desafio.ingest.queue.depth", buffer, BlockingQueue::size)
+                .description("Entidades aguardando gravação")
+                .tag("name", name)
+                .register(registry);
+        this.flushLatency = Timer.builder("desafio.ingest.flush")
+                .description("Tempo de gravação de cada lote")
+                .tag("name", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.flushSize = DistributionSummary.builder("desafio.ingest.flush.size")
+                .description("Quantidade de entidades por lote")
+                .tag("name", name)
+                .register(registry);
+        this.rejected = Counter.builder("desafio.ingest.rejected")
+                .description("Entidades recusadas por 'buffer' cheio")
+                .tag("name", name)
+                .register(registry);
+        this.failed = Counter.builder("desafio.ingest.failed")
+                .description("Entidades confirmadas registradas no diário de falhas")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    /**
+     * Grava as entidades pendentes do diário e inicia a 'thread' de gravação.
+     */
+    public void start() throws IOException {
+        if (!enabled) return;
+        Files.createDirectories(journalDir);
+        if (replay() > 0) recovered.run();
+        open();
+        worker = new Thread(this::run, name + "-write-behind");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Recusa novas entradas, aguarda a gravação das pendentes e fecha o diário. O que não for gravado permanece
+     * no diário e é gravado na próxima inicialização.
+     */
+    public void stop() throws InterruptedException, IOException {
+        Thread thread;
+        synchronized (this) {
+            thread = worker;
+            worker = null;
+        }
+        if (thread == null) return;
+        //a 'thread' não é interrompida: a interrupção durante uma escrita do H2 fecharia o arquivo do banco
+        stopping = true;
+        thread.join(TimeUnit.SECONDS.toMillis(30));
+        synchronized (this) {
+            journal.close();
+        }
+    }
+
+    /**
+     * @return Retorna verdadeiro quando a gravação assíncrona estiver habilitada e em funcionamento.
+     */
+    public boolean isEnabled() {
+        return worker != null;
+    }
+
+    /**
+     * Registra a entidade no diário e a coloca na fila de gravação.
+     * @param entity entidade validada, com o 'id' reservado.
+     * @return Retorna 'QUEUED' quando a entidade for registrada, ou, sem registrá-la, 'FULL' quando o 'buffer'
+     * estiver cheio e 'CLOSED' quando a fila estiver desabilitada ou encerrada.
+     * @throws UncheckedIOException quando o registro no diário falhar.
+     */
+    public synchronized Offer offer(T entity) {
+        if (worker == null) return Offer.CLOSED;
+        if (buffer.remainingCapacity() == 0) {
+            rejected.increment();
+            return Offer.FULL;
+        }
+        long size = 0;
+        try {
+            if (segmentCount == segmentSize) rotate();
+            byte[] line = objectMapper.writeValueAsBytes(entity);
+            ByteBuffer bytes = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+            size = journal.position();
+            while (bytes.hasRemaining()) journal.write(bytes);
+            if (fsync) journal.force(false);
+        } catch (IOException e) {
+            //descarta a linha parcial, que seria emendada à próxima
+            try {
+                journal.truncate(size);
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw new UncheckedIOException(e);
+        }
+        buffer.add(entity);
+        appended++;
+        segmentCount++;
+        return Offer.QUEUED;
+    }
+
+    /**
+     * Laço da 'thread' de gravação: aguarda a primeira entidade e leva as demais já enfileiradas, até o tamanho
+     * do lote. No encerramento, grava o que restou no 'buffer'.
+     */
+    private void run() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (!stopping || !buffer.isEmpty()) {
+            try {
+                T first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                if (!flush(batch)) return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Grava um lote. Se a transação do lote falhar, as entidades são regravadas individualmente ('retry') para que
+     * um único erro não afete as demais.
+     * @param batch lote de entidades.
+     * @return Retorna falso quando o encerramento interromper as novas tentativas; as entidades não concluídas
+     * permanecem no diário e a 'thread' de gravação termina, pois as entidades são concluídas em ordem.
+     */
+    private boolean flush(List<T> batch) {
+        flushSize.record(batch.size());
+        long start = System.nanoTime();
+        try {
+            writer.accept(batch);
+        } catch (RuntimeException e) {
+            log.warn("Falha no lote de {} entidades ({}); regravando individualmente.", batch.size(), name, e);
+            for (int i = 0; i < batch.size(); i++) {
+                if (retry(batch.get(i))) continue;
+                complete(i);
+                return false;
+            }
+        }
+        flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        complete(batch.size());
+        return true;
+    }
+
+    /**
+     * Grava uma entidade individualmente, com espera exponencial entre as tentativas. Esgotadas as tentativas, a
+     * entidade é registrada no diário de falhas; se nem esse registro for possível, as tentativas continuam.
+     * @return Retorna verdadeiro quando a entidade for gravada ou registrada no diário de falhas, e falso quando
+     * o encerramento a interromper antes disso.
+     */
+    private boolean retry(T entity) {
+        long backoff = BACKOFF;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writer.accept(List.of(entity));
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= ATTEMPTS) {
+                    try {
+                        deadLetter(entity);
+                        failed.increment();
+                        log.error("Entidade registrada no diário de falhas {}: {}", deadLetterPath, entity, e);
+                        return true;
+                    } catch (IOException ex) {
+                        log.error("Falha ao registrar a entidade no diário de falhas {}: {}", deadLetterPath, entity,
+                                ex);
+                    }
+                }
+            }
+            if (stopping) return false;
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+
+    /**
+     * Acrescenta uma entidade ao diário de falhas.
+     */
+    private void deadLetter(T entity) throws IOException {
+        byte[] line = objectMapper.writeValueAsBytes(entity);
+        try (FileChannel channel = FileChannel.open(deadLetterPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+            while (bytes.hasRemaining()) channel.write(bytes);
+            if (fsync) channel.force(false);
+        }
+    }
+
+    /**
+     * Contabiliza as entidades concluídas, registra a posição e remove os segmentos inteiramente concluídos. Sem
+     * entidades pendentes, o segmento corrente também é fechado e removido.
+     */
+    private synchronized void complete(int count) {
+        completed += count;
+        try {
+            checkpoint(completed);
+            if (completed == appended && segmentCount > 0 && journal.isOpen()) rotate();
+            while (!closed.isEmpty() && closed.peekFirst().last <= completed)
+                Files.deleteIfExists(closed.removeFirst().path);
+        } catch (IOException e) {
+            log.warn("Falha ao registrar a posição do diário {}.", checkpointPath, e);
+        }
+    }
+
+    /**
+     * Abre um novo segmento do diário, a partir da próxima sequência.
+     */
+    private void open() throws IOException {
+        segmentPath = journalDir.resolve(String.format("%s-%019d.journal", name, appended + 1));
+        journal = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segmentCount = 0;
+    }
+
+    /**
+     * Fecha o segmento corrente, removido quando todas as suas entidades forem concluídas, e abre o próximo.
+     */
+    private void rotate() throws IOException {
+        journal.close();
+        closed.addLast(new Segment(segmentPath, appended));
+        open();
+    }
+
+    /**
+     * Registra a sequência da última entidade concluída, substituindo o arquivo de posição de forma atômica.
+     */
+    private void checkpoint(long sequence) throws IOException {
+        Path temporary = journalDir.resolve(name + ".checkpoint.tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(Long.toString(sequence).getBytes(StandardCharsets.US_ASCII));
+            while (bytes.hasRemaining()) channel.write(bytes);
+            if (fsync) channel.force(false);
+        }
+        Files.move(temporary, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Grava, em lotes, as entidades dos segmentos do diário posteriores à posição registrada que ainda não estão
+     * no banco de dados. Uma última linha incompleta (queda durante o registro) nunca foi confirmada ao cliente e
+     * é ignorada. Ao final, a posição passa a ser a última sequência lida e os segmentos são removidos.
+     * @return Retorna a quantidade de entidades gravadas.
+     */
+    private int replay() throws IOException {
+        int replayed = replayDeadLetters();
+        long position = 0;
+        if (Files.exists(checkpointPath)) {
+            String value = Files.readString(checkpointPath, StandardCharsets.US_ASCII).trim();
+            try {
+                position = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                log.warn("Posição inválida ignorada no diário {}: {}", checkpointPath, value);
+            }
+        }
+        List<Segment> segments = new ArrayList<>();
+        Pattern pattern = Pattern.compile(Pattern.quote(name) + "-(\\d{19})\\.journal");
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journalDir)) {
+            for (Path file : files) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) segments.add(new Segment(file, Long.parseLong(matcher.group(1)) - 1));
+            }
+        }
+        segments.sort(Comparator.comparingLong(segment -> segment.last));
+        List<T> pending = new ArrayList<>(batchSize);
+        long sequence = position;
+        for (Segment segment : segments) {
+            //a sequência de cada segmento recomeça a partir do seu nome
+            sequence = Math.max(sequence, segment.last);
+            long line = segment.last;
+            try (BufferedReader reader = Files.newBufferedReader(segment.path, StandardCharsets.UTF_8)) {
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    if (text.isBlank()) continue;
+                    line++;
+                    sequence = Math.max(sequence, line);
+                    if (line <= position) continue;
+                    T entity;
+                    try {
+                        entity = objectMapper.readValue(text, type);
+                    } catch (IOException e) {
+                        log.warn("Linha inválida ignorada no diário {}: {}", segment.path, text);
+                        continue;
+                    }
+                    if (persisted.test(entity)) continue;
+                    pending.add(entity);
+                    replayed++;
+                    if (pending.size() == batchSize) {
+                        writer.accept(pending);
+                        pending = new ArrayList<>(batchSize);
+                    }
+                }
+            }
+        }
+        if (!pending.isEmpty()) writer.accept(pending);
+        appended = sequence;
+        completed = sequence;
+        checkpoint(sequence);
+        for (Segment segment : segments)
+            Files.delete(segment.path);
+        if (replayed > 0) log.info("{} entidades recuperadas do diário {}.", replayed, journalDir);
+        return replayed;
+    }
+
+    /**
+     * Grava individualmente as entidades do diário de falhas que ainda não estão no banco de dados; as que falharem
+     * novamente permanecem nele, substituído de forma atômica. Uma linha incompleta corresponde a uma entidade que
+     * não chegou a ser concluída e que, portanto, ainda está em um segmento do diário.
+     * @return Retorna a quantidade de entidades gravadas.
+     */
+    private int replayDeadLetters() throws IOException {
+        if (!Files.exists(deadLetterPath)) return 0;
+        List<String> remaining = new ArrayList<>();
+        int replayed = 0;
+        for (String text : Files.readAllLines(deadLetterPath, StandardCharsets.UTF_8)) {
+            if (text.isBlank()) continue;
+            T entity;
+            try {
+                entity = objectMapper.readValue(text, type);
+            } catch (IOException e) {
+                log.warn("Linha inválida ignorada no diário {}: {}", deadLetterPath, text);
+                continue;
+            }
+            if (persisted.test(entity)) continue;
+            try {
+                writer.accept(List.of(entity));
+                replayed++;
+            } catch (RuntimeException e) {
+                log.error("Entidade mantida no diário de falhas {}: {}", deadLetterPath, entity, e);
+                remaining.add(text);
+            }
+        }
+        if (remaining.isEmpty())
+            Files.delete(deadLetterPath);
+        else {
+            Path temporary = journalDir.resolve(name + ".deadletter.tmp");
+            Files.write(temporary, remaining, StandardCharsets.UTF_8);
+            Files.move(temporary, deadLetterPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        return replayed;
+    }
+
+    /**
+     * Resultado do registro de uma entidade ('offer').
+     */
+    public enum Offer {
+        QUEUED,
+        FULL,
+        CLOSED
+    }
+
+    /**
+     * Segmento do diário e sequência da sua última entidade (na leitura, a anterior à primeira).
+     */
+    private static final class Segment {
+        final Path path;
+        final long last;
+
+        Segment(Path path, long last) {
+            this.path = path;
+            this.last = last;
+        }
+    }
+
+    /**
+     * Configuração de uma fila de gravação assíncrona.
+     */
+    public static class Settings {
+        final boolean enabled;
+        final int capacity;
+        final int batchSize;
+        final boolean fsync;
+        final Path journalDir;
+        final int segmentSize;
+
+        /**
+         * @param enabled habilita a gravação assíncrona.
+         * @param capacity capacidade do 'buffer'.
+         * @param batchSize quantidade máxima de entidades por transação.
+         * @param fsync força a gravação do diário em disco a cada entidade.
+         * @param journalDir diretório do diário.
+         * @param segmentSize quantidade máxima de entidades por segmento do diário.
+         */
+        public Settings(boolean enabled, int capacity, int batchSize, boolean fsync, Path journalDir,
+                        int segmentSize) {
+            this.enabled = enabled;
+            this.capacity = capacity;
+            this.batchSize = batchSize;
+            this.fsync = fsync;
+            this.journalDir = journalDir;
+            this.segmentSize = segmentSize;
+        }
+    }
+
+}
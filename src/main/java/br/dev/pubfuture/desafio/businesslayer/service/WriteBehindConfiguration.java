@@ -0,0 +1,47 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import java.nio.file.Paths;
+
+/**
+ * Configuração das filas de gravação assíncrona de receitas e despesas ('desafio.ingest.*'). O diário de cada
+ * fila fica em 'desafio.ingest.journal-dir', ao lado do arquivo do banco de dados, em segmentos de até
+ * 'desafio.ingest.segment-size' entidades.
+ */
+@Configuration
+public class WriteBehindConfiguration {
+
+    @Bean
+    public WriteBehind.Settings writeBehindSettings(
+            @Value("${desafio.ingest.enabled:true}") boolean enabled,
+            @Value("${desafio.ingest.capacity:10000}") int capacity,
+            @Value("${desafio.ingest.batch-size:500}") int batchSize,
+            @Value("${desafio.ingest.fsync:true}") boolean fsync,
+            @Value("${desafio.ingest.journal-dir:../desafioJournal}") String journalDir,
+            @Value("${desafio.ingest.segment-size:10000}") int segmentSize) {
+        return new WriteBehind.Settings(enabled, capacity, batchSize, fsync, Paths.get(journalDir), segmentSize);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public WriteBehind<Receita> receitaIngest(ReceitaService receitaService, ObjectMapper objectMapper,
+                                              WriteBehind.Settings writeBehindSettings, MeterRegistry registry) {
+        return new WriteBehind<>("receita", Receita.class, receitaService::insertAll,
+                receita -> receitaService.existsById(receita.getId()), receitaService::restartIdSequence, objectMapper,
+                writeBehindSettings, registry);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public WriteBehind<Despesa> despesaIngest(DespesaService despesaService, ObjectMapper objectMapper,
+                                              WriteBehind.Settings writeBehindSettings, MeterRegistry registry) {
+        return new WriteBehind<>("despesa", Despesa.class, despesaService::insertAll,
+                despesa -> despesaService.existsById(despesa.getId()), despesaService::restartIdSequence, objectMapper,
+                writeBehindSettings, registry);
+    }
+
+}
@@ -0,0 +1,30 @@
+package br.dev.pubfuture.desafio.persistence;
+
+/**
+ * Projeção das consultas de agregação ('GROUP BY') de receitas e despesas.
+ * Cada linha contém o grupo (tipo, conta ou mês no formato yyyy-MM) e o somatório, a quantidade, o menor e o
+ * maior valor dos lançamentos do grupo, em centavos. Os nomes dos métodos correspondem aos apelidos das colunas
+ * das instruções SQL nativas, de modo que nenhuma entidade é carregada.
+ */
+public interface Aggregate {
+
+    String getGroupKey();
+
+    Long getTotal();
+
+    Long getQuantity();
+
+    Long getMinimum();
+
+    Long getMaximum();
+
+    /**
+     * Classe enum 'Dimension', contendo os agrupamentos disponíveis.
+     */
+    enum Dimension {
+        TYPE,
+        ACCOUNT,
+        MONTH
+    }
+
+}
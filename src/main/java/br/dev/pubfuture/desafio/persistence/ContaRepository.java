@@ -1,9 +1,13 @@
 package br.dev.pubfuture.desafio.persistence;
 
 import br.dev.pubfuture.desafio.businesslayer.Conta;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 
 /**
  * Interface de representação da camada de acesso ao banco de dados da classe Conta.
@@ -16,9 +20,50 @@ public interface ContaRepository extends CrudRepository<Conta, Long> {
      * Aqui se utilizou uma instrução SQL nativa a fim de lançar mão de diferentes abordagens na construção
      * do aplicativo, uma fez que se poderia utilizar a nomenclatura de nomes de consultas disponibilizadas pelo
      * próprio Spring Data JPA.
-     * @return Retorna um objeto 'float' com o somatório dos saldos existentes nas contas cadastradas na base.
+     * @return Retorna um objeto 'long' com o somatório, em centavos, dos saldos existentes nas contas cadastradas
+     * na base (nulo quando não há contas).
      */
     @Query(value = "SELECT SUM(saldo) FROM conta", nativeQuery = true)
-    Float totalBalance();
+    Long totalBalance();
+
+    /**
+     * Método abstrato que lê o saldo de uma conta, travando o registro até o fim da transação, de modo que
+     * a diferença entre o saldo anterior e o novo seja calculada sem interferência de escritas concorrentes.
+     * @param id Código identificador da conta.
+     * @return Retorna o saldo da conta ou nulo quando ela não existe.
+     */
+    @Query(value = "SELECT saldo FROM conta WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Long balanceForUpdate(@Param("id") long id);
+
+    /**
+     * Método abstrato que debita um valor de uma conta somente se houver saldo suficiente.
+     * A verificação e a escrita ocorrem na mesma instrução SQL, eliminando a janela entre a leitura do saldo
+     * e a sua atualização.
+     * @param id Código identificador da conta de origem.
+     * @param value Valor a ser debitado, em centavos.
+     * @return Retorna a quantidade de registros alterados (0 quando a conta não existe ou não há saldo).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE conta SET saldo = saldo - :value WHERE id = :id AND saldo >= :value", nativeQuery = true)
+    int debit(@Param("id") long id, @Param("value") long value);
+
+    /**
+     * Método abstrato que credita um valor em uma conta, instrução par do método 'debit'.
+     * @param id Código identificador da conta de destino.
+     * @param value Valor a ser creditado, em centavos.
+     * @return Retorna a quantidade de registros alterados (0 quando a conta não existe).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE conta SET saldo = saldo + :value WHERE id = :id", nativeQuery = true)
+    int credit(@Param("id") long id, @Param("value") long value);
+
+    /**
+     * Método abstrato de paginação por chave: encontra os registros com 'id' maior que o cursor, em ordem
+     * crescente de 'id', limitados pelo tamanho da página (sem OFFSET, aproveitando o índice da chave primária).
+     * @param id Cursor ('id' do último registro da página anterior, ou 0 para a primeira página).
+     * @param pageable Tamanho da página.
+     * @return Retorna uma coleção de contas.
+     */
+    List<Conta> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
 
 }
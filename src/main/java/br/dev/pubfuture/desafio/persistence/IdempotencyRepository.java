@@ -0,0 +1,28 @@
+package br.dev.pubfuture.desafio.persistence;
+
+import br.dev.pubfuture.desafio.businesslayer.IdempotencyRecord;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+
+/**
+ * Interface de representação da camada de acesso ao banco de dados da classe IdempotencyRecord.
+ */
+@Repository
+public interface IdempotencyRepository extends CrudRepository<IdempotencyRecord, String> {
+
+    /**
+     * Método abstrato que remove os registros expirados.
+     * @param now data e hora atual.
+     * @return Retorna a quantidade de registros removidos.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord x WHERE x.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+
+}
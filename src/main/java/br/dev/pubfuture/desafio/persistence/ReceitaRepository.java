@@ -1,11 +1,19 @@
 package br.dev.pubfuture.desafio.persistence;
 
 import br.dev.pubfuture.desafio.businesslayer.Receita;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Interface de representação da camada de acesso ao banco de dados da classe Receita.
@@ -13,15 +21,27 @@ import java.util.List;
 @Repository
 public interface ReceitaRepository extends CrudRepository<Receita, Long> {
 
+    /**
+     * Método abstrato que lê uma receita travando o registro até o fim da transação ('SELECT ... FOR UPDATE'), de
+     * modo que as alterações concorrentes de um mesmo registro sejam publicadas às projeções em memória na ordem
+     * dos 'commits'.
+     * @param id Código identificador da receita.
+     * @return Retorna um objeto Optional vazio ou não nulo.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Receita r WHERE r.id = :id")
+    Optional<Receita> findForUpdate(@Param("id") long id);
+
     /**
      * Método abstrato para o retorno do somatório do saldo das receitas cadastradas na base de dados.
      * Aqui se utilizou uma instrução SQL nativa a fim de lançar mão de diferentes abordagens na construção
      * do aplicativo, uma fez que se poderia utilizar a nomenclatura de nomes de consultas disponibilizadas pelo
      * próprio Spring Data JPA.
-     * @return Retorna um objeto 'float' com o somatório dos saldos existentes nas receitas cadastradas na base.
+     * @return Retorna um objeto 'long' com o somatório, em centavos, dos valores existentes nas receitas
+     * cadastradas na base (nulo quando não há receitas).
      */
     @Query(value = "SELECT SUM(valor) FROM receita", nativeQuery = true)
-    Float totalBalance();
+    Long totalBalance();
 
     /**
      * Método abstrato que encontra os registros em um determinado intervalo de datas.
@@ -38,4 +58,68 @@ public interface ReceitaRepository extends CrudRepository<Receita, Long> {
      */
     List<Receita> findReceitaByTypeOfRevenue(Receita.Revenue revenue);
 
+    /**
+     * Método abstrato de paginação por chave: encontra os registros com 'id' maior que o cursor, em ordem
+     * crescente de 'id', limitados pelo tamanho da página (sem OFFSET, aproveitando o índice da chave primária).
+     * @param id Cursor ('id' do último registro da página anterior, ou 0 para a primeira página).
+     * @param pageable Tamanho da página.
+     * @return Retorna uma coleção de receitas.
+     */
+    List<Receita> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    /**
+     * Método abstrato que percorre todos os registros como um 'Stream', lido do cursor JDBC em blocos do
+     * tamanho de 'fetch' informado, sem materializar uma coleção. Deve ser consumido dentro de uma transação
+     * e fechado ao final.
+     * @return Retorna um 'Stream' de receitas em ordem de 'id'.
+     */
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    @Query("SELECT x FROM Receita x ORDER BY x.id")
+    Stream<Receita> streamAll();
+
+    /**
+     * Método abstrato que percorre como um 'Stream' os registros de um determinado intervalo de datas.
+     * @param start Data inicial.
+     * @param end Data final.
+     * @return Retorna um 'Stream' de receitas em ordem de 'id'.
+     */
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    Stream<Receita> streamAllByReceivingDateBetweenOrderById(LocalDate start, LocalDate end);
+
+    /**
+     * Método abstrato de agregação por tipo de receita, no intervalo de datas informado.
+     * @param start Data inicial.
+     * @param end Data final.
+     * @return Retorna uma linha por tipo, em ordem de tipo.
+     */
+    @Query(value = "SELECT tp_receita AS groupKey, SUM(valor) AS total, COUNT(*) AS quantity, "
+            + "MIN(valor) AS minimum, MAX(valor) AS maximum FROM receita "
+            + "WHERE dt_receb BETWEEN :start AND :end GROUP BY tp_receita ORDER BY tp_receita", nativeQuery = true)
+    List<Aggregate> aggregateByType(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    /**
+     * Método abstrato de agregação por conta, no intervalo de datas informado.
+     * @param start Data inicial.
+     * @param end Data final.
+     * @return Retorna uma linha por conta, em ordem de conta.
+     */
+    @Query(value = "SELECT CAST(conta AS VARCHAR) AS groupKey, SUM(valor) AS total, COUNT(*) AS quantity, "
+            + "MIN(valor) AS minimum, MAX(valor) AS maximum FROM receita "
+            + "WHERE dt_receb BETWEEN :start AND :end GROUP BY conta ORDER BY conta", nativeQuery = true)
+    List<Aggregate> aggregateByAccount(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    /**
+     * Método abstrato de agregação por mês (yyyy-MM), no intervalo de datas informado.
+     * @param start Data inicial.
+     * @param end Data final.
+     * @return Retorna uma linha por mês, em ordem cronológica.
+     */
+    @Query(value = "SELECT FORMATDATETIME(dt_receb, 'yyyy-MM') AS groupKey, SUM(valor) AS total, COUNT(*) AS quantity, "
+            + "MIN(valor) AS minimum, MAX(valor) AS maximum FROM receita "
+            + "WHERE dt_receb BETWEEN :start AND :end GROUP BY FORMATDATETIME(dt_receb, 'yyyy-MM') ORDER BY groupKey",
+            nativeQuery = true)
+    List<Aggregate> aggregateByMonth(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
 }
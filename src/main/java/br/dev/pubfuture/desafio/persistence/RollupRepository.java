@@ -0,0 +1,81 @@
+package br.dev.pubfuture.desafio.persistence;
+
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+/**
+ * Interface de representação da camada de acesso ao banco de dados da classe Rollup (resumo mensal).
+ */
+@Repository
+public interface RollupRepository extends CrudRepository<Rollup, Rollup.Key> {
+
+    /**
+     * Método abstrato que acumula um somatório e uma quantidade em um registro do resumo.
+     * @return Retorna a quantidade de registros alterados (0 quando o registro ainda não existe).
+     */
+    @Modifying
+    @Query(value = "UPDATE resumo_mensal SET total = total + :total, qtd = qtd + :quantity "
+            + "WHERE lancamento = :kind AND mes = :yearMonth AND conta = :account AND tipo = :type", nativeQuery = true)
+    int increment(@Param("kind") String kind, @Param("yearMonth") int yearMonth, @Param("account") int account,
+                  @Param("type") String type, @Param("total") long total, @Param("quantity") long quantity);
+
+    /**
+     * Método abstrato que remove o resumo de uma natureza de lançamento, a fim de reconstruí-lo.
+     * @return Retorna a quantidade de registros removidos.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM resumo_mensal WHERE lancamento = :kind", nativeQuery = true)
+    int deleteKind(@Param("kind") String kind);
+
+    /**
+     * Método abstrato que reconstrói o resumo das receitas a partir da tabela 'receita'.
+     * @return Retorna a quantidade de registros inseridos.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO resumo_mensal (lancamento, mes, conta, tipo, total, qtd) "
+            + "SELECT 'RECEITA', YEAR(dt_receb) * 100 + MONTH(dt_receb), conta, tp_receita, SUM(valor), COUNT(*) "
+            + "FROM receita WHERE dt_receb IS NOT NULL AND tp_receita IS NOT NULL "
+            + "GROUP BY YEAR(dt_receb) * 100 + MONTH(dt_receb), conta, tp_receita", nativeQuery = true)
+    int rebuildReceitas();
+
+    /**
+     * Método abstrato que reconstrói o resumo das despesas a partir da tabela 'despesa'.
+     * @return Retorna a quantidade de registros inseridos.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO resumo_mensal (lancamento, mes, conta, tipo, total, qtd) "
+            + "SELECT 'DESPESA', YEAR(dt_pagto) * 100 + MONTH(dt_pagto), conta, tp_despesa, SUM(valor), COUNT(*) "
+            + "FROM despesa WHERE dt_pagto IS NOT NULL AND tp_despesa IS NOT NULL "
+            + "GROUP BY YEAR(dt_pagto) * 100 + MONTH(dt_pagto), conta, tp_despesa", nativeQuery = true)
+    int rebuildDespesas();
+
+    /**
+     * Método abstrato do relatório mensal: soma, por mês, os registros do resumo no intervalo informado.
+     * @param kind Natureza do lançamento.
+     * @param from Mês inicial (yyyyMM).
+     * @param to Mês final (yyyyMM).
+     * @return Retorna uma linha por mês com lançamentos, em ordem cronológica.
+     */
+    @Query(value = "SELECT mes AS period, SUM(total) AS total, SUM(qtd) AS quantity FROM resumo_mensal "
+            + "WHERE lancamento = :kind AND mes BETWEEN :from AND :to GROUP BY mes HAVING SUM(qtd) > 0 "
+            + "ORDER BY mes", nativeQuery = true)
+    List<RollupTotal> monthly(@Param("kind") String kind, @Param("from") int from, @Param("to") int to);
+
+    /**
+     * Método abstrato do relatório anual: soma, por ano, os registros do resumo no intervalo informado.
+     * @param kind Natureza do lançamento.
+     * @param from Mês inicial (yyyyMM).
+     * @param to Mês final (yyyyMM).
+     * @return Retorna uma linha por ano com lançamentos, em ordem cronológica.
+     */
+    @Query(value = "SELECT mes / 100 AS period, SUM(total) AS total, SUM(qtd) AS quantity FROM resumo_mensal "
+            + "WHERE lancamento = :kind AND mes BETWEEN :from AND :to GROUP BY mes / 100 HAVING SUM(qtd) > 0 "
+            + "ORDER BY period", nativeQuery = true)
+    List<RollupTotal> yearly(@Param("kind") String kind, @Param("from") int from, @Param("to") int to);
+
+}
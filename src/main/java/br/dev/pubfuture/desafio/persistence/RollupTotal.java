@@ -0,0 +1,15 @@
+package br.dev.pubfuture.desafio.persistence;
+
+/**
+ * Projeção dos relatórios lidos do resumo mensal: o período (yyyyMM nos relatórios mensais, yyyy nos anuais),
+ * o somatório em centavos e a quantidade de lançamentos.
+ */
+public interface RollupTotal {
+
+    Integer getPeriod();
+
+    Long getTotal();
+
+    Long getQuantity();
+
+}
@@ -0,0 +1,46 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import java.util.HashMap;
+
+/**
+ * Respostas do modo de cadastro assíncrono, solicitado pelo cliente com o cabeçalho 'Prefer: respond-async'
+ * (RFC 7240): ACCEPTED (202) com o 'id' reservado quando a entidade foi registrada no diário, ou
+ * TOO MANY REQUESTS (429) com 'Retry-After' quando a fila de gravação estiver cheia.
+ */
+final class AsyncPreference {
+
+    static final String PREFER = "Prefer";
+    static final String RESPOND_ASYNC = "respond-async";
+
+    private AsyncPreference() {
+    }
+
+    /**
+     * @param prefer valor do cabeçalho 'Prefer' (pode ser nulo e conter várias preferências).
+     * @return Retorna verdadeiro quando o cliente aceitar a resposta assíncrona.
+     */
+    static boolean requested(String prefer) {
+        if (prefer == null) return false;
+        for (String preference : prefer.split(","))
+            if (preference.trim().equalsIgnoreCase(RESPOND_ASYNC)) return true;
+        return false;
+    }
+
+    static ResponseEntity<HashMap<String, Long>> accepted(long id) {
+        HashMap<String, Long> map = new HashMap<>();
+        map.put("id", id);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Preference-Applied", RESPOND_ASYNC);
+        return new ResponseEntity<>(map, headers, HttpStatus.ACCEPTED);
+    }
+
+    static ResponseEntity<HashMap<String, Long>> busy() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>(headers, HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+}
@@ -0,0 +1,50 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Validação das coleções recebidas pelos 'endpoints' de cadastro em massa, aplicando a cada item as mesmas
+ * restrições de 'Bean Validation' fixadas nas entidades e identificando cada erro pela posição do item.
+ * O cadastro em massa só inclui registros novos, portanto o 'id' não pode ser informado.
+ */
+final class BulkValidation {
+
+    private BulkValidation() {
+    }
+
+    /**
+     * @param validator validador do Spring.
+     * @param items itens recebidos.
+     * @param id 'id' de cada item (0 em um registro novo).
+     * @return Retorna uma coleção de erros (posição, campo e mensagem); vazia quando todos os itens são válidos.
+     */
+    static <T> List<LinkedHashMap<String, Object>> violations(Validator validator, List<T> items,
+                                                             ToLongFunction<T> id) {
+        List<LinkedHashMap<String, Object>> errors = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) == null) {
+                errors.add(error(i, "", "Item não pode ser nulo."));
+                continue;
+            }
+            if (id.applyAsLong(items.get(i)) != 0)
+                errors.add(error(i, "id", "Id não pode ser informado na inclusão."));
+            for (ConstraintViolation<T> violation : validator.validate(items.get(i)))
+                errors.add(error(i, violation.getPropertyPath().toString(), violation.getMessage()));
+        }
+        return errors;
+    }
+
+    private static LinkedHashMap<String, Object> error(int index, String field, String message) {
+        LinkedHashMap<String, Object> error = new LinkedHashMap<>();
+        error.put("indice", index);
+        error.put("campo", field);
+        error.put("mensagem", message);
+        return error;
+    }
+
+}
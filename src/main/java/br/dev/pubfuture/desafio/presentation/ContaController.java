@@ -1,12 +1,20 @@
 package br.dev.pubfuture.desafio.presentation;
 
 import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
+import br.dev.pubfuture.desafio.businesslayer.Money;
+import br.dev.pubfuture.desafio.businesslayer.service.ContaBalanceAggregate;
 import br.dev.pubfuture.desafio.businesslayer.service.ContaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.math.BigDecimal;
 import java.util.*;
 
 /**
@@ -23,6 +31,18 @@ public class ContaController {
     @Autowired
     ContaService contaService;
 
+    /**
+     * Objeto de serialização Json configurado pelo Spring.
+     */
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * Validador de 'Bean Validation' configurado pelo Spring, utilizado nas atualizações parciais.
+     */
+    @Autowired
+    Validator validator;
+
     /**
      * Endpoint '/api/conta/create' utilizado para o cadastro de contas na base de dados H2.
      * A anotação '@Valid' é utilizada para a corresponder a validação fixada na 'POJO class'.
@@ -73,6 +93,31 @@ public class ContaController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Endpoint '/api/conta/{id}' utilizado para a atualização parcial de contas: apenas os campos enviados no
+     * Json são validados e gravados, em um único comando SQL, sem a consulta prévia do registro.
+     * @param id O número do 'id' é enviado através do endereço URL.
+     * @param body Campos a serem alterados, serializados via Json.
+     * @return O método retorna um 'ResponseEntity' contendo um map correspondendo ao 'id' recém alterado e
+     * 'status code' OK, NOT FOUND (404) quando não existir, ou BAD REQUEST (400) com os erros de cada campo.
+     */
+    @PatchMapping("/api/conta/{id}")
+    public ResponseEntity<LinkedHashMap<String, Object>> patch(
+            @PathVariable("id") long id, @RequestBody ObjectNode body) {
+        PatchRequest<Conta> patch = PatchRequest.read(objectMapper, validator, body, Conta.class,
+                contaService.patchableFields());
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        if (!patch.getErrors().isEmpty()) {
+            map.put("erros", patch.getErrors());
+            return new ResponseEntity<>(map, HttpStatus.BAD_REQUEST);
+        }
+        //o número de linhas atualizadas indica se o registro existe
+        if (contaService.patch(id, patch.getValues(), patch.getFields()).isEmpty())
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        map.put("id", id);
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
     /**
      * Endepoint '/api/conta/{id}' utilizado para a remoção de registros de contas na base de dados H2.
      * @param id O número do 'id' é enviado através do endereço URL.
@@ -106,11 +151,22 @@ public class ContaController {
 
     /**
      * Endpoint utilizado para buscar todos os registros de contas cadastradas na base de dados.
-     * @return Retorna uma coleção de contas serializadas.
+     * A listagem é paginada por chave: informe 'after' com o cursor recebido no cabeçalho 'X-Next-Cursor' da
+     * página anterior; o tamanho da página ('limit') é limitado pelo servidor.
+     * @param after Cursor ('id' do último registro da página anterior, ou 0 para a primeira página).
+     * @param limit Tamanho de página solicitado.
+     * @return Retorna uma coleção de contas serializadas e, quando houver mais registros, o cursor da próxima
+     * página no cabeçalho 'X-Next-Cursor'.
      */
     @GetMapping("/api/conta")
-    public List<Conta> listAll() {
-        return contaService.findAll();
+    public ResponseEntity<List<Conta>> listAll(
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        KeysetPage<Conta> page = contaService.findAll(after, limit);
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNext() != null)
+            headers.set(KeysetPage.NEXT_CURSOR_HEADER, String.valueOf(page.getNext()));
+        return new ResponseEntity<>(page.getItems(), headers, HttpStatus.OK);
     }
 
     /**
@@ -124,32 +180,47 @@ public class ContaController {
     public ResponseEntity<LinkedHashMap<String, Object>> transferValue(
             @RequestBody Conta.TransferValue transferValue) {
 
-        //objetos recipientes que podem ou não conter um valor não nulo
-        Optional<Conta> contaOptOrigem = contaService.findById(transferValue.getFrom());
-        Optional<Conta> contaOptDestino = contaService.findById(transferValue.getTo());
-
-        //testa se os objetos optionals não estão vazios
-        if (contaOptOrigem.isPresent() && contaOptDestino.isPresent()) {
-            //verifica se há saldo em conta
-            if (contaOptOrigem.get().getBalance() - transferValue.getValue() >= 0) {
-                //instancia os objetos
-                Conta contaOrigem = contaOptOrigem.get();
-                Conta contaDestino = contaOptDestino.get();
-                //faz o débito na conta origem
-                contaOrigem.setBalance(contaOrigem.getBalance() - transferValue.getValue());
-                //faz o crédito na conta destino
-                contaDestino.setBalance(contaDestino.getBalance() + transferValue.getValue());
-                //salva na base
-                contaService.transferValue(contaOrigem, contaDestino);
-                //prepara a resposta no formato Json
-                LinkedHashMap<String, Object> map = new LinkedHashMap<>();
-                map.put("id-origem", contaOrigem.getId());
-                map.put("saldo-origem", contaOrigem.getBalance());
-                map.put("id-destino", contaDestino.getId());
-                map.put("saldo-destino", contaDestino.getBalance());
-                return new ResponseEntity<>(map, HttpStatus.OK);
-            } else return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        } else return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        //débito e crédito realizados atomicamente na camada de serviço
+        Conta.TransferResult result = contaService.transferValue(transferValue);
+        //testa se as contas existem na base
+        if (result.getStatus() == Conta.TransferResult.Status.NOT_FOUND)
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        //verifica se havia saldo em conta e se o valor é positivo
+        if (result.getStatus() != Conta.TransferResult.Status.OK)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        //prepara a resposta no formato Json
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("id-origem", result.getFrom());
+        map.put("saldo-origem", Money.toDecimal(result.getFromBalance()));
+        map.put("id-destino", result.getTo());
+        map.put("saldo-destino", Money.toDecimal(result.getToBalance()));
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado à liquidação de um lote de transferências entre contas existentes na base de dados.
+     * Todas as contas envolvidas são carregadas de uma só vez e as movimentações gravadas em um único 'commit'.
+     * @param transfers Espera uma coleção de objetos da classe interna Conta.TransferValue.
+     * @param mode Modo de liquidação: ATOMIC (padrão, tudo ou nada) ou BEST_EFFORT (resultado por item).
+     * @return O método retorna um 'ResponseEntity' contendo a quantidade de transferências aplicadas e o
+     * resultado de cada item, com 'status code' OK (200), ou BAD REQUEST (400) quando o lote atômico é recusado.
+     */
+    @PutMapping("/api/conta/transfer/batch")
+    public ResponseEntity<LinkedHashMap<String, Object>> transferBatch(
+            @RequestBody List<Conta.TransferValue> transfers,
+            @RequestParam(value = "mode", defaultValue = "ATOMIC") Conta.TransferMode mode) {
+        if (transfers.isEmpty())
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        List<Conta.TransferResult> results = contaService.transferAll(transfers, mode);
+        long applied = results.stream()
+                .filter(r -> r.getStatus() == Conta.TransferResult.Status.OK)
+                .count();
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("aplicadas", applied);
+        map.put("resultados", results);
+        if (mode == Conta.TransferMode.ATOMIC && applied < results.size())
+            return new ResponseEntity<>(map, HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(map, HttpStatus.OK);
     }
 
     /**
@@ -158,10 +229,31 @@ public class ContaController {
      * um 'status code', caso a resposta tenha sido OK.
      */
     @GetMapping("/api/conta/total")
-    public ResponseEntity<HashMap<String, Float>> totalBalance() {
-        HashMap<String, Float> map = new HashMap<>();
-        map.put("saldo", contaService.totalBalance());
+    public ResponseEntity<HashMap<String, BigDecimal>> totalBalance() {
+        HashMap<String, BigDecimal> map = new HashMap<>();
+        map.put("saldo", Money.toDecimal(contaService.totalBalance()));
         return new ResponseEntity<>(map, HttpStatus.OK);
     }
 
+    /**
+     * Endpoint administrativo que confere o somatório de saldos mantido em memória com o somatório real
+     * calculado pela base de dados ('SELECT SUM'), sem alterá-lo.
+     * @return O método retorna um 'ResponseEntity' contendo o resultado da conferência e um 'status code' OK.
+     */
+    @GetMapping("/api/conta/total/check")
+    public ResponseEntity<ContaBalanceAggregate.Check> checkTotalBalance() {
+        return new ResponseEntity<>(contaService.checkTotalBalance(false), HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint administrativo que confere o somatório de saldos mantido em memória e, caso haja divergência, o
+     * reconstrói a partir da base de dados.
+     * @return O método retorna um 'ResponseEntity' contendo o resultado da conferência ('repaired' verdadeiro
+     * quando reconstruído) e um 'status code' OK.
+     */
+    @PostMapping("/api/conta/total/rebuild")
+    public ResponseEntity<ContaBalanceAggregate.Check> rebuildTotalBalance() {
+        return new ResponseEntity<>(contaService.checkTotalBalance(true), HttpStatus.OK);
+    }
+
 }
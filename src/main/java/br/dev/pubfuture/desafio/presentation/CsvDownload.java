@@ -0,0 +1,84 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Respostas das exportações em CSV, enviadas como anexo e compactadas em gzip durante a escrita quando o cliente
+ * as aceitar ('Accept-Encoding: gzip'), sem gerar o arquivo antes do envio.
+ * A escrita é executada como requisição assíncrona, limitada por 'spring.mvc.async.request-timeout'. Esgotado
+ * esse tempo, a exportação é interrompida e o cliente recebe um arquivo truncado (sem o final do gzip, quando
+ * compactado, o que permite detectar a truncagem); nada é alterado na base de dados.
+ */
+final class CsvDownload {
+
+    static final String TEXT_CSV = "text/csv";
+    static final String GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CsvDownload() {
+    }
+
+    /**
+     * @param acceptEncoding valor do cabeçalho 'Accept-Encoding' (pode ser nulo e conter várias codificações).
+     * @return Retorna verdadeiro quando o cliente aceitar gzip (sem 'q=0').
+     */
+    static boolean gzipAccepted(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] parts = encoding.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(GZIP)) continue;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0*)?")) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param filename nome do arquivo anexo.
+     * @param acceptEncoding valor do cabeçalho 'Accept-Encoding'.
+     * @param export escrita do CSV.
+     * @return Retorna um 'ResponseEntity' com o corpo gerado de forma contínua e 'status code' OK.
+     */
+    static ResponseEntity<StreamingResponseBody> of(String filename, String acceptEncoding, Export export) {
+        boolean gzip = gzipAccepted(acceptEncoding);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(new MediaType("text", "csv", StandardCharsets.UTF_8));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(filename).build());
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        StreamingResponseBody body;
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            body = out -> {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, BUFFER_SIZE);
+                export.write(compressed);
+                compressed.finish();
+            };
+        } else {
+            body = export::write;
+        }
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Escrita do CSV no corpo da resposta.
+     */
+    @FunctionalInterface
+    interface Export {
+        void write(OutputStream out) throws IOException;
+    }
+
+}
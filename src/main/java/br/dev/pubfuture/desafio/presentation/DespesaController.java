@@ -1,14 +1,39 @@
 package br.dev.pubfuture.desafio.presentation;
 
 import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
+import br.dev.pubfuture.desafio.businesslayer.Money;
+import br.dev.pubfuture.desafio.businesslayer.service.ColumnarStore;
+import br.dev.pubfuture.desafio.businesslayer.service.CsvExport;
 import br.dev.pubfuture.desafio.businesslayer.service.DespesaService;
+import br.dev.pubfuture.desafio.businesslayer.service.TypeCounters;
+import br.dev.pubfuture.desafio.businesslayer.service.WriteBehind;
+import br.dev.pubfuture.desafio.persistence.Aggregate;
+import br.dev.pubfuture.desafio.persistence.RollupTotal;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -25,17 +50,56 @@ public class DespesaController {
     @Autowired
     DespesaService despesaService;
 
+    /**
+     * Fila de gravação assíncrona, utilizada quando o cliente envia 'Prefer: respond-async'.
+     */
+    @Autowired
+    WriteBehind<Despesa> despesaIngest;
+
+    /**
+     * Exportação em CSV, lida diretamente do cursor JDBC.
+     */
+    @Autowired
+    CsvExport csvExport;
+
+    /**
+     * Objeto de serialização Json configurado pelo Spring.
+     */
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * Validador de 'Bean Validation' configurado pelo Spring, utilizado nos cadastros em massa.
+     */
+    @Autowired
+    Validator validator;
+
     /**
      * Endpoint '/api/despesa/create' utilizado para o cadastro de despesas na base de dados H2.
      * A anotação '@Valid' é utilizada para a corresponder a validação fixada na 'POJO class'.
+     * Com o cabeçalho 'Prefer: respond-async', a despesa é registrada no diário da fila de gravação assíncrona e
+     * confirmada com o 'id' reservado e 'status code' ACCEPTED (202), ou recusada com TOO MANY REQUESTS (429)
+     * quando a fila estiver cheia; a gravação no banco de dados ocorre em seguida, em lotes. Com a fila encerrada,
+     * a despesa é gravada de forma síncrona.
      * @param despesa Objeto despesa serializado via Json.
+     * @param prefer Cabeçalho 'Prefer' (opcional).
      * @return O método retorna um 'ResponseEntity' contendo um map correspondendo ao 'id' recém criado e
      * um 'status code', caso a resposta tenha sido OK.
      */
     @PostMapping("/api/despesa/create")
-    public ResponseEntity<HashMap<String, Long>> save(@Valid @RequestBody Despesa despesa) {
-        //insert na base via Spring
-        despesaService.save(despesa);
+    public ResponseEntity<HashMap<String, Long>> save(
+            @Valid @RequestBody Despesa despesa,
+            @RequestHeader(value = AsyncPreference.PREFER, required = false) String prefer) {
+        if (AsyncPreference.requested(prefer) && despesaIngest.isEnabled()) {
+            despesa.setId(despesaService.allocateId(despesa));
+            WriteBehind.Offer offer = despesaIngest.offer(despesa);
+            if (offer == WriteBehind.Offer.QUEUED) return AsyncPreference.accepted(despesa.getId());
+            if (offer == WriteBehind.Offer.FULL) return AsyncPreference.busy();
+            //fila encerrada após a verificação: gravação síncrona, com o 'id' já reservado
+            despesaService.insertAll(List.of(despesa));
+        } else
+            //insert na base via Spring
+            despesaService.save(despesa);
         //objeto map para retorno
         HashMap<String, Long> map = new HashMap<>();
         //insert no map para retorno no formado Json
@@ -43,6 +107,29 @@ public class DespesaController {
         return new ResponseEntity<>(map, HttpStatus.OK);
     }
 
+    /**
+     * Endpoint '/api/despesa/create/bulk' utilizado para o cadastro em massa de despesas na base de dados H2.
+     * Todos os itens são validados antes da gravação; havendo qualquer item inválido ou com 'id' informado, nada
+     * é gravado.
+     * Os itens válidos são inseridos em uma única transação, com inserções agrupadas em lotes JDBC.
+     * @param despesas Coleção de objetos despesa serializados via Json.
+     * @return O método retorna um 'ResponseEntity' contendo os 'id' recém criados, na ordem recebida, e
+     * 'status code' OK, ou BAD REQUEST (400) com os erros de validação de cada item.
+     */
+    @PostMapping("/api/despesa/create/bulk")
+    public ResponseEntity<LinkedHashMap<String, Object>> saveAll(@RequestBody List<Despesa> despesas) {
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        List<LinkedHashMap<String, Object>> errors = BulkValidation.violations(validator, despesas, Despesa::getId);
+        if (!errors.isEmpty()) {
+            map.put("erros", errors);
+            return new ResponseEntity<>(map, HttpStatus.BAD_REQUEST);
+        }
+        //insert em lotes na base via Spring
+        List<Despesa> saved = despesaService.saveAll(despesas);
+        map.put("ids", saved.stream().map(Despesa::getId).toArray());
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
     /**
      * Endpoint '/api/despesa/{id}' utilizado para a atualização de registro de despesas na base de dados H2.
      * A anotação '@Valid' é utilizada para a corresponder a validação fixada na 'POJO class'.
@@ -78,6 +165,31 @@ public class DespesaController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Endpoint '/api/despesa/{id}' utilizado para a atualização parcial de despesas: apenas os campos enviados no
+     * Json são validados e gravados, em um único comando SQL, sem a consulta prévia do registro.
+     * @param id O número do 'id' é enviado através do endereço URL.
+     * @param body Campos a serem alterados, serializados via Json.
+     * @return O método retorna um 'ResponseEntity' contendo um map correspondendo ao 'id' recém alterado e
+     * 'status code' OK, NOT FOUND (404) quando não existir, ou BAD REQUEST (400) com os erros de cada campo.
+     */
+    @PatchMapping("/api/despesa/{id}")
+    public ResponseEntity<LinkedHashMap<String, Object>> patch(
+            @PathVariable("id") long id, @RequestBody ObjectNode body) {
+        PatchRequest<Despesa> patch = PatchRequest.read(objectMapper, validator, body, Despesa.class,
+                despesaService.patchableFields());
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        if (!patch.getErrors().isEmpty()) {
+            map.put("erros", patch.getErrors());
+            return new ResponseEntity<>(map, HttpStatus.BAD_REQUEST);
+        }
+        //o número de linhas atualizadas indica se o registro existe
+        if (despesaService.patch(id, patch.getValues(), patch.getFields()).isEmpty())
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        map.put("id", id);
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
     /**
      * Endepoint '/api/despesa/{id}' utilizado para a remoção de registros de despesas na base de dados H2.
      * @param id O número do 'id' é enviado através do endereço URL.
@@ -111,11 +223,22 @@ public class DespesaController {
 
     /**
      * Endpoint utilizado para buscar todos os registros de despesas cadastrados na base de dados.
-     * @return Retorna uma coleção de despesas serializadas.
+     * A listagem é paginada por chave: informe 'after' com o cursor recebido no cabeçalho 'X-Next-Cursor' da
+     * página anterior; o tamanho da página ('limit') é limitado pelo servidor.
+     * @param after Cursor ('id' do último registro da página anterior, ou 0 para a primeira página).
+     * @param limit Tamanho de página solicitado.
+     * @return Retorna uma coleção de despesas serializadas e, quando houver mais registros, o cursor da próxima
+     * página no cabeçalho 'X-Next-Cursor'.
      */
     @GetMapping("/api/despesa/all")
-    public List<Despesa> listAll() {
-        return despesaService.findAll();
+    public ResponseEntity<List<Despesa>> listAll(
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        KeysetPage<Despesa> page = despesaService.findAll(after, limit);
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNext() != null)
+            headers.set(KeysetPage.NEXT_CURSOR_HEADER, String.valueOf(page.getNext()));
+        return new ResponseEntity<>(page.getItems(), headers, HttpStatus.OK);
     }
 
     /**
@@ -124,9 +247,9 @@ public class DespesaController {
      * um 'status code', caso a resposta tenha sido OK.
      */
     @GetMapping("/api/despesa/total")
-    public ResponseEntity<HashMap<String, Float>> totalExpenses() {
-        HashMap<String, Float> map = new HashMap<>();
-        map.put("despesa-total", despesaService.totalExpenses());
+    public ResponseEntity<HashMap<String, BigDecimal>> totalExpenses() {
+        HashMap<String, BigDecimal> map = new HashMap<>();
+        map.put("despesa-total", Money.toDecimal(despesaService.totalExpenses()));
         return new ResponseEntity<>(map, HttpStatus.OK);
     }
 
@@ -155,4 +278,199 @@ public class DespesaController {
         return despesaService.findDespesaByTypeOfExpense(typeOfExpense);
     }
 
+    /**
+     * Endpoint utilizado para retornar a quantidade e o somatório das despesas de cada tipo, opcionalmente de uma
+     * conta. A resposta vem dos contadores mantidos em memória, sem consulta ao banco de dados.
+     * @param account Conta (opcional).
+     * @return Retorna uma coleção com o tipo, a quantidade e o somatório de cada tipo e 'status code' OK.
+     */
+    @GetMapping("/api/despesa/tp/stats")
+    public ResponseEntity<List<LinkedHashMap<String, Object>>> typeStats(
+            @RequestParam(value = "account", required = false) Integer account) {
+        List<LinkedHashMap<String, Object>> list = new ArrayList<>();
+        for (Map.Entry<Despesa.TypeOfExpense, TypeCounters.Stats> stat : despesaService.typeStats(account).entrySet()) {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("tipo", stat.getKey());
+            map.put("quantidade", stat.getValue().getQuantity());
+            map.put("total", Money.toDecimal(stat.getValue().getTotal()));
+            list.add(map);
+        }
+        return new ResponseEntity<>(list, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar as despesas agregadas por tipo (TYPE), por conta (ACCOUNT) ou por mês
+     * (MONTH), opcionalmente limitadas a um intervalo de datas. O agrupamento é feito no banco de dados e
+     * apenas uma linha por grupo trafega, em vez de todos os registros.
+     * @param dimension Agrupamento desejado: TYPE, ACCOUNT ou MONTH.
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @return Retorna uma coleção com o grupo, o somatório, a quantidade, o menor e o maior valor de cada grupo.
+     */
+    @GetMapping("/api/despesa/aggregate/{dimension}")
+    public ResponseEntity<List<LinkedHashMap<String, Object>>> aggregate(
+            @PathVariable("dimension") Aggregate.Dimension dimension,
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end) {
+        List<LinkedHashMap<String, Object>> groups = new ArrayList<>();
+        for (Aggregate aggregate : despesaService.aggregate(dimension, start, end)) {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("grupo", aggregate.getGroupKey());
+            map.put("total", Money.toDecimal(aggregate.getTotal()));
+            map.put("quantidade", aggregate.getQuantity());
+            map.put("minimo", Money.toDecimal(aggregate.getMinimum()));
+            map.put("maximo", Money.toDecimal(aggregate.getMaximum()));
+            groups.add(map);
+        }
+        return new ResponseEntity<>(groups, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar o somatório das despesas de um intervalo de datas, opcionalmente de uma
+     * conta e de um tipo. A resposta vem do índice mantido em memória, sem percorrer os registros.
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @param account Conta (opcional).
+     * @param type Tipo (opcional).
+     * @return Retorna um map com o somatório e 'status code' OK.
+     */
+    @GetMapping("/api/despesa/sum")
+    public ResponseEntity<HashMap<String, BigDecimal>> rangeSum(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end,
+            @RequestParam(value = "account", required = false) Integer account,
+            @RequestParam(value = "type", required = false) Despesa.TypeOfExpense type) {
+        HashMap<String, BigDecimal> map = new HashMap<>();
+        map.put("total", Money.toDecimal(despesaService.rangeSum(start, end, account, type)));
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar o somatório e a quantidade das despesas filtradas por intervalo de datas,
+     * tipo e conta (todos opcionais). A varredura é feita sobre a cópia colunar mantida em memória.
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @param type Tipo (opcional).
+     * @param account Conta (opcional).
+     * @return Retorna um map com o somatório e a quantidade e 'status code' OK.
+     */
+    @GetMapping("/api/despesa/scan")
+    public ResponseEntity<LinkedHashMap<String, Object>> scan(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end,
+            @RequestParam(value = "type", required = false) Despesa.TypeOfExpense type,
+            @RequestParam(value = "account", required = false) Integer account) {
+        ColumnarStore.Totals totals = despesaService.scan(start, end, type, account);
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("total", Money.toDecimal(totals.getTotal()));
+        map.put("quantidade", totals.getQuantity());
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar o relatório mensal das despesas de um ano, lido do resumo mensal mantido a
+     * cada gravação, sem percorrer os lançamentos.
+     * @param year Ano desejado (opcional, o ano corrente quando não informado).
+     * @return Retorna uma coleção com o mês (yyyy-MM), o somatório e a quantidade de cada mês com despesas.
+     */
+    @GetMapping("/api/despesa/report/monthly")
+    public ResponseEntity<List<LinkedHashMap<String, Object>>> monthlyReport(
+            @RequestParam(value = "year", required = false) Integer year) {
+        List<LinkedHashMap<String, Object>> months = new ArrayList<>();
+        for (RollupTotal total : despesaService.monthlyReport(year)) {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("mes", String.format("%04d-%02d", total.getPeriod() / 100, total.getPeriod() % 100));
+            map.put("total", Money.toDecimal(total.getTotal()));
+            map.put("quantidade", total.getQuantity());
+            months.add(map);
+        }
+        return new ResponseEntity<>(months, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar o relatório anual das despesas, lido do resumo mensal.
+     * @param from Ano inicial (opcional).
+     * @param to Ano final (opcional).
+     * @return Retorna uma coleção com o ano, o somatório e a quantidade de cada ano com despesas.
+     */
+    @GetMapping("/api/despesa/report/yearly")
+    public ResponseEntity<List<LinkedHashMap<String, Object>>> yearlyReport(
+            @RequestParam(value = "from", required = false) Integer from,
+            @RequestParam(value = "to", required = false) Integer to) {
+        List<LinkedHashMap<String, Object>> years = new ArrayList<>();
+        for (RollupTotal total : despesaService.yearlyReport(from, to)) {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("ano", total.getPeriod());
+            map.put("total", Money.toDecimal(total.getTotal()));
+            map.put("quantidade", total.getQuantity());
+            years.add(map);
+        }
+        return new ResponseEntity<>(years, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para reconstruir o resumo mensal das despesas a partir dos lançamentos (carga inicial
+     * ou correção).
+     * @return Retorna um map com a quantidade de registros do resumo reconstruídos e 'status code' OK.
+     */
+    @PostMapping("/api/despesa/report/rebuild")
+    public ResponseEntity<HashMap<String, Integer>> rebuildReport() {
+        HashMap<String, Integer> map = new HashMap<>();
+        map.put("registros", despesaService.rebuildRollup());
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para exportar as despesas no formato NDJSON (um objeto Json por linha), opcionalmente
+     * limitadas a um intervalo de datas. Os registros são escritos diretamente na resposta à medida que são
+     * lidos da base de dados, sem montar uma coleção em memória. A escrita é executada como requisição
+     * assíncrona, limitada por 'spring.mvc.async.request-timeout'; esgotado esse tempo, a leitura é interrompida
+     * e o cliente recebe uma resposta truncada (a última linha pode estar incompleta).
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @return Retorna um 'ResponseEntity' com o corpo gerado de forma contínua e 'status code' OK.
+     */
+    @GetMapping(value = "/api/despesa/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end) {
+        ObjectWriter writer = objectMapper.writerFor(Despesa.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                despesaService.forEach(start, end, despesa -> {
+                    try {
+                        if (Thread.currentThread().isInterrupted())
+                            throw new InterruptedIOException("Exportação interrompida.");
+                        writer.writeValue(generator, despesa);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para exportar as despesas em CSV (separador ';', vírgula decimal e datas dd/MM/yyyy),
+     * para planilhas, opcionalmente limitadas a um intervalo de datas de pagamento. Os registros são lidos do cursor
+     * JDBC e escritos na resposta à medida que são lidos; com 'Accept-Encoding: gzip', a resposta é compactada
+     * durante a escrita.
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @param acceptEncoding Cabeçalho 'Accept-Encoding' (opcional).
+     * @return Retorna um 'ResponseEntity' com o arquivo 'despesas.csv' gerado de forma contínua e 'status code' OK.
+     */
+    @GetMapping(value = "/api/despesa/export/csv", produces = CsvDownload.TEXT_CSV)
+    public ResponseEntity<StreamingResponseBody> exportCsv(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return CsvDownload.of("despesas.csv", acceptEncoding, out -> csvExport.despesas(start, end, out));
+    }
+
 }
@@ -0,0 +1,32 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import br.dev.pubfuture.desafio.businesslayer.service.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuração do filtro de idempotência ('Idempotency-Key'), aplicado aos 'endpoints' de contas, receitas e
+ * despesas. A importação de extratos ('/api/import') não é incluída, pois a sua resposta é gerada de forma
+ * contínua e o arquivo excede o corpo máximo guardado pelo filtro.
+ */
+@Configuration
+public class IdempotencyConfiguration {
+
+    /**
+     * @param idempotencyStore registro das respostas.
+     * @param maxBody tamanho máximo do corpo das requisições com chave.
+     * @return Retorna o registro do filtro no 'servlet container'.
+     */
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            IdempotencyStore idempotencyStore, @Value("${desafio.idempotency.max-body:1MB}") DataSize maxBody) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(
+                new IdempotencyFilter(idempotencyStore, maxBody.toBytes()));
+        registration.addUrlPatterns("/api/conta/*", "/api/receita/*", "/api/despesa/*");
+        return registration;
+    }
+
+}
@@ -0,0 +1,274 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import br.dev.pubfuture.desafio.businesslayer.IdempotencyRecord;
+import br.dev.pubfuture.desafio.businesslayer.service.IdempotencyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Filtro que honra o cabeçalho 'Idempotency-Key' nas requisições de alteração (POST, PUT, PATCH e DELETE).
+ * A primeira requisição com uma chave é executada e a sua resposta gravada ('IdempotencyStore'); as repetições com
+ * a mesma chave e a mesma requisição (método, endereço e corpo) recebem a resposta gravada, com o cabeçalho
+ * 'Idempotent-Replayed: true', sem executar a operação. Uma repetição concorrente aguarda a primeira execução.
+ * A chave reutilizada em uma requisição diferente é recusada com UNPROCESSABLE ENTITY (422) e a espera esgotada
+ * com CONFLICT (409). Respostas de erro do servidor (5xx) e TOO MANY REQUESTS (429) não são gravadas, pois a
+ * operação pode ser repetida.
+ * O filtro não abre transação: a chave é marcada antes da execução e a resposta gravada depois dela, cada uma em
+ * transação própria, e os serviços confirmam as suas alterações como nas requisições sem chave. Uma execução
+ * interrompida antes da gravação da resposta deixa a marcação, e as repetições são recusadas com CONFLICT (409)
+ * em vez de executar a operação novamente.
+ */
+final class IdempotencyFilter extends OncePerRequestFilter {
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final Set<String> METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    /**
+     * Cabeçalhos da resposta que não são gravados, por serem definidos pelo servidor a cada resposta.
+     */
+    private static final Set<String> TRANSIENT_HEADERS = Set.of("content-length", "transfer-encoding", "date",
+            "connection", "keep-alive");
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+    private final IdempotencyStore idempotencyStore;
+
+    /**
+     * Tamanho máximo do corpo das requisições com chave, em bytes.
+     */
+    private final long maxBody;
+
+    IdempotencyFilter(IdempotencyStore idempotencyStore, long maxBody) {
+        this.idempotencyStore = idempotencyStore;
+        this.maxBody = maxBody;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY);
+        if (key == null || !METHODS.contains(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            error(response, HttpStatus.BAD_REQUEST, "Idempotency-Key deve ter de 1 a " + MAX_KEY_LENGTH
+                    + " caracteres.");
+            return;
+        }
+        byte[] body = read(request.getInputStream());
+        if (body == null) {
+            error(response, HttpStatus.PAYLOAD_TOO_LARGE, "Corpo excede " + maxBody + " bytes.");
+            return;
+        }
+        String fingerprint = fingerprint(request, body);
+        IdempotencyStore.Outcome outcome;
+        try {
+            outcome = idempotencyStore.begin(key, fingerprint);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error(response, HttpStatus.SERVICE_UNAVAILABLE, "Interrompido.");
+            return;
+        } catch (RuntimeException e) {
+            log.error("Falha ao registrar a chave de idempotência {}.", key, e);
+            error(response, HttpStatus.INTERNAL_SERVER_ERROR, "Falha ao registrar a Idempotency-Key; "
+                    + "a operação não foi executada.");
+            return;
+        }
+        switch (outcome.getType()) {
+            case REPLAY:
+                replay(outcome.getRecord(), response);
+                return;
+            case MISMATCH:
+                error(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key já utilizada em uma requisição diferente.");
+                return;
+            case BUSY:
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                error(response, HttpStatus.CONFLICT, "Requisição com a mesma Idempotency-Key em execução.");
+                return;
+            case INDETERMINATE:
+                error(response, HttpStatus.CONFLICT, "Requisição com a mesma Idempotency-Key interrompida; "
+                        + "o resultado não foi registrado.");
+                return;
+            default:
+        }
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(new BufferedRequest(request, body), wrapper);
+        } catch (IOException | ServletException | RuntimeException e) {
+            idempotencyStore.abandon(key);
+            throw e;
+        }
+        int status = wrapper.getStatus();
+        if (request.isAsyncStarted() || status >= 500 || status == HttpStatus.TOO_MANY_REQUESTS.value())
+            idempotencyStore.abandon(key);
+        else {
+            try {
+                idempotencyStore.complete(key, fingerprint, status, headers(wrapper), wrapper.getContentAsByteArray());
+            } catch (RuntimeException e) {
+                //a operação já foi confirmada: a resposta é entregue e a marcação impede uma nova execução
+                log.error("Falha ao gravar a resposta da chave de idempotência {}.", key, e);
+            }
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    /**
+     * @return Retorna o corpo da requisição ou nulo quando exceder o tamanho máximo.
+     */
+    private byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            if (out.size() + read > maxBody) return null;
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return Retorna o resumo SHA-256 (hexadecimal) do método, do endereço (com os parâmetros) e do corpo.
+     */
+    static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String target = request.getMethod() + ' ' + request.getRequestURI()
+                    + (request.getQueryString() == null ? "" : "?" + request.getQueryString()) + '\n';
+            digest.update(target.getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String headers(HttpServletResponse response) {
+        StringBuilder headers = new StringBuilder();
+        for (String name : response.getHeaderNames()) {
+            if (TRANSIENT_HEADERS.contains(name.toLowerCase(Locale.ROOT))) continue;
+            for (String value : response.getHeaders(name))
+                headers.append(name).append(": ").append(value).append('\n');
+        }
+        if (response.getContentType() != null && response.getHeader(HttpHeaders.CONTENT_TYPE) == null)
+            headers.append(HttpHeaders.CONTENT_TYPE).append(": ").append(response.getContentType()).append('\n');
+        return headers.toString();
+    }
+
+    private static void replay(IdempotencyRecord record, HttpServletResponse response) throws IOException {
+        response.setStatus(record.getStatus());
+        if (record.getHeaders() != null)
+            for (String line : record.getHeaders().split("\n")) {
+                int colon = line.indexOf(": ");
+                if (colon > 0) response.addHeader(line.substring(0, colon), line.substring(colon + 2));
+            }
+        response.setHeader(REPLAYED, "true");
+        byte[] body = record.getBody() == null ? new byte[0] : record.getBody();
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static void error(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        byte[] body = ("{\"erro\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Requisição com o corpo já lido, entregue novamente aos 'controllers'.
+     */
+    private static final class BufferedRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        BufferedRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    //o corpo já está em memória: os dados e o fim da leitura são notificados imediatamente
+                    try {
+                        if (!isFinished()) listener.onDataAvailable();
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import br.dev.pubfuture.desafio.businesslayer.service.StatementImport;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+
+/**
+ * Classe Controller da importação de extratos bancários, anotada para o controle do Spring MVC.
+ */
+@RestController
+public class ImportController {
+
+    /**
+     * Objeto da classe StatementImport.
+     */
+    @Autowired
+    StatementImport statementImport;
+
+    /**
+     * Objeto de serialização Json configurado pelo Spring.
+     */
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * Endpoint '/api/import' utilizado para importar um extrato bancário (CSV ou OFX) enviado como corpo da
+     * requisição. Os lançamentos positivos são gravados como receitas e os negativos como despesas, em lotes.
+     * O arquivo é lido à medida que chega, sem ser carregado em memória, e a resposta, no formato NDJSON (um
+     * objeto Json por linha), informa cada linha recusada ('linha' e 'erro') e o progresso após cada lote
+     * gravado ('linhas', 'receitas', 'despesas', 'erros' e 'concluido').
+     * No CSV, o cabeçalho é obrigatório, com as colunas data e valor e, opcionalmente, descricao, tipo e conta.
+     * A importação é executada como requisição assíncrona, limitada por 'spring.mvc.async.request-timeout'.
+     * Esgotado esse tempo, a importação é interrompida antes da próxima linha: os lotes já gravados permanecem
+     * gravados (as contagens 'receitas' e 'despesas' do último progresso recebido), os registros ainda não
+     * gravados são descartados e a resposta termina sem o progresso com 'concluido' verdadeiro. Como não há
+     * deduplicação, reenviar o arquivo completo grava novamente os lançamentos já importados.
+     * @param body Conteúdo do arquivo.
+     * @param format Formato do arquivo: CSV (padrão) ou OFX.
+     * @param account Conta dos lançamentos sem a coluna 'conta' (opcional; no OFX, obrigatória).
+     * @param charset Codificação do arquivo (padrão UTF-8).
+     * @return Retorna um 'ResponseEntity' com o corpo gerado de forma contínua e 'status code' OK.
+     */
+    @PostMapping(value = "/api/import", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> importStatement(
+            InputStream body,
+            @RequestParam(value = "format", defaultValue = "CSV") StatementImport.Format format,
+            @RequestParam(value = "account", required = false) Integer account,
+            @RequestParam(value = "charset", defaultValue = "UTF-8") Charset charset) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody response = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(body, charset))) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                statementImport.run(format, reader, account, new StatementImport.Listener() {
+                    @Override
+                    public void error(long line, String message) {
+                        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+                        map.put("linha", line);
+                        map.put("erro", message);
+                        write(writer, generator, map, false);
+                    }
+
+                    @Override
+                    public void progress(StatementImport.Progress progress) {
+                        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+                        map.put("linhas", progress.getLines());
+                        map.put("receitas", progress.getRevenues());
+                        map.put("despesas", progress.getExpenses());
+                        map.put("erros", progress.getErrors());
+                        map.put("concluido", progress.isDone());
+                        write(writer, generator, map, true);
+                    }
+                });
+            }
+        };
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Escreve um objeto Json por linha; o progresso é enviado imediatamente ao cliente.
+     */
+    private static void write(ObjectWriter writer, JsonGenerator generator, LinkedHashMap<String, Object> map,
+                              boolean flush) {
+        try {
+            writer.writeValue(generator, map);
+            generator.writeRaw('\n');
+            if (flush) generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
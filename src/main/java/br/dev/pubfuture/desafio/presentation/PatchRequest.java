@@ -0,0 +1,94 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Corpo dos 'endpoints' PATCH: apenas os campos presentes no Json são atualizados. Cada campo é validado com as
+ * mesmas restrições de 'Bean Validation' fixadas na entidade e os campos fora da lista aceita pelo serviço
+ * (como o 'id') são recusados.
+ * @param <T> entidade atualizada.
+ */
+@Getter
+final class PatchRequest<T> {
+
+    /**
+     * Entidade com os valores dos campos informados; os demais campos não são utilizados.
+     */
+    private final T values;
+
+    /**
+     * Campos informados.
+     */
+    private final Set<String> fields;
+
+    /**
+     * Erros (campo e mensagem); vazia quando o corpo é válido.
+     */
+    private final List<LinkedHashMap<String, Object>> errors = new ArrayList<>();
+
+    private PatchRequest(T values, Set<String> fields) {
+        this.values = values;
+        this.fields = fields;
+    }
+
+    /**
+     * @param objectMapper objeto de serialização Json do Spring.
+     * @param validator validador do Spring.
+     * @param body corpo recebido.
+     * @param type classe da entidade.
+     * @param patchable campos aceitos pelo serviço.
+     * @return Retorna os valores e os campos informados, ou os erros encontrados.
+     */
+    static <T> PatchRequest<T> read(ObjectMapper objectMapper, Validator validator, ObjectNode body, Class<T> type,
+                                    Set<String> patchable) {
+        Set<String> fields = new LinkedHashSet<>();
+        for (Iterator<String> names = body.fieldNames(); names.hasNext(); )
+            fields.add(names.next());
+        PatchRequest<T> request;
+        try {
+            request = new PatchRequest<>(objectMapper.treeToValue(body, type), fields);
+        } catch (JsonProcessingException e) {
+            request = new PatchRequest<>(null, fields);
+            String field = e instanceof JsonMappingException ? ((JsonMappingException) e).getPath().stream()
+                    .map(JsonMappingException.Reference::getFieldName)
+                    .collect(Collectors.joining(".")) : "";
+            request.error(field, "Valor inválido.");
+            return request;
+        }
+        if (fields.isEmpty()) request.error("", "Nenhum campo informado.");
+        for (String field : fields) {
+            if (!patchable.contains(field)) {
+                request.error(field, "Campo não pode ser alterado.");
+                continue;
+            }
+            if (body.get(field).isNull()) {
+                request.error(field, "Campo não pode ser nulo.");
+                continue;
+            }
+            for (ConstraintViolation<T> violation : validator.validateProperty(request.values, field))
+                request.error(field, violation.getMessage());
+        }
+        return request;
+    }
+
+    private void error(String field, String message) {
+        LinkedHashMap<String, Object> error = new LinkedHashMap<>();
+        error.put("campo", field);
+        error.put("mensagem", message);
+        errors.add(error);
+    }
+
+}
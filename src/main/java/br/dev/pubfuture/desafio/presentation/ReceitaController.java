@@ -1,14 +1,39 @@
 package br.dev.pubfuture.desafio.presentation;
 
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
+import br.dev.pubfuture.desafio.businesslayer.Money;
 import br.dev.pubfuture.desafio.businesslayer.Receita;
+import br.dev.pubfuture.desafio.businesslayer.service.ColumnarStore;
+import br.dev.pubfuture.desafio.businesslayer.service.CsvExport;
 import br.dev.pubfuture.desafio.businesslayer.service.ReceitaService;
+import br.dev.pubfuture.desafio.businesslayer.service.TypeCounters;
+import br.dev.pubfuture.desafio.businesslayer.service.WriteBehind;
+import br.dev.pubfuture.desafio.persistence.Aggregate;
+import br.dev.pubfuture.desafio.persistence.RollupTotal;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -25,17 +50,56 @@ public class ReceitaController {
     @Autowired
     ReceitaService receitaService;
 
+    /**
+     * Fila de gravação assíncrona, utilizada quando o cliente envia 'Prefer: respond-async'.
+     */
+    @Autowired
+    WriteBehind<Receita> receitaIngest;
+
+    /**
+     * Exportação em CSV, lida diretamente do cursor JDBC.
+     */
+    @Autowired
+    CsvExport csvExport;
+
+    /**
+     * Objeto de serialização Json configurado pelo Spring.
+     */
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * Validador de 'Bean Validation' configurado pelo Spring, utilizado nos cadastros em massa.
+     */
+    @Autowired
+    Validator validator;
+
     /**
      * Endpoint '/api/receita/create' utilizado para o cadastro de receitas na base de dados H2.
      * A anotação '@Valid' é utilizada para a corresponder a validação fixada na 'POJO class'.
+     * Com o cabeçalho 'Prefer: respond-async', a receita é registrada no diário da fila de gravação assíncrona e
+     * confirmada com o 'id' reservado e 'status code' ACCEPTED (202), ou recusada com TOO MANY REQUESTS (429)
+     * quando a fila estiver cheia; a gravação no banco de dados ocorre em seguida, em lotes. Com a fila encerrada,
+     * a receita é gravada de forma síncrona.
      * @param receita Objeto receita serializado via Json.
+     * @param prefer Cabeçalho 'Prefer' (opcional).
      * @return O método retorna um 'ResponseEntity' contendo um map correspondendo ao 'id' recém criado e
      * um 'status code', caso a resposta tenha sido OK.
      */
     @PostMapping("/api/receita/create")
-    public ResponseEntity<HashMap<String, Long>> save(@Valid @RequestBody Receita receita) {
-        //insert na base via Spring
-        receitaService.save(receita);
+    public ResponseEntity<HashMap<String, Long>> save(
+            @Valid @RequestBody Receita receita,
+            @RequestHeader(value = AsyncPreference.PREFER, required = false) String prefer) {
+        if (AsyncPreference.requested(prefer) && receitaIngest.isEnabled()) {
+            receita.setId(receitaService.allocateId(receita));
+            WriteBehind.Offer offer = receitaIngest.offer(receita);
+            if (offer == WriteBehind.Offer.QUEUED) return AsyncPreference.accepted(receita.getId());
+            if (offer == WriteBehind.Offer.FULL) return AsyncPreference.busy();
+            //fila encerrada após a verificação: gravação síncrona, com o 'id' já reservado
+            receitaService.insertAll(List.of(receita));
+        } else
+            //insert na base via Spring
+            receitaService.save(receita);
         //objeto map para retorno
         HashMap<String, Long> map = new HashMap<>();
         //insert no map para retorno no formado Json
@@ -43,6 +107,29 @@ public class ReceitaController {
         return new ResponseEntity<>(map, HttpStatus.OK);
     }
 
+    /**
+     * Endpoint '/api/receita/create/bulk' utilizado para o cadastro em massa de receitas na base de dados H2.
+     * Todos os itens são validados antes da gravação; havendo qualquer item inválido ou com 'id' informado, nada
+     * é gravado.
+     * Os itens válidos são inseridos em uma única transação, com inserções agrupadas em lotes JDBC.
+     * @param receitas Coleção de objetos receita serializados via Json.
+     * @return O método retorna um 'ResponseEntity' contendo os 'id' recém criados, na ordem recebida, e
+     * 'status code' OK, ou BAD REQUEST (400) com os erros de validação de cada item.
+     */
+    @PostMapping("/api/receita/create/bulk")
+    public ResponseEntity<LinkedHashMap<String, Object>> saveAll(@RequestBody List<Receita> receitas) {
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        List<LinkedHashMap<String, Object>> errors = BulkValidation.violations(validator, receitas, Receita::getId);
+        if (!errors.isEmpty()) {
+            map.put("erros", errors);
+            return new ResponseEntity<>(map, HttpStatus.BAD_REQUEST);
+        }
+        //insert em lotes na base via Spring
+        List<Receita> saved = receitaService.saveAll(receitas);
+        map.put("ids", saved.stream().map(Receita::getId).toArray());
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
     /**
      * Endpoint '/api/receita/{id}' utilizado para a atualização de registro de receitas na base de dados H2.
      * A anotação '@Valid' é utilizada para a corresponder a validação fixada na 'POJO class'.
@@ -79,6 +166,31 @@ public class ReceitaController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Endpoint '/api/receita/{id}' utilizado para a atualização parcial de receitas: apenas os campos enviados no
+     * Json são validados e gravados, em um único comando SQL, sem a consulta prévia do registro.
+     * @param id O número do 'id' é enviado através do endereço URL.
+     * @param body Campos a serem alterados, serializados via Json.
+     * @return O método retorna um 'ResponseEntity' contendo um map correspondendo ao 'id' recém alterado e
+     * 'status code' OK, NOT FOUND (404) quando não existir, ou BAD REQUEST (400) com os erros de cada campo.
+     */
+    @PatchMapping("/api/receita/{id}")
+    public ResponseEntity<LinkedHashMap<String, Object>> patch(
+            @PathVariable("id") long id, @RequestBody ObjectNode body) {
+        PatchRequest<Receita> patch = PatchRequest.read(objectMapper, validator, body, Receita.class,
+                receitaService.patchableFields());
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        if (!patch.getErrors().isEmpty()) {
+            map.put("erros", patch.getErrors());
+            return new ResponseEntity<>(map, HttpStatus.BAD_REQUEST);
+        }
+        //o número de linhas atualizadas indica se o registro existe
+        if (receitaService.patch(id, patch.getValues(), patch.getFields()).isEmpty())
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        map.put("id", id);
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
     /**
      * Endepoint '/api/receita/{id}' utilizado para a remoção de registros de receitas na base de dados H2.
      * @param id O número do 'id' é enviado através do endereço URL.
@@ -112,11 +224,22 @@ public class ReceitaController {
 
     /**
      * Endpoint utilizado para buscar todos os registros de receitas cadastrados na base de dados.
-     * @return Retorna uma coleção de receitas serializadas.
+     * A listagem é paginada por chave: informe 'after' com o cursor recebido no cabeçalho 'X-Next-Cursor' da
+     * página anterior; o tamanho da página ('limit') é limitado pelo servidor.
+     * @param after Cursor ('id' do último registro da página anterior, ou 0 para a primeira página).
+     * @param limit Tamanho de página solicitado.
+     * @return Retorna uma coleção de receitas serializadas e, quando houver mais registros, o cursor da próxima
+     * página no cabeçalho 'X-Next-Cursor'.
      */
     @GetMapping("/api/receita/all")
-    public List<Receita> listAll() {
-        return receitaService.findAll();
+    public ResponseEntity<List<Receita>> listAll(
+            @RequestParam(value = "after", defaultValue = "0") long after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        KeysetPage<Receita> page = receitaService.findAll(after, limit);
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNext() != null)
+            headers.set(KeysetPage.NEXT_CURSOR_HEADER, String.valueOf(page.getNext()));
+        return new ResponseEntity<>(page.getItems(), headers, HttpStatus.OK);
     }
 
     /**
@@ -125,9 +248,9 @@ public class ReceitaController {
      * um 'status code', caso a resposta tenha sido OK.
      */
     @GetMapping("/api/receita/total")
-    public ResponseEntity<HashMap<String, Float>> totalBalance() {
-        HashMap<String, Float> map = new HashMap<>();
-        map.put("saldo", receitaService.totalBalance());
+    public ResponseEntity<HashMap<String, BigDecimal>> totalBalance() {
+        HashMap<String, BigDecimal> map = new HashMap<>();
+        map.put("saldo", Money.toDecimal(receitaService.totalBalance()));
         return new ResponseEntity<>(map, HttpStatus.OK);
     }
 
@@ -155,4 +278,199 @@ public class ReceitaController {
         return receitaService.findReceitaByTypeOfRevenue(revenue);
     }
 
+    /**
+     * Endpoint utilizado para retornar a quantidade e o somatório das receitas de cada tipo, opcionalmente de uma
+     * conta. A resposta vem dos contadores mantidos em memória, sem consulta ao banco de dados.
+     * @param account Conta (opcional).
+     * @return Retorna uma coleção com o tipo, a quantidade e o somatório de cada tipo e 'status code' OK.
+     */
+    @GetMapping("/api/receita/tp/stats")
+    public ResponseEntity<List<LinkedHashMap<String, Object>>> typeStats(
+            @RequestParam(value = "account", required = false) Integer account) {
+        List<LinkedHashMap<String, Object>> list = new ArrayList<>();
+        for (Map.Entry<Receita.Revenue, TypeCounters.Stats> stat : receitaService.typeStats(account).entrySet()) {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("tipo", stat.getKey());
+            map.put("quantidade", stat.getValue().getQuantity());
+            map.put("total", Money.toDecimal(stat.getValue().getTotal()));
+            list.add(map);
+        }
+        return new ResponseEntity<>(list, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar as receitas agregadas por tipo (TYPE), por conta (ACCOUNT) ou por mês
+     * (MONTH), opcionalmente limitadas a um intervalo de datas. O agrupamento é feito no banco de dados e
+     * apenas uma linha por grupo trafega, em vez de todos os registros.
+     * @param dimension Agrupamento desejado: TYPE, ACCOUNT ou MONTH.
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @return Retorna uma coleção com o grupo, o somatório, a quantidade, o menor e o maior valor de cada grupo.
+     */
+    @GetMapping("/api/receita/aggregate/{dimension}")
+    public ResponseEntity<List<LinkedHashMap<String, Object>>> aggregate(
+            @PathVariable("dimension") Aggregate.Dimension dimension,
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end) {
+        List<LinkedHashMap<String, Object>> groups = new ArrayList<>();
+        for (Aggregate aggregate : receitaService.aggregate(dimension, start, end)) {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("grupo", aggregate.getGroupKey());
+            map.put("total", Money.toDecimal(aggregate.getTotal()));
+            map.put("quantidade", aggregate.getQuantity());
+            map.put("minimo", Money.toDecimal(aggregate.getMinimum()));
+            map.put("maximo", Money.toDecimal(aggregate.getMaximum()));
+            groups.add(map);
+        }
+        return new ResponseEntity<>(groups, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar o somatório das receitas de um intervalo de datas, opcionalmente de uma
+     * conta e de um tipo. A resposta vem do índice mantido em memória, sem percorrer os registros.
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @param account Conta (opcional).
+     * @param type Tipo (opcional).
+     * @return Retorna um map com o somatório e 'status code' OK.
+     */
+    @GetMapping("/api/receita/sum")
+    public ResponseEntity<HashMap<String, BigDecimal>> rangeSum(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end,
+            @RequestParam(value = "account", required = false) Integer account,
+            @RequestParam(value = "type", required = false) Receita.Revenue type) {
+        HashMap<String, BigDecimal> map = new HashMap<>();
+        map.put("total", Money.toDecimal(receitaService.rangeSum(start, end, account, type)));
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar o somatório e a quantidade das receitas filtradas por intervalo de datas,
+     * tipo e conta (todos opcionais). A varredura é feita sobre a cópia colunar mantida em memória.
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @param type Tipo (opcional).
+     * @param account Conta (opcional).
+     * @return Retorna um map com o somatório e a quantidade e 'status code' OK.
+     */
+    @GetMapping("/api/receita/scan")
+    public ResponseEntity<LinkedHashMap<String, Object>> scan(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end,
+            @RequestParam(value = "type", required = false) Receita.Revenue type,
+            @RequestParam(value = "account", required = false) Integer account) {
+        ColumnarStore.Totals totals = receitaService.scan(start, end, type, account);
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("total", Money.toDecimal(totals.getTotal()));
+        map.put("quantidade", totals.getQuantity());
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar o relatório mensal das receitas de um ano, lido do resumo mensal mantido a
+     * cada gravação, sem percorrer os lançamentos.
+     * @param year Ano desejado (opcional, o ano corrente quando não informado).
+     * @return Retorna uma coleção com o mês (yyyy-MM), o somatório e a quantidade de cada mês com receitas.
+     */
+    @GetMapping("/api/receita/report/monthly")
+    public ResponseEntity<List<LinkedHashMap<String, Object>>> monthlyReport(
+            @RequestParam(value = "year", required = false) Integer year) {
+        List<LinkedHashMap<String, Object>> months = new ArrayList<>();
+        for (RollupTotal total : receitaService.monthlyReport(year)) {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("mes", String.format("%04d-%02d", total.getPeriod() / 100, total.getPeriod() % 100));
+            map.put("total", Money.toDecimal(total.getTotal()));
+            map.put("quantidade", total.getQuantity());
+            months.add(map);
+        }
+        return new ResponseEntity<>(months, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para retornar o relatório anual das receitas, lido do resumo mensal.
+     * @param from Ano inicial (opcional).
+     * @param to Ano final (opcional).
+     * @return Retorna uma coleção com o ano, o somatório e a quantidade de cada ano com receitas.
+     */
+    @GetMapping("/api/receita/report/yearly")
+    public ResponseEntity<List<LinkedHashMap<String, Object>>> yearlyReport(
+            @RequestParam(value = "from", required = false) Integer from,
+            @RequestParam(value = "to", required = false) Integer to) {
+        List<LinkedHashMap<String, Object>> years = new ArrayList<>();
+        for (RollupTotal total : receitaService.yearlyReport(from, to)) {
+            LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+            map.put("ano", total.getPeriod());
+            map.put("total", Money.toDecimal(total.getTotal()));
+            map.put("quantidade", total.getQuantity());
+            years.add(map);
+        }
+        return new ResponseEntity<>(years, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para reconstruir o resumo mensal das receitas a partir dos lançamentos (carga inicial
+     * ou correção).
+     * @return Retorna um map com a quantidade de registros do resumo reconstruídos e 'status code' OK.
+     */
+    @PostMapping("/api/receita/report/rebuild")
+    public ResponseEntity<HashMap<String, Integer>> rebuildReport() {
+        HashMap<String, Integer> map = new HashMap<>();
+        map.put("registros", receitaService.rebuildRollup());
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para exportar as receitas no formato NDJSON (um objeto Json por linha), opcionalmente
+     * limitadas a um intervalo de datas. Os registros são escritos diretamente na resposta à medida que são
+     * lidos da base de dados, sem montar uma coleção em memória. A escrita é executada como requisição
+     * assíncrona, limitada por 'spring.mvc.async.request-timeout'; esgotado esse tempo, a leitura é interrompida
+     * e o cliente recebe uma resposta truncada (a última linha pode estar incompleta).
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @return Retorna um 'ResponseEntity' com o corpo gerado de forma contínua e 'status code' OK.
+     */
+    @GetMapping(value = "/api/receita/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end) {
+        ObjectWriter writer = objectMapper.writerFor(Receita.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                receitaService.forEach(start, end, receita -> {
+                    try {
+                        if (Thread.currentThread().isInterrupted())
+                            throw new InterruptedIOException("Exportação interrompida.");
+                        writer.writeValue(generator, receita);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint utilizado para exportar as receitas em CSV (separador ';', vírgula decimal e datas dd/MM/yyyy),
+     * para planilhas, opcionalmente limitadas a um intervalo de datas de recebimento. Os registros são lidos do cursor
+     * JDBC e escritos na resposta à medida que são lidos; com 'Accept-Encoding: gzip', a resposta é compactada
+     * durante a escrita.
+     * @param start Data inicial no formato dd-MM-yyyy (opcional).
+     * @param end Data final no formato dd-MM-yyyy (opcional).
+     * @param acceptEncoding Cabeçalho 'Accept-Encoding' (opcional).
+     * @return Retorna um 'ResponseEntity' com o arquivo 'receitas.csv' gerado de forma contínua e 'status code' OK.
+     */
+    @GetMapping(value = "/api/receita/export/csv", produces = CsvDownload.TEXT_CSV)
+    public ResponseEntity<StreamingResponseBody> exportCsv(
+            @RequestParam(value = "start", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate start,
+            @RequestParam(value = "end", required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate end,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return CsvDownload.of("receitas.csv", acceptEncoding, out -> csvExport.receitas(start, end, out));
+    }
+
 }
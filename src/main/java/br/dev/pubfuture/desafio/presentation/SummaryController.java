@@ -0,0 +1,58 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import br.dev.pubfuture.desafio.businesslayer.Money;
+import br.dev.pubfuture.desafio.businesslayer.service.SummaryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+
+/**
+ * Classe Controller do resumo da tela inicial, anotada para o controle do Spring MVC.
+ * Reúne em uma única requisição o que a tela inicial buscava em quatro: os somatórios de contas, receitas e
+ * despesas e a primeira página de contas.
+ */
+@RestController
+public class SummaryController {
+
+    /**
+     * Objeto da classe SummaryService.
+     */
+    @Autowired
+    SummaryService summaryService;
+
+    /**
+     * Endpoint utilizado para retornar o resumo da tela inicial. As partes são consultadas simultaneamente; a
+     * falha de uma parte não impede o retorno das demais e é informada em 'erros'.
+     * @return O método retorna um 'ResponseEntity' contendo um map com o saldo das contas, os somatórios de
+     * receitas e despesas, a primeira página de contas, os tempos de cada parte e o tempo total, em
+     * milissegundos, e um 'status code' OK.
+     */
+    @GetMapping("/api/summary")
+    public ResponseEntity<LinkedHashMap<String, Object>> summary() {
+        SummaryService.Summary summary = summaryService.summary();
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        LinkedHashMap<String, Long> times = new LinkedHashMap<>();
+        LinkedHashMap<String, String> errors = new LinkedHashMap<>();
+        put(map, times, errors, "saldo", summary.getBalance(), Money::toDecimal);
+        put(map, times, errors, "receita-total", summary.getRevenues(), Money::toDecimal);
+        put(map, times, errors, "despesa-total", summary.getExpenses(), Money::toDecimal);
+        put(map, times, errors, "contas", summary.getAccounts(), page -> page.getItems());
+        times.put("total", summary.getMillis());
+        map.put("tempos-ms", times);
+        if (!errors.isEmpty()) map.put("erros", errors);
+        return new ResponseEntity<>(map, HttpStatus.OK);
+    }
+
+    private static <T> void put(LinkedHashMap<String, Object> map, LinkedHashMap<String, Long> times,
+                                LinkedHashMap<String, String> errors, String key, SummaryService.Part<T> part,
+                                Function<T, Object> value) {
+        map.put(key, part.getValue() == null ? null : value.apply(part.getValue()));
+        times.put(key, part.getMillis());
+        if (part.getError() != null) errors.put(key, part.getError());
+    }
+
+}
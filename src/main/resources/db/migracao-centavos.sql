@@ -0,0 +1,18 @@
+-- Migração dos valores monetários de 'float' (REAL) para centavos em BIGINT (escala 2).
+-- Necessária apenas para bases H2 existentes executadas com 'spring.jpa.hibernate.ddl-auto' diferente de 'create'.
+-- A conversão passa por DECIMAL para não acumular o erro de representação do REAL ao multiplicar por 100.
+
+ALTER TABLE conta ADD COLUMN saldo_centavos BIGINT;
+UPDATE conta SET saldo_centavos = CAST(ROUND(CAST(saldo AS DECIMAL(19, 4)) * 100, 0) AS BIGINT);
+ALTER TABLE conta DROP COLUMN saldo;
+ALTER TABLE conta ALTER COLUMN saldo_centavos RENAME TO saldo;
+
+ALTER TABLE receita ADD COLUMN valor_centavos BIGINT;
+UPDATE receita SET valor_centavos = CAST(ROUND(CAST(valor AS DECIMAL(19, 4)) * 100, 0) AS BIGINT);
+ALTER TABLE receita DROP COLUMN valor;
+ALTER TABLE receita ALTER COLUMN valor_centavos RENAME TO valor;
+
+ALTER TABLE despesa ADD COLUMN valor_centavos BIGINT;
+UPDATE despesa SET valor_centavos = CAST(ROUND(CAST(valor AS DECIMAL(19, 4)) * 100, 0) AS BIGINT);
+ALTER TABLE despesa DROP COLUMN valor;
+ALTER TABLE despesa ALTER COLUMN valor_centavos RENAME TO valor;
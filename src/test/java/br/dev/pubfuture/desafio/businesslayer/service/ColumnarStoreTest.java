@@ -0,0 +1,59 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes de Unidade da cópia colunar: as varreduras escalar e vetorial devem coincidir com a soma direta dos
+ * lançamentos vigentes após inclusões, alterações e remoções.
+ */
+class ColumnarStoreTest {
+
+    private static final int FIRST_DAY = (int) LocalDate.parse("2022-01-01").toEpochDay();
+
+    @Test
+    void testScanMatchesEntries() {
+        ColumnarStore vector = new ColumnarStore(true);
+        ColumnarStore scalar = new ColumnarStore(false);
+        Map<Long, LedgerEntry> current = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            long id = 1 + random.nextInt(3000);
+            LedgerEntry before = current.get(id);
+            LedgerEntry after = random.nextInt(5) == 0 ? null : new LedgerEntry(id, FIRST_DAY + random.nextInt(365),
+                    random.nextInt(100000), random.nextInt(8), 1 + random.nextInt(20));
+            if (before == null && after == null) continue;
+            vector.apply(Rollup.Kind.DESPESA, before, after);
+            scalar.apply(Rollup.Kind.DESPESA, before, after);
+            if (after == null) current.remove(id);
+            else current.put(id, after);
+        }
+        for (int q = 0; q < 200; q++) {
+            int start = FIRST_DAY + random.nextInt(365);
+            int end = start + random.nextInt(120);
+            Integer type = random.nextBoolean() ? random.nextInt(8) : null;
+            Integer account = random.nextBoolean() ? 1 + random.nextInt(20) : null;
+            long total = 0;
+            long quantity = 0;
+            for (LedgerEntry entry : current.values()) {
+                if (entry.getEpochDay() < start || entry.getEpochDay() > end) continue;
+                if (type != null && entry.getType() != type) continue;
+                if (account != null && entry.getAccount() != account) continue;
+                total += entry.getCents();
+                quantity++;
+            }
+            for (ColumnarStore store : new ColumnarStore[]{vector, scalar}) {
+                ColumnarStore.Totals totals = store.scan(Rollup.Kind.DESPESA, start, end, type, account);
+                assertThat(totals.getTotal()).isEqualTo(total);
+                assertThat(totals.getQuantity()).isEqualTo(quantity);
+            }
+        }
+    }
+
+}
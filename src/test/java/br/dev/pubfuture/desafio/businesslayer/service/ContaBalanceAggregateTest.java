@@ -0,0 +1,84 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.persistence.ContaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes de Unidade do somatório de saldos mantido em memória e da sua conferência concorrente com os 'commits'.
+ */
+class ContaBalanceAggregateTest {
+
+    private final ContaRepository contaRepository = mock(ContaRepository.class);
+    private final ContaBalanceAggregate aggregate = new ContaBalanceAggregate(contaRepository);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void testCheckWaitsForCommitNotYetAccumulated() throws Exception {
+        when(contaRepository.totalBalance()).thenReturn(1000L);
+        aggregate.rebuild();
+        TransactionSynchronization deposit = addInTransaction(500);
+
+        //a tabela já reflete o 'commit', o somatório ainda não
+        deposit.beforeCommit(false);
+        when(contaRepository.totalBalance()).thenReturn(1500L);
+        CompletableFuture<ContaBalanceAggregate.Check> check =
+                CompletableFuture.supplyAsync(() -> aggregate.check(true));
+        assertThatThrownBy(() -> check.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        deposit.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        ContaBalanceAggregate.Check result = check.get(5, TimeUnit.SECONDS);
+        assertThat(result.isConsistent()).isTrue();
+        assertThat(result.isRepaired()).isFalse();
+        assertThat(aggregate.value()).isEqualTo(1500);
+    }
+
+    @Test
+    void testRepairDoesNotDiscardLaterCommits() {
+        when(contaRepository.totalBalance()).thenReturn(1000L);
+        aggregate.rebuild();
+        when(contaRepository.totalBalance()).thenReturn(1200L);
+
+        ContaBalanceAggregate.Check result = aggregate.check(true);
+        assertThat(result.getDrift()).isEqualTo(200);
+        assertThat(result.isRepaired()).isTrue();
+
+        //'commit' iniciado após a conferência: somado ao valor reconstruído
+        TransactionSynchronization deposit = addInTransaction(300);
+        deposit.beforeCommit(false);
+        deposit.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        TransactionSynchronization rolledBack = addInTransaction(700);
+        rolledBack.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(aggregate.value()).isEqualTo(1500);
+    }
+
+    /**
+     * Registra a diferença em uma transação simulada.
+     * @return Retorna a sincronização registrada.
+     */
+    private TransactionSynchronization addInTransaction(long delta) {
+        TransactionSynchronizationManager.initSynchronization();
+        aggregate.addAfterCommit(delta);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(synchronizations).hasSize(1);
+        return synchronizations.get(0);
+    }
+
+}
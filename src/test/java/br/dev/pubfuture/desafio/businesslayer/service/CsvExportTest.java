@@ -0,0 +1,80 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Testes da exportação em CSV, lida do cursor JDBC de um H2 embarcado com o esquema criado a partir das
+ * entidades.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@Import(CsvExport.class)
+class CsvExportTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private CsvExport csvExport;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO receita (id, valor, dt_receb, dt_recb_esp, descricao, conta, tp_receita) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)", 1, 150075L, Date.valueOf(LocalDate.of(2022, 1, 5)),
+                Date.valueOf(LocalDate.of(2022, 1, 3)), "Salário; \"janeiro\"", 7, "SALARIO");
+        jdbcTemplate.update("INSERT INTO receita (id, valor, dt_receb, dt_recb_esp, descricao, conta, tp_receita) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)", 2, 5L, Date.valueOf(LocalDate.of(2022, 3, 1)),
+                Date.valueOf(LocalDate.of(2022, 3, 1)), "Presente", 8, "PRESENTE");
+        jdbcTemplate.update("INSERT INTO despesa (id, valor, dt_pagto, dt_pag_esp, conta, tp_despesa) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", 1, 4590L, Date.valueOf(LocalDate.of(2020, 2, 29)),
+                Date.valueOf(LocalDate.of(2020, 2, 28)), 3, "ALIMENTACAO");
+    }
+
+    @Test
+    void testReceitasInRange() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        csvExport.receitas(LocalDate.of(2022, 1, 1), LocalDate.of(2022, 1, 31), out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("\uFEFF"
+                + "id;data;data_esperada;valor;descricao;tipo;conta\n"
+                + "1;05/01/2022;03/01/2022;1500,75;\"Salário; \"\"janeiro\"\"\";SALARIO;7\n");
+    }
+
+    @Test
+    void testAllDespesas() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        csvExport.despesas(null, null, out);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("\uFEFF"
+                + "id;data;data_esperada;valor;tipo;conta\n"
+                + "1;29/02/2020;28/02/2020;45,90;ALIMENTACAO;3\n");
+    }
+
+    @Test
+    void testInterruptedExportStops() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> csvExport.receitas(null, null, out)).isInstanceOf(InterruptedIOException.class);
+        } finally {
+            Thread.interrupted();
+        }
+        assertThat(out.size()).isZero();
+    }
+
+}
@@ -0,0 +1,116 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.persistence.ContaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes do cache de leitura por 'id': carga, invalidação e, em um H2 embarcado, leituras concorrentes com
+ * transferências confirmadas.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+class EntityCacheTest {
+
+    @Autowired
+    private ContaRepository contaRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testReadThroughAndEviction() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EntityCache<String> cache = new EntityCache<>("teste", 100, Duration.ofMinutes(1), registry);
+        AtomicInteger loads = new AtomicInteger();
+        assertThat(cache.get(1, id -> {
+            loads.incrementAndGet();
+            return Optional.of("CONTA " + id);
+        })).contains("CONTA 1");
+        assertThat(cache.get(1, id -> Optional.of("OUTRA"))).contains("CONTA 1");
+        assertThat(loads.get()).isEqualTo(1);
+        //sem transação ativa a invalidação é imediata
+        cache.evictAfterCommit(1);
+        assertThat(cache.get(1, id -> Optional.of("ALTERADA"))).contains("ALTERADA");
+        assertThat(registry.get("cache.gets").tag("cache", "teste").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testMissingEntityIsNotCached() {
+        EntityCache<String> cache = new EntityCache<>("teste", 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        assertThat(cache.get(2, id -> Optional.empty())).isEmpty();
+        assertThat(cache.get(2, id -> Optional.of("CRIADA"))).contains("CRIADA");
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testConcurrentReadsNeverKeepStaleBalance() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        EntityCache<Conta> cache = new EntityCache<>("contas", 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+        TransferEngine engine = new TransferEngine(contaRepository, transactionManager, 4, cache);
+        jdbcTemplate.update("INSERT INTO conta (id, saldo, tp_conta, inst_fin) VALUES (?, ?, ?, ?)",
+                1, 100000L, "CARTEIRA", "Banco A");
+        jdbcTemplate.update("INSERT INTO conta (id, saldo, tp_conta, inst_fin) VALUES (?, ?, ?, ?)",
+                2, 100000L, "POUPANCA", "Banco B");
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            //leituras contínuas das duas contas, carregando o cache durante as transferências
+            List<Future<?>> reads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                long id = 1 + i % 2;
+                reads.add(readers.submit(() -> {
+                    while (running.get())
+                        cache.get(id, contaRepository::findById);
+                }));
+            }
+            for (int i = 0; i < 200; i++) {
+                long from = 1 + i % 2;
+                Conta.TransferResult result = engine.transfer(new Conta.TransferValue(from, 3 - from, i + 1));
+                assertThat(result.getStatus()).isEqualTo(Conta.TransferResult.Status.OK);
+                //após o 'commit' o cache não pode devolver um saldo anterior à transferência
+                assertThat(balance(cache, from)).isEqualTo(result.getFromBalance());
+                assertThat(balance(cache, 3 - from)).isEqualTo(result.getToBalance());
+            }
+            running.set(false);
+            for (Future<?> read : reads)
+                read.get(5, TimeUnit.SECONDS);
+            assertThat(balance(cache, 1) + balance(cache, 2)).isEqualTo(200000L);
+        } finally {
+            running.set(false);
+            readers.shutdownNow();
+            jdbcTemplate.update("DELETE FROM conta");
+        }
+    }
+
+    private long balance(EntityCache<Conta> cache, long id) {
+        return cache.get(id, contaRepository::findById).orElseThrow().getBalance();
+    }
+
+}
@@ -0,0 +1,94 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes de Unidade do índice de somas por intervalo de datas, comparando cada consulta com a soma direta dos
+ * lançamentos, inclusive quando as árvores precisam crescer para datas anteriores e posteriores às já indexadas.
+ */
+class FenwickIndexTest {
+
+    private static final long FIRST_DAY = LocalDate.parse("2022-01-01").toEpochDay();
+
+    @Test
+    void testRangeSumMatchesScan() {
+        FenwickIndex index = new FenwickIndex();
+        Random random = new Random(7);
+        LedgerEntry[] entries = new LedgerEntry[2000];
+        for (int i = 0; i < entries.length; i++) {
+            //datas espalhadas por ±5 anos a partir de 2022, forçando o crescimento das árvores em ambos os sentidos
+            int day = (int) (FIRST_DAY + random.nextInt(3650) - 1825);
+            entries[i] = new LedgerEntry(i + 1, day, 1 + random.nextInt(100000), random.nextInt(8),
+                    1 + random.nextInt(5));
+            index.apply(Rollup.Kind.DESPESA, null, entries[i]);
+        }
+        for (int q = 0; q < 200; q++) {
+            long start = FIRST_DAY + random.nextInt(4000) - 2000;
+            long end = start + random.nextInt(800);
+            Integer account = random.nextBoolean() ? 1 + random.nextInt(5) : null;
+            Integer type = random.nextBoolean() ? random.nextInt(8) : null;
+            long expected = 0;
+            for (LedgerEntry entry : entries)
+                if (entry.getEpochDay() >= start && entry.getEpochDay() <= end
+                        && (account == null || entry.getAccount() == account)
+                        && (type == null || entry.getType() == type))
+                    expected += entry.getCents();
+            assertThat(index.sum(Rollup.Kind.DESPESA, start, end, account, type)).isEqualTo(expected);
+        }
+        assertThat(index.sum(Rollup.Kind.RECEITA, Periods.MIN.toEpochDay(), Periods.MAX.toEpochDay(), null, null))
+                .isZero();
+    }
+
+    @Test
+    void testUpdateMovesValueBetweenDays() {
+        FenwickIndex index = new FenwickIndex();
+        LedgerEntry before = new LedgerEntry(1, (int) FIRST_DAY, 1000, 2, 9);
+        LedgerEntry after = new LedgerEntry(1, (int) FIRST_DAY + 40, 1500, 3, 9);
+        index.apply(Rollup.Kind.RECEITA, null, before);
+        index.apply(Rollup.Kind.RECEITA, before, after);
+        assertThat(index.sum(Rollup.Kind.RECEITA, FIRST_DAY, FIRST_DAY + 39, null, null)).isZero();
+        assertThat(index.sum(Rollup.Kind.RECEITA, FIRST_DAY, FIRST_DAY + 40, 9, 3)).isEqualTo(1500);
+        assertThat(index.sum(Rollup.Kind.RECEITA, FIRST_DAY, FIRST_DAY + 40, 9, 2)).isZero();
+        index.apply(Rollup.Kind.RECEITA, after, null);
+        assertThat(index.sum(Rollup.Kind.RECEITA, Periods.MIN.toEpochDay(), Periods.MAX.toEpochDay(), null, null))
+                .isZero();
+    }
+
+    @Test
+    void testAccountZeroIsNotTheWildcard() {
+        FenwickIndex index = new FenwickIndex();
+        index.apply(Rollup.Kind.DESPESA, null, new LedgerEntry(1, (int) FIRST_DAY, 700, 1, 0));
+        index.apply(Rollup.Kind.DESPESA, null, new LedgerEntry(2, (int) FIRST_DAY, 300, 2, 4));
+        assertThat(index.sum(Rollup.Kind.DESPESA, FIRST_DAY, FIRST_DAY, 0, null)).isEqualTo(700);
+        assertThat(index.sum(Rollup.Kind.DESPESA, FIRST_DAY, FIRST_DAY, 0, 1)).isEqualTo(700);
+        assertThat(index.sum(Rollup.Kind.DESPESA, FIRST_DAY, FIRST_DAY, 0, 2)).isZero();
+        assertThat(index.sum(Rollup.Kind.DESPESA, FIRST_DAY, FIRST_DAY, null, null)).isEqualTo(1000);
+        assertThat(index.sum(Rollup.Kind.DESPESA, FIRST_DAY, FIRST_DAY, null, 2)).isEqualTo(300);
+    }
+
+    @Test
+    void testDistantDatesAllocateOnlyPopulatedBlocks() {
+        FenwickIndex index = new FenwickIndex();
+        int last = (int) Periods.MAX.toEpochDay();
+        index.apply(Rollup.Kind.RECEITA, null, new LedgerEntry(1, (int) FIRST_DAY, 1000, 0, 1));
+        index.apply(Rollup.Kind.RECEITA, null, new LedgerEntry(2, last, 250, 0, 1));
+        index.apply(Rollup.Kind.RECEITA, null, new LedgerEntry(3, (int) Periods.MIN.toEpochDay(), 5, 1, 2));
+        assertThat(index.sum(Rollup.Kind.RECEITA, Periods.MIN.toEpochDay(), Periods.MAX.toEpochDay(), null, null))
+                .isEqualTo(1255);
+        assertThat(index.sum(Rollup.Kind.RECEITA, FIRST_DAY + 1, last, 1, 0)).isEqualTo(250);
+        assertThat(index.sum(Rollup.Kind.RECEITA, FIRST_DAY, last - 1, null, 0)).isEqualTo(1000);
+
+        //dois lançamentos separados por quase oito mil anos ocupam apenas os seus dois blocos
+        FenwickIndex.Tree tree = new FenwickIndex.Tree();
+        tree.add((int) FIRST_DAY, 1);
+        tree.add(last, 1);
+        assertThat(tree.blocks()).isEqualTo(2);
+        assertThat(tree.range(FIRST_DAY, last)).isEqualTo(2);
+    }
+
+}
@@ -0,0 +1,148 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.IdempotencyRecord;
+import br.dev.pubfuture.desafio.persistence.IdempotencyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes de Unidade do registro de idempotência.
+ */
+class IdempotencyStoreTest {
+
+    private static final Instant NOW = Instant.parse("2022-01-10T12:00:00Z");
+
+    private final IdempotencyRepository repository = mock(IdempotencyRepository.class);
+    private final IdempotencyStore store = new IdempotencyStore(repository, new SimpleMeterRegistry(), 100,
+            Duration.ofHours(24), Duration.ofSeconds(5), Duration.ofHours(1), Clock.fixed(NOW, ZoneOffset.UTC));
+
+    @AfterEach
+    void tearDown() {
+        store.stop();
+    }
+
+    @Test
+    void testReplayAndMismatch() throws Exception {
+        when(repository.findById("k1")).thenReturn(Optional.empty());
+        assertThat(store.begin("k1", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.EXECUTE);
+        store.complete("k1", "a", 201, "Content-Type: application/json\n", bytes("{\"id\":1}"));
+
+        IdempotencyStore.Outcome replay = store.begin("k1", "a");
+        assertThat(replay.getType()).isEqualTo(IdempotencyStore.Outcome.Type.REPLAY);
+        assertThat(replay.getRecord().getStatus()).isEqualTo(201);
+        assertThat(replay.getRecord().getExpiresAt()).isEqualTo(NOW.plus(Duration.ofHours(24)));
+        assertThat(store.begin("k1", "b").getType()).isEqualTo(IdempotencyStore.Outcome.Type.MISMATCH);
+        //a marcação antes da execução e a resposta ao final
+        verify(repository, times(2)).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    void testReplayFromTableIgnoresExpired() throws Exception {
+        when(repository.findById("stored")).thenReturn(Optional.of(
+                new IdempotencyRecord("stored", "a", 200, "", bytes("ok"), NOW.plusSeconds(60))));
+        when(repository.findById("expired")).thenReturn(Optional.of(
+                new IdempotencyRecord("expired", "a", 200, "", bytes("ok"), NOW.minusSeconds(1))));
+
+        assertThat(store.begin("stored", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.REPLAY);
+        assertThat(store.begin("expired", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.EXECUTE);
+    }
+
+    @Test
+    void testConcurrentDuplicateWaitsForFirstExecution() throws Exception {
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        assertThat(store.begin("k2", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.EXECUTE);
+
+        CompletableFuture<IdempotencyStore.Outcome> duplicate = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store.begin("k2", "a");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        //a repetição aguarda enquanto a primeira execução não termina
+        Thread.sleep(100);
+        assertThat(duplicate).isNotDone();
+        assertThat(store.begin("k2", "b").getType()).isEqualTo(IdempotencyStore.Outcome.Type.MISMATCH);
+
+        store.complete("k2", "a", 200, "", bytes("ok"));
+        IdempotencyStore.Outcome outcome = duplicate.get(5, TimeUnit.SECONDS);
+        assertThat(outcome.getType()).isEqualTo(IdempotencyStore.Outcome.Type.REPLAY);
+        assertThat(new String(outcome.getRecord().getBody(), StandardCharsets.UTF_8)).isEqualTo("ok");
+    }
+
+    @Test
+    void testAbandonedExecutionLetsWaiterExecute() throws Exception {
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        assertThat(store.begin("k3", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.EXECUTE);
+        CompletableFuture<IdempotencyStore.Outcome> duplicate = CompletableFuture.supplyAsync(() -> {
+            try {
+                return store.begin("k3", "a");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        store.abandon("k3");
+
+        assertThat(duplicate.get(5, TimeUnit.SECONDS).getType()).isEqualTo(IdempotencyStore.Outcome.Type.EXECUTE);
+    }
+
+    @Test
+    void testFailedRecordLeavesKeyIndeterminate() throws Exception {
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        when(repository.save(any(IdempotencyRecord.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataAccessResourceFailureException("indisponível"));
+        assertThat(store.begin("k4", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.EXECUTE);
+
+        assertThatThrownBy(() -> store.complete("k4", "a", 200, "", bytes("ok")))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        //a operação foi executada, mas só a marcação ficou gravada: a chave não volta a ser executada
+        when(repository.findById("k4")).thenReturn(Optional.of(
+                new IdempotencyRecord("k4", "a", 0, null, null, NOW.plusSeconds(60))));
+        assertThat(store.begin("k4", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.INDETERMINATE);
+        assertThat(store.begin("k4", "b").getType()).isEqualTo(IdempotencyStore.Outcome.Type.MISMATCH);
+    }
+
+    @Test
+    void testFailedMarkPreventsExecution() throws Exception {
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        when(repository.save(any(IdempotencyRecord.class)))
+                .thenThrow(new DataAccessResourceFailureException("indisponível"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertThatThrownBy(() -> store.begin("k5", "a")).isInstanceOf(DataAccessResourceFailureException.class);
+        //a execução não ficou registrada em memória
+        assertThat(store.begin("k5", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.EXECUTE);
+    }
+
+    @Test
+    void testAbandonRemovesMark() throws Exception {
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        assertThat(store.begin("k6", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.EXECUTE);
+        store.abandon("k6");
+
+        verify(repository).deleteById("k6");
+        assertThat(store.begin("k6", "a").getType()).isEqualTo(IdempotencyStore.Outcome.Type.EXECUTE);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
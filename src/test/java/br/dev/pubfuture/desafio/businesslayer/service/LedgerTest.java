@@ -0,0 +1,95 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Testes de Unidade da ordem de entrega do distribuidor de alterações.
+ */
+class LedgerTest {
+
+    private final List<Long> applied = new CopyOnWriteArrayList<>();
+    private final List<String> threads = new CopyOnWriteArrayList<>();
+    private final Ledger ledger = new Ledger(null, null, List.of(new LedgerProjection() {
+        @Override
+        public void apply(Rollup.Kind kind, LedgerEntry before, LedgerEntry after) {
+            threads.add(Thread.currentThread().getName());
+            applied.add(after == null ? -before.getId() : after.getId());
+        }
+
+        @Override
+        public void clear(Rollup.Kind kind) {
+        }
+    }), mock(PlatformTransactionManager.class));
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+        ledger.stop();
+    }
+
+    @Test
+    void testDeliversInCommitOrderAndSkipsRolledBack() throws Exception {
+        TransactionSynchronization first = publish(1);
+        TransactionSynchronization second = publish(2);
+        TransactionSynchronization third = publish(3);
+        TransactionSynchronization fourth = publish(4);
+
+        //a quarta transação é desfeita antes do 'commit' e não recebe número de sequência
+        fourth.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        //a terceira inicia o 'commit' depois da primeira e termina antes dela: a sua entrega aguarda a primeira
+        first.beforeCommit(false);
+        second.beforeCommit(false);
+        third.beforeCommit(false);
+        second.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        Thread committing = new Thread(() -> third.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        committing.start();
+        committing.join(200);
+        assertThat(committing.isAlive()).isTrue();
+        assertThat(applied).isEmpty();
+
+        //o término da primeira libera as entregas e a terceira deixa de aguardar
+        first.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        committing.join(5000);
+        assertThat(committing.isAlive()).isFalse();
+        assertThat(applied).containsExactly(1L, 3L);
+
+        //fora de uma transação a entrega é imediata
+        ledger.publish(Rollup.Kind.RECEITA, new LedgerEntry(3, 19000, 100, 0, 1), null);
+        assertThat(applied).containsExactly(1L, 3L, -3L);
+    }
+
+    @Test
+    void testProjectionsRunOnDeliveryThread() {
+        TransactionSynchronization committed = publish(5);
+        committed.beforeCommit(false);
+        committed.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(applied).containsExactly(5L);
+        assertThat(threads).containsOnly("ledger-delivery");
+    }
+
+    /**
+     * Publica uma inclusão em uma transação simulada.
+     * @return Retorna a sincronização registrada pela publicação.
+     */
+    private TransactionSynchronization publish(long id) {
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.publish(Rollup.Kind.RECEITA, null, new LedgerEntry(id, 19000, 100, 0, 1));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(synchronizations).hasSize(1);
+        return synchronizations.get(0);
+    }
+
+}
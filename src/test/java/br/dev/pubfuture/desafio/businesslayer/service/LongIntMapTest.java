@@ -0,0 +1,40 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes de Unidade do mapa de 'long' para 'int' com endereçamento aberto.
+ */
+class LongIntMapTest {
+
+    @Test
+    void testRemoveMissingOrReservedKeyKeepsSize() {
+        LongIntMap map = new LongIntMap();
+        map.put(1, 10);
+        map.put(2, 20);
+
+        map.remove(0);
+        map.remove(3);
+        assertThat(map.size()).isEqualTo(2);
+
+        map.remove(1);
+        map.remove(1);
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get(1)).isEqualTo(-1);
+        assertThat(map.get(2)).isEqualTo(20);
+    }
+
+    @Test
+    void testRemoveKeepsProbeSequences() {
+        LongIntMap map = new LongIntMap();
+        for (int key = 1; key <= 1000; key++) map.put(key, key * 2);
+        for (int key = 1; key <= 1000; key += 2) map.remove(key);
+
+        assertThat(map.size()).isEqualTo(500);
+        for (int key = 1; key <= 1000; key++)
+            assertThat(map.get(key)).isEqualTo(key % 2 == 0 ? key * 2 : -1);
+    }
+
+}
@@ -0,0 +1,111 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import br.dev.pubfuture.desafio.persistence.RollupTotal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes do resumo mensal: criação e acúmulo dos registros na transação do lançamento e reconstrução
+ * concorrente com os lançamentos.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@Import(MonthlyRollup.class)
+class MonthlyRollupTest {
+
+    @Autowired
+    private MonthlyRollup monthlyRollup;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testCreatesAndAccumulatesInSameTransaction() {
+        monthlyRollup.delta(Rollup.Kind.RECEITA)
+                .add(LocalDate.of(2022, 1, 5), 7, Receita.Revenue.SALARIO, 1000)
+                .add(LocalDate.of(2022, 2, 1), 7, Receita.Revenue.SALARIO, 300)
+                .apply();
+        monthlyRollup.delta(Rollup.Kind.RECEITA)
+                .add(LocalDate.of(2022, 1, 20), 7, Receita.Revenue.SALARIO, 500)
+                .remove(LocalDate.of(2022, 2, 1), 7, Receita.Revenue.SALARIO, 300)
+                .apply();
+
+        List<RollupTotal> monthly = monthlyRollup.monthly(Rollup.Kind.RECEITA, 2022);
+        assertThat(monthly).hasSize(1);
+        assertThat(monthly.get(0).getPeriod()).isEqualTo(202201);
+        assertThat(monthly.get(0).getTotal()).isEqualTo(1500L);
+        assertThat(monthly.get(0).getQuantity()).isEqualTo(2L);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testRebuildWaitsForWritersInFlight() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        CountDownLatch applied = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        try {
+            //lançamento gravado e resumo alterado, ainda não confirmados, quando a reconstrução começa
+            Thread writer = new Thread(() -> transaction.executeWithoutResult(status -> {
+                jdbcTemplate.update("INSERT INTO receita (id, valor, dt_receb, dt_recb_esp, descricao, conta, "
+                        + "tp_receita) VALUES (?, ?, ?, ?, ?, ?, ?)", 21, 1000L, LocalDate.of(2022, 1, 5),
+                        LocalDate.of(2022, 1, 5), "Salário", 7, "SALARIO");
+                monthlyRollup.delta(Rollup.Kind.RECEITA)
+                        .add(LocalDate.of(2022, 1, 5), 7, Receita.Revenue.SALARIO, 1000).apply();
+                applied.countDown();
+                await(commit);
+            }));
+            writer.start();
+            assertThat(applied.await(5, TimeUnit.SECONDS)).isTrue();
+            Thread rebuild = new Thread(() -> transaction.executeWithoutResult(status ->
+                    monthlyRollup.rebuild(Rollup.Kind.RECEITA)));
+            rebuild.start();
+            rebuild.join(300);
+            assertThat(rebuild.isAlive()).isTrue();
+
+            commit.countDown();
+            writer.join(5000);
+            rebuild.join(5000);
+            assertThat(rebuild.isAlive()).isFalse();
+            //o lançamento é contado uma única vez: pela reconstrução, que substituiu a diferença
+            List<RollupTotal> monthly = monthlyRollup.monthly(Rollup.Kind.RECEITA, 2022);
+            assertThat(monthly).hasSize(1);
+            assertThat(monthly.get(0).getTotal()).isEqualTo(1000L);
+            assertThat(monthly.get(0).getQuantity()).isEqualTo(1L);
+        } finally {
+            commit.countDown();
+            jdbcTemplate.update("DELETE FROM receita");
+            jdbcTemplate.update("DELETE FROM resumo_mensal");
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
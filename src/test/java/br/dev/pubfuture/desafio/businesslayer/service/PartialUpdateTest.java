@@ -0,0 +1,196 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import br.dev.pubfuture.desafio.persistence.DespesaRepository;
+import br.dev.pubfuture.desafio.persistence.ReceitaRepository;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Testes da atualização parcial em um único comando ('OLD TABLE'), executada em um H2 embarcado com o esquema
+ * criado a partir das entidades: as definições dos serviços e as diferenças entregues ao resumo mensal e, após o
+ * 'commit', aos contadores por tipo.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@Import(MonthlyRollup.class)
+class PartialUpdateTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReceitaRepository receitaRepository;
+
+    @Autowired
+    private DespesaRepository despesaRepository;
+
+    @Autowired
+    private MonthlyRollup monthlyRollup;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final TypeCounters typeCounters = new TypeCounters();
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Ledger ledger;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO conta (id, saldo, tp_conta, inst_fin) VALUES (?, ?, ?, ?)",
+                7, 10000L, "POUPANCA", "Banco A");
+        ledger = new Ledger(receitaRepository, despesaRepository, List.of(typeCounters), transactionManager);
+    }
+
+    @Test
+    void testUpdatesOnlySuppliedFields() {
+        Conta values = Conta.builder().financialInstitution("Banco B").accountType(Conta.AccountType.CARTEIRA).build();
+        PartialUpdate.Change<Conta> change = ContaService.PATCH.apply(jdbcTemplate, 7, values,
+                Set.of("financialInstitution"));
+
+        assertThat(change.getBefore()).isEqualTo(new Conta(7, 10000L, Conta.AccountType.POUPANCA, "Banco A"));
+        assertThat(change.getAfter()).isEqualTo(new Conta(7, 10000L, Conta.AccountType.POUPANCA, "Banco B"));
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT saldo, tp_conta, inst_fin FROM conta WHERE id = 7");
+        assertThat(row.get("SALDO")).isEqualTo(10000L);
+        assertThat(row.get("TP_CONTA")).isEqualTo("POUPANCA");
+        assertThat(row.get("INST_FIN")).isEqualTo("Banco B");
+    }
+
+    @Test
+    void testMissingRow() {
+        Conta values = Conta.builder().financialInstitution("Banco B").build();
+        assertThat(ContaService.PATCH.apply(jdbcTemplate, 8, values, Set.of("financialInstitution"))).isNull();
+    }
+
+    @Test
+    void testRejectsUnknownOrEmptyFields() {
+        Conta values = new Conta();
+        assertThatThrownBy(() -> ContaService.PATCH.apply(jdbcTemplate, 7, values, Set.of("id")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ContaService.PATCH.apply(jdbcTemplate, 7, values, Set.of("balance")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ContaService.PATCH.apply(jdbcTemplate, 7, values, Set.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(ContaService.PATCH.fields()).containsExactly("accountType", "financialInstitution");
+    }
+
+    @Test
+    void testReceitaPatchDeliversDeltas() {
+        Receita receita = new Receita(11, 1000, LocalDate.of(2022, 1, 5), LocalDate.of(2022, 1, 5), "Salário", 7,
+                Receita.Revenue.SALARIO);
+        jdbcTemplate.update("INSERT INTO receita (id, valor, dt_receb, dt_recb_esp, descricao, conta, tp_receita) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", 11, 1000L, receita.getReceivingDate(),
+                receita.getExpectedReceiptDate(), receita.getDescription(), 7, "SALARIO");
+        monthlyRollup.delta(Rollup.Kind.RECEITA)
+                .add(receita.getReceivingDate(), 7, receita.getTypeOfRevenue(), 1000).apply();
+        typeCounters.apply(Rollup.Kind.RECEITA, null, LedgerEntry.of(receita));
+        ReceitaService service = new ReceitaService(receitaRepository, null, monthlyRollup, ledger, null, null,
+                mock(EntityCache.class), mock(SingleFlight.class), null, typeCounters, dataSource);
+
+        Receita values = Receita.builder().value(2500).typeOfRevenue(Receita.Revenue.PREMIO)
+                .receivingDate(LocalDate.of(2022, 2, 10)).build();
+        Receita after = service.patch(11, values, Set.of("value", "typeOfRevenue", "receivingDate")).orElseThrow();
+        assertThat(after).isEqualTo(new Receita(11, 2500, LocalDate.of(2022, 2, 10), LocalDate.of(2022, 1, 5),
+                "Salário", 7, Receita.Revenue.PREMIO));
+
+        //o resumo mensal é alterado na própria transação
+        assertThat(monthlyRollup.monthly(Rollup.Kind.RECEITA, 2022))
+                .extracting("period", "total", "quantity")
+                .containsExactly(tuple(202202, 2500L, 1L));
+        assertThat(rollup(Rollup.Kind.RECEITA)).containsExactly(tuple(202202, "PREMIO", 2500L, 1L));
+
+        //os contadores por tipo só recebem a alteração após o 'commit'
+        assertThat(typeCounters.stats(Rollup.Kind.RECEITA, null)[Receita.Revenue.SALARIO.ordinal()].getQuantity())
+                .isEqualTo(1);
+        commit(() -> {
+            TypeCounters.Stats[] stats = typeCounters.stats(Rollup.Kind.RECEITA, 7);
+            assertThat(stats[Receita.Revenue.SALARIO.ordinal()]).extracting("total", "quantity")
+                    .containsExactly(0L, 0L);
+            assertThat(stats[Receita.Revenue.PREMIO.ordinal()]).extracting("total", "quantity")
+                    .containsExactly(2500L, 1L);
+        });
+    }
+
+    @Test
+    void testDespesaPatchDeliversDeltas() {
+        Despesa despesa = new Despesa(12, 4000, LocalDate.of(2022, 3, 31), LocalDate.of(2022, 3, 31),
+                Despesa.TypeOfExpense.LAZER, 7);
+        jdbcTemplate.update("INSERT INTO despesa (id, valor, dt_pagto, dt_pag_esp, tp_despesa, conta) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", 12, 4000L, despesa.getPayday(), despesa.getExpectedPaymentDate(),
+                "LAZER", 7);
+        monthlyRollup.delta(Rollup.Kind.DESPESA)
+                .add(despesa.getPayday(), 7, despesa.getTypeOfExpense(), 4000).apply();
+        typeCounters.apply(Rollup.Kind.DESPESA, null, LedgerEntry.of(despesa));
+        DespesaService service = new DespesaService(despesaRepository, null, monthlyRollup, ledger, null, null,
+                mock(EntityCache.class), mock(SingleFlight.class), null, typeCounters, dataSource);
+
+        Despesa values = Despesa.builder().value(1500).typeOfExpense(Despesa.TypeOfExpense.SAUDE)
+                .payday(LocalDate.of(2022, 4, 1)).build();
+        service.patch(12, values, Set.of("value", "typeOfExpense", "payday")).orElseThrow();
+
+        assertThat(monthlyRollup.monthly(Rollup.Kind.DESPESA, 2022))
+                .extracting("period", "total", "quantity")
+                .containsExactly(tuple(202204, 1500L, 1L));
+        assertThat(rollup(Rollup.Kind.DESPESA)).containsExactly(tuple(202204, "SAUDE", 1500L, 1L));
+
+        commit(() -> {
+            TypeCounters.Stats[] stats = typeCounters.stats(Rollup.Kind.DESPESA, null);
+            assertThat(stats[Despesa.TypeOfExpense.LAZER.ordinal()]).extracting("total", "quantity")
+                    .containsExactly(0L, 0L);
+            assertThat(stats[Despesa.TypeOfExpense.SAUDE.ordinal()]).extracting("total", "quantity")
+                    .containsExactly(1500L, 1L);
+        });
+    }
+
+    /**
+     * @return Retorna as linhas não vazias do resumo mensal (mês, tipo, total e quantidade).
+     */
+    private List<Tuple> rollup(Rollup.Kind kind) {
+        return jdbcTemplate.query("SELECT mes, tipo, total, qtd FROM resumo_mensal WHERE lancamento = ? AND qtd <> 0 "
+                        + "ORDER BY mes, tipo", (rs, row) -> tuple(rs.getInt("mes"), rs.getString("tipo"),
+                rs.getLong("total"), rs.getLong("qtd")), kind.name());
+    }
+
+    /**
+     * Confirma a transação do teste, disparando a entrega às projeções, verifica o resultado e remove as linhas
+     * confirmadas, que de outro modo permaneceriam no banco compartilhado pelos testes.
+     */
+    private void commit(Runnable verification) {
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            verification.run();
+        } finally {
+            jdbcTemplate.update("DELETE FROM receita");
+            jdbcTemplate.update("DELETE FROM despesa");
+            jdbcTemplate.update("DELETE FROM resumo_mensal");
+            jdbcTemplate.update("DELETE FROM conta");
+        }
+    }
+
+}
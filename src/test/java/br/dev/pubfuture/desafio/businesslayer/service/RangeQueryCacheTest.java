@@ -0,0 +1,67 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes de Unidade do cache das consultas por intervalo de datas.
+ */
+class RangeQueryCacheTest {
+
+    private static final LocalDate JAN_1 = LocalDate.of(2022, 1, 1);
+    private static final LocalDate JAN_31 = LocalDate.of(2022, 1, 31);
+    private static final LocalDate FEB_1 = LocalDate.of(2022, 2, 1);
+    private static final LocalDate FEB_28 = LocalDate.of(2022, 2, 28);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final BiFunction<LocalDate, LocalDate, List<String>> loader = (start, end) -> {
+        loads.incrementAndGet();
+        return List.of(start + ".." + end);
+    };
+
+    @Test
+    void testInvalidatesOnlyRangesContainingTheDate() {
+        RangeQueryCache<String> cache = new RangeQueryCache<>(Rollup.Kind.RECEITA, "teste", 1000,
+                Duration.ofMinutes(1), new SimpleMeterRegistry());
+        cache.get(JAN_1, JAN_31, loader);
+        cache.get(FEB_1, FEB_28, loader);
+        cache.get(JAN_1, JAN_31, loader);
+        assertThat(loads.get()).isEqualTo(2);
+
+        //uma receita de 15/02 invalida apenas fevereiro; uma despesa não invalida nenhum intervalo
+        cache.apply(Rollup.Kind.RECEITA, null, entry(LocalDate.of(2022, 2, 15)));
+        cache.apply(Rollup.Kind.DESPESA, null, entry(LocalDate.of(2022, 1, 15)));
+        cache.get(JAN_1, JAN_31, loader);
+        cache.get(FEB_1, FEB_28, loader);
+        assertThat(loads.get()).isEqualTo(3);
+
+        //a alteração de data invalida os intervalos da data anterior e da nova
+        cache.apply(Rollup.Kind.RECEITA, entry(JAN_31), entry(FEB_1));
+        cache.get(JAN_1, JAN_31, loader);
+        cache.get(FEB_1, FEB_28, loader);
+        assertThat(loads.get()).isEqualTo(5);
+    }
+
+    @Test
+    void testMissingDatesAreNotCached() {
+        RangeQueryCache<String> cache = new RangeQueryCache<>(Rollup.Kind.DESPESA, "teste", 1000,
+                Duration.ofMinutes(1), new SimpleMeterRegistry());
+        cache.get(null, JAN_31, loader);
+        cache.get(null, JAN_31, loader);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    private static LedgerEntry entry(LocalDate date) {
+        return new LedgerEntry(1, (int) date.toEpochDay(), 100, 0, 1);
+    }
+
+}
@@ -0,0 +1,65 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes de Unidade do agrupamento de consultas concorrentes.
+ */
+class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallsShareOneLoad() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SingleFlight flights = new SingleFlight("teste", Duration.ZERO, registry);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                results.add(executor.submit(() -> flights.get("total", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return 42L;
+                })));
+            //aguarda que as demais chamadas encontrem a consulta em andamento
+            while (registry.get("desafio.singleflight.calls").tag("result", "shared").counter().count() < 7)
+                Thread.sleep(1);
+            release.countDown();
+            for (Future<Long> result : results)
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(42L);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        //sem tempo de vida, uma nova chamada executa uma nova consulta
+        assertThat(flights.get("total", () -> 43L)).isEqualTo(43L);
+    }
+
+    @Test
+    void testTtlAndInvalidation() {
+        SingleFlight flights = new SingleFlight("teste", Duration.ofMinutes(1), new SimpleMeterRegistry());
+        assertThat(flights.get("total", () -> 1L)).isEqualTo(1L);
+        assertThat(flights.get("total", () -> 2L)).isEqualTo(1L);
+        //sem transação ativa a invalidação é imediata
+        flights.invalidateAfterCommit();
+        assertThat(flights.get("total", () -> 3L)).isEqualTo(3L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,157 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import javax.validation.Validation;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes de Unidade da importação de extratos bancários.
+ */
+class StatementImportTest {
+
+    private final ReceitaService receitaService = mock(ReceitaService.class);
+    private final DespesaService despesaService = mock(DespesaService.class);
+    private final List<String> errors = new ArrayList<>();
+    private final List<StatementImport.Progress> events = new ArrayList<>();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCsvSplitsBySignAndReportsLineErrors() throws IOException {
+        String csv = "data;valor;descricao;tipo;conta\n"
+                + "05/01/2022;1.500,00;Salário;salario;1\n"
+                + "06-01-2022;-45,90;Mercado;alimentacao;1\n"
+                + "2022-01-07;10,00;;;1\n"
+                + "08/01/2022;-5,00;Cinema;viagem;1\n"
+                + "09/01/2022;0;Nada;;1\n"
+                + "10/01/2022;20,00;\"Prêmio; \"\"bônus\"\"\";;\n";
+        StatementImport.Progress progress = importer(1000)
+                .run(StatementImport.Format.CSV, new StringReader(csv), 2, listener());
+
+        ArgumentCaptor<List<Receita>> receitas = ArgumentCaptor.forClass(List.class);
+        verify(receitaService).saveAll(receitas.capture());
+        assertThat(receitas.getValue()).extracting(Receita::getValue, Receita::getDescription, Receita::getAccount,
+                        Receita::getTypeOfRevenue)
+                .containsExactly(tuple(150000L, "Salário", 1, Receita.Revenue.SALARIO),
+                        tuple(2000L, "Prêmio; \"bônus\"", 2, Receita.Revenue.OUTROS));
+        ArgumentCaptor<List<Despesa>> despesas = ArgumentCaptor.forClass(List.class);
+        verify(despesaService).saveAll(despesas.capture());
+        assertThat(despesas.getValue()).singleElement().satisfies(despesa -> {
+            assertThat(despesa.getValue()).isEqualTo(4590L);
+            assertThat(despesa.getPayday()).isEqualTo(LocalDate.of(2022, 1, 6));
+            assertThat(despesa.getTypeOfExpense()).isEqualTo(Despesa.TypeOfExpense.ALIMENTACAO);
+        });
+        assertThat(errors).containsExactly(
+                "4: description: Descrição não pode ficar em branco.",
+                "5: Tipo inválido: viagem",
+                "6: Valor não pode ser zero.");
+        assertThat(progress).isEqualTo(new StatementImport.Progress(6, 2, 1, 3, true));
+    }
+
+    @Test
+    void testBatchesAndRetriesFailedBatchRowByRow() throws IOException {
+        StringBuilder csv = new StringBuilder("date,amount,memo\n");
+        for (int i = 1; i <= 5; i++) csv.append("2022-01-0").append(i).append(',').append(i).append(".00,item\n");
+        when(receitaService.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Receita> batch = invocation.getArgument(0);
+            if (batch.stream().anyMatch(receita -> receita.getValue() == 300))
+                throw new IllegalStateException("falha");
+            return batch;
+        });
+        StatementImport.Progress progress = importer(2)
+                .run(StatementImport.Format.CSV, new StringReader(csv.toString()), 1, listener());
+
+        //lotes (1, 2), (3, 4) com nova tentativa individual e (5)
+        verify(receitaService, times(5)).saveAll(anyList());
+        assertThat(errors).containsExactly("4: falha");
+        assertThat(events).extracting(StatementImport.Progress::getRevenues).containsExactly(2L, 3L, 4L, 4L);
+        assertThat(progress.getErrors()).isEqualTo(1);
+    }
+
+    @Test
+    void testInterruptionKeepsSavedBatchesAndStops() {
+        StringBuilder csv = new StringBuilder("date,amount,memo\n");
+        for (int i = 1; i <= 5; i++) csv.append("2022-01-0").append(i).append(',').append(i).append(".00,item\n");
+        //o primeiro lote é gravado e a requisição expira em seguida
+        when(receitaService.saveAll(anyList())).thenAnswer(invocation -> {
+            Thread.currentThread().interrupt();
+            return invocation.getArgument(0);
+        });
+        try {
+            assertThatThrownBy(() -> importer(2)
+                    .run(StatementImport.Format.CSV, new StringReader(csv.toString()), 1, listener()))
+                    .isInstanceOf(InterruptedIOException.class);
+        } finally {
+            Thread.interrupted();
+        }
+
+        verify(receitaService, times(1)).saveAll(anyList());
+        assertThat(events).extracting(StatementImport.Progress::getRevenues).containsExactly(2L);
+        assertThat(events).noneMatch(StatementImport.Progress::isDone);
+    }
+
+    @Test
+    void testOfx() throws IOException {
+        String ofx = "OFXHEADER:100\nDATA:OFXSGML\n\n<OFX>\n<BANKTRANLIST>\n"
+                + "<STMTTRN>\n<TRNTYPE>DEBIT\n<DTPOSTED>20220115120000[-3:BRT]\n<TRNAMT>-50.00\n"
+                + "<MEMO>Farmácia\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNTYPE>CREDIT\n<DTPOSTED>20220116\n<TRNAMT>1200.00\n<NAME>Empresa\n</STMTTRN>\n"
+                + "<STMTTRN>\n<TRNAMT>1.00\n</STMTTRN>\n"
+                + "</BANKTRANLIST>\n</OFX>\n";
+        StatementImport.Progress progress = importer(1000)
+                .run(StatementImport.Format.OFX, new StringReader(ofx), 3, listener());
+
+        verify(receitaService).saveAll(List.of(Receita.builder().value(120000L)
+                .receivingDate(LocalDate.of(2022, 1, 16)).expectedReceiptDate(LocalDate.of(2022, 1, 16))
+                .description("Empresa").account(3).typeOfRevenue(Receita.Revenue.OUTROS).build()));
+        verify(despesaService).saveAll(List.of(Despesa.builder().value(5000L)
+                .payday(LocalDate.of(2022, 1, 15)).expectedPaymentDate(LocalDate.of(2022, 1, 15))
+                .account(3).typeOfExpense(Despesa.TypeOfExpense.OUTROS).build()));
+        assertThat(errors).containsExactly("18: Transação sem DTPOSTED ou TRNAMT.");
+        assertThat(progress).isEqualTo(new StatementImport.Progress(3, 1, 1, 1, true));
+    }
+
+    @Test
+    void testCsvWithoutRequiredColumns() throws IOException {
+        StatementImport.Progress progress = importer(1000)
+                .run(StatementImport.Format.CSV, new StringReader("descricao;conta\nx;1\n"), 1, listener());
+
+        assertThat(errors).containsExactly("1: Cabeçalho sem as colunas 'data' e 'valor'.");
+        verifyNoInteractions(receitaService, despesaService);
+        assertThat(progress.isDone()).isTrue();
+    }
+
+    private StatementImport importer(int batchSize) {
+        return new StatementImport(receitaService, despesaService,
+                Validation.buildDefaultValidatorFactory().getValidator(), batchSize);
+    }
+
+    private StatementImport.Listener listener() {
+        return new StatementImport.Listener() {
+            @Override
+            public void error(long line, String message) {
+                errors.add(line + ": " + message);
+            }
+
+            @Override
+            public void progress(StatementImport.Progress progress) {
+                events.add(new StatementImport.Progress(progress.getLines(), progress.getRevenues(),
+                        progress.getExpenses(), progress.getErrors(), progress.isDone()));
+            }
+        };
+    }
+
+}
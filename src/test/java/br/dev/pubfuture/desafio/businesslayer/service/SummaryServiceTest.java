@@ -0,0 +1,155 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.isNull;
+
+/**
+ * Testes de Unidade da execução simultânea das partes do resumo: distribuição pelo 'pool', prazo máximo, falha
+ * de uma parte e execução pela 'thread' da requisição com o 'pool' ocupado.
+ */
+class SummaryServiceTest {
+
+    private final ContaService contaService = Mockito.mock(ContaService.class);
+    private final ReceitaService receitaService = Mockito.mock(ReceitaService.class);
+    private final DespesaService despesaService = Mockito.mock(DespesaService.class);
+    private final KeysetPage<Conta> page = new KeysetPage<>();
+
+    /**
+     * 'Thread' em que cada parte foi executada.
+     */
+    private final Map<String, String> threads = new ConcurrentHashMap<>();
+
+    /**
+     * Libera as partes bloqueadas ao final de cada teste.
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private SummaryService service;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (service != null)
+            service.stop();
+    }
+
+    @Test
+    void testPartsRunInParallel() {
+        service = start(4, 64, Duration.ofSeconds(5));
+        //cada parte só termina quando as quatro estiverem em execução ao mesmo tempo
+        CountDownLatch running = new CountDownLatch(4);
+        stub(running);
+
+        SummaryService.Summary summary = service.summary();
+
+        assertThat(summary.getBalance().getValue()).isEqualTo(100L);
+        assertThat(summary.getRevenues().getValue()).isEqualTo(200L);
+        assertThat(summary.getExpenses().getValue()).isEqualTo(300L);
+        assertThat(summary.getAccounts().getValue()).isSameAs(page);
+        assertThat(summary.getBalance().getError()).isNull();
+        assertThat(summary.getAccounts().getError()).isNull();
+        assertThat(threads.values()).hasSize(4).allMatch(name -> name.startsWith("summary-"));
+        assertThat(threads.values()).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void testSlowPartTimesOutWithoutBlockingOthers() {
+        service = start(4, 64, Duration.ofMillis(200));
+        stub(new CountDownLatch(0));
+        Mockito.when(despesaService.totalExpenses()).thenAnswer(invocation -> {
+            release.await();
+            return 300L;
+        });
+
+        long started = System.nanoTime();
+        SummaryService.Summary summary = service.summary();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(5000);
+        assertThat(summary.getExpenses().getValue()).isNull();
+        assertThat(summary.getExpenses().getError()).isEqualTo("Tempo esgotado.");
+        assertThat(summary.getBalance().getValue()).isEqualTo(100L);
+        assertThat(summary.getRevenues().getValue()).isEqualTo(200L);
+        assertThat(summary.getAccounts().getValue()).isSameAs(page);
+    }
+
+    @Test
+    void testFailedPartReportsError() {
+        service = start(4, 64, Duration.ofSeconds(5));
+        stub(new CountDownLatch(0));
+        Mockito.when(receitaService.totalBalance()).thenThrow(new IllegalStateException("Falha na consulta."));
+
+        SummaryService.Summary summary = service.summary();
+
+        assertThat(summary.getRevenues().getValue()).isNull();
+        assertThat(summary.getRevenues().getError()).isEqualTo("Falha na consulta.");
+        assertThat(summary.getBalance().getValue()).isEqualTo(100L);
+        assertThat(summary.getExpenses().getValue()).isEqualTo(300L);
+        assertThat(summary.getAccounts().getValue()).isSameAs(page);
+    }
+
+    @Test
+    void testBusyPoolRunsPartsOnCaller() {
+        //uma 'thread' e uma posição na fila: a primeira parte ocupa a 'thread', a segunda a fila e as demais
+        //são executadas pela 'thread' da requisição
+        service = start(1, 1, Duration.ofSeconds(5));
+        CountDownLatch callerRan = new CountDownLatch(1);
+        stub(new CountDownLatch(0));
+        Mockito.when(contaService.totalBalance()).thenAnswer(invocation -> {
+            threads.put("balance", Thread.currentThread().getName());
+            callerRan.await(5, TimeUnit.SECONDS);
+            return 100L;
+        });
+        Mockito.when(contaService.findAll(Mockito.eq(0L), isNull())).thenAnswer(invocation -> {
+            threads.put("accounts", Thread.currentThread().getName());
+            callerRan.countDown();
+            return page;
+        });
+
+        SummaryService.Summary summary = service.summary();
+
+        String caller = Thread.currentThread().getName();
+        assertThat(threads).containsEntry("balance", "summary-1").containsEntry("revenues", "summary-1")
+                .containsEntry("expenses", caller).containsEntry("accounts", caller);
+        assertThat(summary.getBalance().getValue()).isEqualTo(100L);
+        assertThat(summary.getRevenues().getValue()).isEqualTo(200L);
+        assertThat(summary.getExpenses().getValue()).isEqualTo(300L);
+        assertThat(summary.getAccounts().getValue()).isSameAs(page);
+    }
+
+    private SummaryService start(int threads, int queue, Duration timeout) {
+        return new SummaryService(contaService, receitaService, despesaService, new SimpleMeterRegistry(),
+                threads, queue, timeout);
+    }
+
+    /**
+     * Simula as quatro consultas, registrando a 'thread' de cada uma; cada consulta sinaliza o início em
+     * 'running' e aguarda que todas tenham iniciado.
+     */
+    private void stub(CountDownLatch running) {
+        Mockito.when(contaService.totalBalance()).thenAnswer(invocation -> part("balance", running, 100L));
+        Mockito.when(receitaService.totalBalance()).thenAnswer(invocation -> part("revenues", running, 200L));
+        Mockito.when(despesaService.totalExpenses()).thenAnswer(invocation -> part("expenses", running, 300L));
+        Mockito.when(contaService.findAll(Mockito.eq(0L), isNull()))
+                .thenAnswer(invocation -> part("accounts", running, page));
+    }
+
+    private <T> T part(String name, CountDownLatch running, T value) throws InterruptedException {
+        threads.put(name, Thread.currentThread().getName());
+        running.countDown();
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        return value;
+    }
+
+}
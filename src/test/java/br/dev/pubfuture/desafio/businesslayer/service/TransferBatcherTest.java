@@ -0,0 +1,107 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Testes de Unidade do estágio de agrupamento de transferências.
+ */
+class TransferBatcherTest {
+
+    private static final Conta.TransferResult OK =
+            new Conta.TransferResult(Conta.TransferResult.Status.OK, 1, 0, 2, 100);
+
+    private final TransferEngine transferEngine = mock(TransferEngine.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch flushing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private TransferBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        batcher.stop();
+    }
+
+    @Test
+    void testFullQueueFallsBackToEngine() throws Exception {
+        start(Duration.ofSeconds(5));
+
+        //o primeiro lote ocupa a 'thread' de agrupamento e o segundo item ocupa a única posição da fila
+        CompletableFuture<Conta.TransferResult> first = CompletableFuture.supplyAsync(() -> batcher.transfer(value()));
+        assertThat(flushing.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Conta.TransferResult> second = CompletableFuture.supplyAsync(() -> batcher.transfer(value()));
+        awaitQueued();
+
+        assertThat(batcher.transfer(value())).isSameAs(OK);
+        verify(transferEngine).transfer(any());
+        assertThat(registry.counter("desafio.transfer.batch.overflow").count()).isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(OK);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(OK);
+    }
+
+    @Test
+    void testQueuedTransferTimesOutToEngine() throws Exception {
+        start(Duration.ofMillis(100));
+
+        CompletableFuture<Conta.TransferResult> first = CompletableFuture.supplyAsync(() -> batcher.transfer(value()));
+        assertThat(flushing.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //ainda na fila ao esgotar a espera: retirada do lote e aplicada diretamente
+        assertThat(batcher.transfer(value())).isSameAs(OK);
+        verify(transferEngine).transfer(any());
+        assertThat(batcher.queued()).isZero();
+        assertThat(registry.counter("desafio.transfer.batch.timeout").count()).isEqualTo(1.0);
+
+        //o lote em andamento esgota a espera do seu chamador sem resultado
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        release.countDown();
+        verify(transferEngine, timeout(5000)).transferAll(anyList());
+        verify(transferEngine, times(1)).transfer(any());
+    }
+
+    /**
+     * Inicia o estágio com um item por lote e uma posição na fila; o lote só termina após 'release'.
+     */
+    private void start(Duration timeout) {
+        when(transferEngine.transferAll(anyList())).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await();
+            return List.of(OK);
+        });
+        when(transferEngine.transfer(any())).thenReturn(OK);
+        batcher = new TransferBatcher(transferEngine, registry, true, 1, 0, 1, timeout);
+        batcher.start();
+    }
+
+    /**
+     * Aguarda até que um item ocupe a fila.
+     */
+    private void awaitQueued() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (batcher.queued() == 0) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    private static Conta.TransferValue value() {
+        return new Conta.TransferValue(1, 2, 100);
+    }
+
+}
@@ -0,0 +1,38 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Rollup;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes de Unidade dos contadores por tipo.
+ */
+class TypeCountersTest {
+
+    @Test
+    void testSaveUpdateAndDelete() {
+        TypeCounters counters = new TypeCounters();
+        int moradia = Despesa.TypeOfExpense.MORADIA.ordinal();
+        int lazer = Despesa.TypeOfExpense.LAZER.ordinal();
+        LedgerEntry first = new LedgerEntry(1, 19000, 10000, moradia, 7);
+        counters.apply(Rollup.Kind.DESPESA, null, first);
+        counters.apply(Rollup.Kind.DESPESA, null, new LedgerEntry(2, 19001, 2550, moradia, 8));
+        //alteração de tipo e de conta
+        counters.apply(Rollup.Kind.DESPESA, first, new LedgerEntry(1, 19000, 12000, lazer, 8));
+
+        TypeCounters.Stats[] all = counters.stats(Rollup.Kind.DESPESA, null);
+        assertThat(all).hasSize(Despesa.TypeOfExpense.values().length);
+        assertThat(all[moradia].getQuantity()).isEqualTo(1);
+        assertThat(all[moradia].getTotal()).isEqualTo(2550);
+        assertThat(all[lazer].getTotal()).isEqualTo(12000);
+        assertThat(counters.stats(Rollup.Kind.DESPESA, 7)[moradia].getQuantity()).isZero();
+        assertThat(counters.stats(Rollup.Kind.DESPESA, 8)[lazer].getQuantity()).isEqualTo(1);
+        assertThat(counters.stats(Rollup.Kind.RECEITA, null)[0].getQuantity()).isZero();
+
+        counters.apply(Rollup.Kind.DESPESA, new LedgerEntry(2, 19001, 2550, moradia, 8), null);
+        assertThat(counters.stats(Rollup.Kind.DESPESA, 8)[moradia].getTotal()).isZero();
+    }
+
+}
@@ -0,0 +1,202 @@
+package br.dev.pubfuture.desafio.businesslayer.service;
+
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes de Unidade da fila de gravação assíncrona.
+ */
+class WriteBehindTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReplaysPendingJournalEntries() throws Exception {
+        Files.write(dir.resolve("receita-0000000000000000001.journal"), List.of(
+                objectMapper.writeValueAsString(receita(1)),
+                objectMapper.writeValueAsString(receita(2))), StandardCharsets.UTF_8);
+        Files.write(dir.resolve("receita-0000000000000000003.journal"), List.of(
+                objectMapper.writeValueAsString(receita(3)),
+                objectMapper.writeValueAsString(receita(4)),
+                "{\"id\":5,\"val"), StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("receita.checkpoint"), "1");
+        List<Long> written = new CopyOnWriteArrayList<>();
+        AtomicInteger recovered = new AtomicInteger();
+        WriteBehind<Receita> ingest = create(2, batch -> batch.forEach(r -> written.add(r.getId())),
+                receita -> receita.getId() == 3, recovered::incrementAndGet);
+        ingest.start();
+        try {
+            //a receita 1 foi concluída antes da queda (mesmo que removida depois), a 3 já estava gravada e a linha
+            //incompleta nunca foi confirmada
+            assertThat(written).containsExactly(2L, 4L);
+            assertThat(recovered).hasValue(1);
+            assertThat(Files.readString(dir.resolve("receita.checkpoint"))).isEqualTo("5");
+            assertThat(segments()).containsExactly("receita-0000000000000000006.journal");
+        } finally {
+            ingest.stop();
+        }
+    }
+
+    @Test
+    void testRotatesAndRemovesCompletedSegments() throws Exception {
+        List<Long> written = new CopyOnWriteArrayList<>();
+        WriteBehind<Receita> ingest = create(10, batch -> batch.forEach(r -> written.add(r.getId())),
+                receita -> false, () -> { });
+        ingest.start();
+        try {
+            for (long id = 1; id <= 5; id++)
+                assertThat(ingest.offer(receita(id))).isEqualTo(WriteBehind.Offer.QUEUED);
+        } finally {
+            ingest.stop();
+        }
+        assertThat(written).containsExactly(1L, 2L, 3L, 4L, 5L);
+        assertThat(Files.readString(dir.resolve("receita.checkpoint"))).isEqualTo("5");
+        //restam apenas segmentos sem entidades
+        for (String segment : segments())
+            assertThat(Files.size(dir.resolve(segment))).isZero();
+
+        //as entidades concluídas não são regravadas na reinicialização
+        WriteBehind<Receita> restarted = create(10, batch -> batch.forEach(r -> written.add(r.getId())),
+                receita -> false, () -> { });
+        restarted.start();
+        restarted.stop();
+        assertThat(written).hasSize(5);
+    }
+
+    @Test
+    void testFailedEntityIsDeadLetteredAndReplayed() throws Exception {
+        List<Long> written = new CopyOnWriteArrayList<>();
+        CountDownLatch last = new CountDownLatch(1);
+        WriteBehind<Receita> ingest = create(10, batch -> {
+            if (batch.stream().anyMatch(r -> r.getId() == 2)) throw new IllegalStateException("falha");
+            batch.forEach(r -> written.add(r.getId()));
+            if (batch.stream().anyMatch(r -> r.getId() == 3)) last.countDown();
+        }, receita -> false, () -> { });
+        ingest.start();
+        try {
+            for (long id = 1; id <= 3; id++)
+                assertThat(ingest.offer(receita(id))).isEqualTo(WriteBehind.Offer.QUEUED);
+            //as entidades são concluídas em ordem: a 3 só é gravada após o registro da 2 no diário de falhas
+            assertThat(last.await(30, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            ingest.stop();
+        }
+        assertThat(written).containsExactly(1L, 3L);
+        assertThat(Files.readString(dir.resolve("receita.checkpoint"))).isEqualTo("3");
+        assertThat(Files.readAllLines(dir.resolve("receita.deadletter"))).hasSize(1);
+
+        //a entidade confirmada não é descartada: a reinicialização a grava
+        WriteBehind<Receita> restarted = create(10, batch -> batch.forEach(r -> written.add(r.getId())),
+                receita -> false, () -> { });
+        restarted.start();
+        restarted.stop();
+        assertThat(written).containsExactly(1L, 3L, 2L);
+        assertThat(Files.exists(dir.resolve("receita.deadletter"))).isFalse();
+    }
+
+    @Test
+    void testStopDuringRetriesKeepsEntityInJournal() throws Exception {
+        List<Long> written = new CopyOnWriteArrayList<>();
+        WriteBehind<Receita> ingest = create(10, batch -> {
+            throw new IllegalStateException("falha");
+        }, receita -> false, () -> { });
+        ingest.start();
+        try {
+            assertThat(ingest.offer(receita(1))).isEqualTo(WriteBehind.Offer.QUEUED);
+        } finally {
+            ingest.stop();
+        }
+        assertThat(Files.exists(dir.resolve("receita.checkpoint"))).isTrue();
+        assertThat(Files.readString(dir.resolve("receita.checkpoint"))).isEqualTo("0");
+
+        WriteBehind<Receita> restarted = create(10, batch -> batch.forEach(r -> written.add(r.getId())),
+                receita -> false, () -> { });
+        restarted.start();
+        restarted.stop();
+        assertThat(written).containsExactly(1L);
+    }
+
+    @Test
+    void testBackpressureAndFlush() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> written = new CopyOnWriteArrayList<>();
+        WriteBehind<Receita> ingest = create(1, batch -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batch.forEach(r -> written.add(r.getId()));
+        }, receita -> false, () -> { });
+        ingest.start();
+        try {
+            assertThat(ingest.offer(receita(10))).isEqualTo(WriteBehind.Offer.QUEUED);
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+            //o primeiro lote está em gravação; o 'buffer' (capacidade 1) recebe mais uma e recusa a seguinte
+            assertThat(ingest.offer(receita(11))).isEqualTo(WriteBehind.Offer.QUEUED);
+            assertThat(ingest.offer(receita(12))).isEqualTo(WriteBehind.Offer.FULL);
+            assertThat(Files.readAllLines(dir.resolve("receita-0000000000000000001.journal"))).hasSize(2);
+            release.countDown();
+        } finally {
+            ingest.stop();
+        }
+        //encerrada, a fila recusa novas entidades para a gravação síncrona
+        assertThat(ingest.offer(receita(13))).isEqualTo(WriteBehind.Offer.CLOSED);
+        assertThat(written).containsExactly(10L, 11L);
+        assertThat(Files.readString(dir.resolve("receita.checkpoint"))).isEqualTo("2");
+        assertThat(Files.exists(dir.resolve("receita-0000000000000000001.journal"))).isFalse();
+    }
+
+    private WriteBehind<Receita> create(int capacity, Consumer<List<Receita>> writer,
+                                        Predicate<Receita> persisted, Runnable recovered) {
+        return new WriteBehind<>("receita", Receita.class, writer, persisted, recovered, objectMapper,
+                new WriteBehind.Settings(true, capacity, 10, false, dir, 2), new SimpleMeterRegistry());
+    }
+
+    private List<String> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(file -> file.endsWith(".journal"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Receita receita(long id) {
+        return Receita.builder()
+                .id(id)
+                .value(1000)
+                .receivingDate(LocalDate.parse("2022-01-16"))
+                .expectedReceiptDate(LocalDate.parse("2022-01-16"))
+                .description("SALARIO")
+                .account(1)
+                .typeOfRevenue(Receita.Revenue.SALARIO)
+                .build();
+    }
+
+}
@@ -0,0 +1,181 @@
+package br.dev.pubfuture.desafio.persistence;
+
+import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.Receita;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes dos planos de execução das consultas dos repositórios.
+ * @DataJpaTest cria o esquema a partir das entidades (incluindo os índices declarados em '@Table') em um H2
+ * embarcado; o plano de cada consulta é obtido com o comando 'EXPLAIN' do H2, que informa o índice escolhido.
+ * O SQL analisado é o gerado pelo Hibernate para cada método, capturado por um 'StatementInspector', de modo que
+ * uma alteração na consulta derivada (colunas, ordenação, junções) também altere o plano verificado.
+ * As tabelas são populadas e analisadas antes de cada teste para que o otimizador tenha estatísticas reais.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "br.dev.pubfuture.desafio.persistence.RepositoryIndexPlanTest$CapturedSql")
+class RepositoryIndexPlanTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2022, 1, 1);
+    private static final LocalDate MARCH_START = LocalDate.of(2022, 3, 1);
+    private static final LocalDate MARCH_END = LocalDate.of(2022, 3, 31);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReceitaRepository receitaRepository;
+
+    @Autowired
+    private DespesaRepository despesaRepository;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        //o 'ANALYZE' do H2 confirma a transação corrente, portanto os dados de um teste anterior podem persistir
+        jdbcTemplate.update("DELETE FROM receita");
+        jdbcTemplate.update("DELETE FROM despesa");
+        String[] revenues = {"SALARIO", "PRESENTE", "PREMIO", "OUTROS"};
+        String[] expenses = {"ALIMENTACAO", "EDUCACAO", "LAZER", "MORADIA", "ROUPA", "SAUDE", "TRANSPORTE", "OUTROS"};
+        List<Object[]> receitas = new ArrayList<>();
+        List<Object[]> despesas = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            Date day = Date.valueOf(FIRST_DAY.plusDays(i % 365));
+            int account = 1 + i % 50;
+            receitas.add(new Object[]{i, 100L * i, day, day, "RECEITA " + i, account, revenues[i % revenues.length]});
+            despesas.add(new Object[]{i, 100L * i, day, day, account, expenses[i % expenses.length]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO receita (id, valor, dt_receb, dt_recb_esp, descricao, conta, tp_receita) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", receitas);
+        jdbcTemplate.batchUpdate("INSERT INTO despesa (id, valor, dt_pagto, dt_pag_esp, conta, tp_despesa) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", despesas);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    /**
+     * Teste do plano de 'ReceitaRepository.findAllByReceivingDateBetween' e da variante em 'stream'.
+     */
+    @Test
+    void testReceitaByReceivingDateUsesIndex() {
+        assertThat(explain(() -> receitaRepository.findAllByReceivingDateBetween(MARCH_START, MARCH_END),
+                Date.valueOf(MARCH_START), Date.valueOf(MARCH_END)))
+                .containsIgnoringCase("idx_receita_dt_receb");
+        assertThat(explain(() -> receitaRepository.streamAllByReceivingDateBetweenOrderById(MARCH_START, MARCH_END)
+                .close(), Date.valueOf(MARCH_START), Date.valueOf(MARCH_END)))
+                .containsIgnoringCase("idx_receita_dt_receb");
+    }
+
+    /**
+     * Teste do plano de 'ReceitaRepository.findReceitaByTypeOfRevenue'.
+     */
+    @Test
+    void testReceitaByTypeOfRevenueUsesIndex() {
+        assertThat(explain(() -> receitaRepository.findReceitaByTypeOfRevenue(Receita.Revenue.SALARIO), "SALARIO"))
+                .containsIgnoringCase("idx_receita_tp_receita");
+    }
+
+    /**
+     * Teste do plano das consultas de receitas por conta e período, atendidas pelo índice composto. Nenhum método
+     * do repositório filtra por conta, portanto a consulta é escrita à mão.
+     */
+    @Test
+    void testReceitaByAccountUsesCompositeIndex() {
+        assertThat(explain("SELECT * FROM receita WHERE conta = 7 "
+                + "AND dt_receb BETWEEN DATE '2022-03-01' AND DATE '2022-03-31'"))
+                .containsIgnoringCase("idx_receita_conta_dt_receb");
+        assertThat(explain("SELECT * FROM receita WHERE conta = 7"))
+                .containsIgnoringCase("idx_receita_conta_dt_receb");
+    }
+
+    /**
+     * Teste do plano de 'DespesaRepository.findAllByPaydayBetween' e da variante em 'stream'.
+     */
+    @Test
+    void testDespesaByPaydayUsesIndex() {
+        assertThat(explain(() -> despesaRepository.findAllByPaydayBetween(MARCH_START, MARCH_END),
+                Date.valueOf(MARCH_START), Date.valueOf(MARCH_END)))
+                .containsIgnoringCase("idx_despesa_dt_pagto");
+        assertThat(explain(() -> despesaRepository.streamAllByPaydayBetweenOrderById(MARCH_START, MARCH_END).close(),
+                Date.valueOf(MARCH_START), Date.valueOf(MARCH_END)))
+                .containsIgnoringCase("idx_despesa_dt_pagto");
+    }
+
+    /**
+     * Teste do plano de 'DespesaRepository.findDespesaByTypeOfExpense'.
+     */
+    @Test
+    void testDespesaByTypeOfExpenseUsesIndex() {
+        assertThat(explain(() -> despesaRepository.findDespesaByTypeOfExpense(Despesa.TypeOfExpense.MORADIA),
+                "MORADIA"))
+                .containsIgnoringCase("idx_despesa_tp_despesa");
+    }
+
+    /**
+     * Teste do plano das consultas de despesas por conta e período, atendidas pelo índice composto. Nenhum método
+     * do repositório filtra por conta, portanto a consulta é escrita à mão.
+     */
+    @Test
+    void testDespesaByAccountUsesCompositeIndex() {
+        assertThat(explain("SELECT * FROM despesa WHERE conta = 7 "
+                + "AND dt_pagto BETWEEN DATE '2022-03-01' AND DATE '2022-03-31'"))
+                .containsIgnoringCase("idx_despesa_conta_dt_pagto");
+        assertThat(explain("SELECT * FROM despesa WHERE conta = 7"))
+                .containsIgnoringCase("idx_despesa_conta_dt_pagto");
+    }
+
+    /**
+     * Executa a consulta do repositório e obtém o plano do SQL gerado pelo Hibernate.
+     * @param query chamada ao repositório, que deve emitir um único comando.
+     * @param parameters valores dos parâmetros ('?') do comando gerado, na ordem.
+     * @return Retorna o plano de execução informado pelo H2.
+     */
+    private String explain(Runnable query, Object... parameters) {
+        CapturedSql.STATEMENTS.clear();
+        query.run();
+        assertThat(CapturedSql.STATEMENTS).hasSize(1);
+        return explain(CapturedSql.STATEMENTS.get(0), parameters);
+    }
+
+    /**
+     * @param sql consulta a ser analisada.
+     * @param parameters valores dos parâmetros ('?') da consulta, na ordem.
+     * @return Retorna o plano de execução informado pelo H2.
+     */
+    private String explain(String sql, Object... parameters) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters);
+    }
+
+    /**
+     * 'StatementInspector' registrado no Hibernate pelas propriedades do teste; guarda cada comando SQL gerado.
+     */
+    public static class CapturedSql implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+
+    }
+
+}
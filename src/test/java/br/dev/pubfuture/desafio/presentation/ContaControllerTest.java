@@ -1,6 +1,8 @@
 package br.dev.pubfuture.desafio.presentation;
 
 import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
+import br.dev.pubfuture.desafio.businesslayer.service.ContaBalanceAggregate;
 import br.dev.pubfuture.desafio.businesslayer.service.ContaService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -190,13 +192,27 @@ class ContaControllerTest {
     @Test
     void testListAll() throws Exception {
         List<Conta> contas = Arrays.asList(conta, conta, conta, conta);
-        Mockito.when(contaService.findAll()).thenReturn(contas);
+        Mockito.when(contaService.findAll(0L, null)).thenReturn(new KeysetPage<>(contas, null));
         mockMvc.perform(get("/api/conta"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(4)))
                 .andExpect(jsonPath("$[0].financialInstitution", is("BANCO DO BRASIL")));
     }
 
+    /**
+     * Verifica se o controlador repassa o cursor e o tamanho de página ao serviço e devolve o cursor da
+     * próxima página no cabeçalho 'X-Next-Cursor'.
+     * @throws Exception
+     */
+    @Test
+    void testListAllNextCursor() throws Exception {
+        Mockito.when(contaService.findAll(10L, 2)).thenReturn(new KeysetPage<>(Arrays.asList(conta, conta), 12L));
+        mockMvc.perform(get("/api/conta").param("after", "10").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(KeysetPage.NEXT_CURSOR_HEADER, "12"))
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
     /**
      * Verifica se a resposta será Not Found quando do envio de um null object.
      * @throws Exception
@@ -242,9 +258,14 @@ class ContaControllerTest {
                 contaDestino.getId(),
                 1
         );
-        //prepara a simulação repassando os id utilizados no teste
-        Mockito.when(contaService.findById(contaOrigem.getId())).thenReturn(Optional.of(contaOrigem));
-        Mockito.when(contaService.findById(contaDestino.getId())).thenReturn(Optional.of(contaDestino));
+        //prepara a simulação com o resultado da operação realizada pelo serviço
+        Mockito.when(contaService.transferValue(transferValue)).thenReturn(Conta.TransferResult.builder()
+                .status(Conta.TransferResult.Status.OK)
+                .from(contaOrigem.getId())
+                .fromBalance(contaOrigem.getBalance() - transferValue.getValue())
+                .to(contaDestino.getId())
+                .toBalance(contaDestino.getBalance() + transferValue.getValue())
+                .build());
         //afirmação das expectativas de retorno
         mockMvc.perform(put("/api/conta/transfer")
                         .content(objectMapper.writeValueAsString(transferValue))
@@ -253,7 +274,7 @@ class ContaControllerTest {
                 .andExpect(jsonPath("$.id-origem", is(1)))
                 .andExpect(jsonPath("$.saldo-origem", is(0.0)))
                 .andExpect(jsonPath("$.id-destino", is(2)))
-                .andExpect(jsonPath("$.saldo-destino", is(2.0)));
+                .andExpect(jsonPath("$.saldo-destino", is(0.02)));
     }
 
     /**
@@ -273,8 +294,8 @@ class ContaControllerTest {
         //instancia um objeto Conta.TransferValue com as informações da operação
         Conta.TransferValue transferValue = new Conta.TransferValue(1,2,1);
         //prepara a simulação repassando os id utilizados no teste
-        Mockito.when(contaService.findById(contaOrigem.getId())).thenReturn(Optional.empty());
-        Mockito.when(contaService.findById(contaDestino.getId())).thenReturn(Optional.empty());
+        Mockito.when(contaService.transferValue(transferValue)).thenReturn(Conta.TransferResult.of(
+                Conta.TransferResult.Status.NOT_FOUND, contaOrigem.getId(), contaDestino.getId()));
         //afirmação das expectativas de retorno
         mockMvc.perform(put("/api/conta/transfer")
                         .content(objectMapper.writeValueAsString(transferValue))
@@ -299,8 +320,8 @@ class ContaControllerTest {
         //instancia um objeto Conta.TransferValue com as informações da operação
         Conta.TransferValue transferValue = new Conta.TransferValue(2,1,1);
         //prepara a simulação repassando os id utilizados no teste
-        Mockito.when(contaService.findById(contaOrigem.getId())).thenReturn(Optional.of(contaOrigem));
-        Mockito.when(contaService.findById(contaDestino.getId())).thenReturn(Optional.of(contaDestino));
+        Mockito.when(contaService.transferValue(transferValue)).thenReturn(Conta.TransferResult.of(
+                Conta.TransferResult.Status.INSUFFICIENT_FUNDS, contaOrigem.getId(), contaDestino.getId()));
         //afirmação das expectativas de retorno
         mockMvc.perform(put("/api/conta/transfer")
                         .content(objectMapper.writeValueAsString(transferValue))
@@ -308,4 +329,66 @@ class ContaControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
-}
\ No newline at end of file
+    /**
+     * Verifica se o controlador liquida um lote de transferências no modo BEST_EFFORT, retornando o resultado
+     * de cada item e a quantidade de transferências aplicadas.
+     * @throws Exception
+     */
+    @Test
+    void testTransferBatchBestEffort() throws Exception {
+        List<Conta.TransferValue> transfers = Arrays.asList(
+                new Conta.TransferValue(1, 2, 1),
+                new Conta.TransferValue(1, 3, 1));
+        Mockito.when(contaService.transferAll(transfers, Conta.TransferMode.BEST_EFFORT)).thenReturn(Arrays.asList(
+                Conta.TransferResult.builder().status(Conta.TransferResult.Status.OK)
+                        .from(1).fromBalance(0).to(2).toBalance(2).build(),
+                Conta.TransferResult.of(Conta.TransferResult.Status.INSUFFICIENT_FUNDS, 1, 3)));
+        mockMvc.perform(put("/api/conta/transfer/batch")
+                        .param("mode", "BEST_EFFORT")
+                        .content(objectMapper.writeValueAsString(transfers))
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.aplicadas", is(1)))
+                .andExpect(jsonPath("$.resultados", hasSize(2)))
+                .andExpect(jsonPath("$.resultados[1].status", is("INSUFFICIENT_FUNDS")));
+    }
+
+    /**
+     * Verifica se o controlador retorna BAD REQUEST quando um lote atômico é recusado.
+     * @throws Exception
+     */
+    @Test
+    void testTransferBatchAtomicRejected() throws Exception {
+        List<Conta.TransferValue> transfers = Arrays.asList(new Conta.TransferValue(1, 9, 1));
+        Mockito.when(contaService.transferAll(transfers, Conta.TransferMode.ATOMIC)).thenReturn(Arrays.asList(
+                Conta.TransferResult.of(Conta.TransferResult.Status.NOT_FOUND, 1, 9)));
+        mockMvc.perform(put("/api/conta/transfer/batch")
+                        .content(objectMapper.writeValueAsString(transfers))
+                        .contentType("application/json"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.aplicadas", is(0)));
+    }
+
+    /**
+     * Verifica se a conferência do somatório pelo método GET não o reconstrói e se a reconstrução exige POST.
+     * @throws Exception
+     */
+    @Test
+    void testTotalBalanceCheckAndRebuild() throws Exception {
+        Mockito.when(contaService.checkTotalBalance(false))
+                .thenReturn(new ContaBalanceAggregate.Check(1000, 1200, 200, false, false));
+        Mockito.when(contaService.checkTotalBalance(true))
+                .thenReturn(new ContaBalanceAggregate.Check(1000, 1200, 200, false, true));
+
+        mockMvc.perform(get("/api/conta/total/check").param("repair", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.repaired", is(false)));
+        verify(contaService, times(0)).checkTotalBalance(true);
+        mockMvc.perform(get("/api/conta/total/rebuild"))
+                .andExpect(status().isMethodNotAllowed());
+        mockMvc.perform(post("/api/conta/total/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.repaired", is(true)));
+    }
+
+}
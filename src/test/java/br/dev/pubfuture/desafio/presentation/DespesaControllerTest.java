@@ -1,7 +1,11 @@
 package br.dev.pubfuture.desafio.presentation;
 
 import br.dev.pubfuture.desafio.businesslayer.Despesa;
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
+import br.dev.pubfuture.desafio.businesslayer.service.CsvExport;
 import br.dev.pubfuture.desafio.businesslayer.service.DespesaService;
+import br.dev.pubfuture.desafio.businesslayer.service.WriteBehind;
+import br.dev.pubfuture.desafio.persistence.RollupTotal;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,13 +17,20 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -53,6 +64,18 @@ class DespesaControllerTest {
     @MockBean
     private DespesaService despesaService;
 
+    /**
+     * Simula a fila de gravação assíncrona.
+     */
+    @MockBean
+    private WriteBehind<Despesa> despesaIngest;
+
+    /**
+     * Simula a exportação em CSV.
+     */
+    @MockBean
+    private CsvExport csvExport;
+
     /**
      * Membro de classe tipo Despesa utilizado no construtor para instanciar um objeto modelo/exemplo.
      */
@@ -197,7 +220,7 @@ class DespesaControllerTest {
     @Test
     void testListAll() throws Exception {
         List<Despesa> despesas = Arrays.asList(despesa, despesa, despesa, despesa);
-        Mockito.when(despesaService.findAll()).thenReturn(despesas);
+        Mockito.when(despesaService.findAll(0L, null)).thenReturn(new KeysetPage<>(despesas, null));
         mockMvc.perform(get("/api/despesa/all"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(4)))
@@ -228,4 +251,167 @@ class DespesaControllerTest {
                 .andExpect(status().isOk());
     }
 
-}
\ No newline at end of file
+    /**
+     * Verifica se o cadastro em massa repassa a coleção ao serviço e retorna os 'id' das despesas salvas, na ordem
+     * recebida.
+     * @throws Exception
+     */
+    @Test
+    void testSaveAll() throws Exception {
+        Mockito.when(despesaService.saveAll(Mockito.anyList())).thenReturn(List.of(nova(1, 10), nova(250, 11)));
+        mockMvc.perform(post("/api/despesa/create/bulk")
+                        .content(objectMapper.writeValueAsString(Arrays.asList(nova(1, 0), nova(250, 0))))
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ids", contains(10, 11)));
+    }
+
+    /**
+     * Verifica se o cadastro em massa recusa a coleção inteira quando um item é inválido, apontando a posição
+     * e o campo do item recusado, sem chamar o serviço.
+     * @throws Exception
+     */
+    @Test
+    void testSaveAllValidation() throws Exception {
+        Despesa invalida = nova(1, 0);
+        invalida.setAccount(0);
+        mockMvc.perform(post("/api/despesa/create/bulk")
+                        .content(objectMapper.writeValueAsString(Arrays.asList(nova(1, 0), invalida)))
+                        .contentType("application/json"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.erros[0].indice", is(1)))
+                .andExpect(jsonPath("$.erros[0].campo", is("account")));
+        verify(despesaService, times(0)).saveAll(Mockito.anyList());
+    }
+
+    /**
+     * Verifica se o cadastro em massa recusa itens com 'id' informado, que de outro modo alterariam despesas
+     * existentes.
+     * @throws Exception
+     */
+    @Test
+    void testSaveAllRejectsIds() throws Exception {
+        mockMvc.perform(post("/api/despesa/create/bulk")
+                        .content(objectMapper.writeValueAsString(Arrays.asList(nova(1, 0), despesa)))
+                        .contentType("application/json"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.erros[0].indice", is(1)))
+                .andExpect(jsonPath("$.erros[0].campo", is("id")));
+        verify(despesaService, times(0)).saveAll(Mockito.anyList());
+    }
+
+    /**
+     * @return Retorna uma despesa válida com o valor e o 'id' informados.
+     */
+    private static Despesa nova(long value, long id) {
+        return Despesa.builder()
+                .id(id)
+                .value(value)
+                .payday(LocalDate.parse("2022-01-17"))
+                .expectedPaymentDate(LocalDate.parse("2022-01-17"))
+                .typeOfExpense(Despesa.TypeOfExpense.MORADIA)
+                .account(1)
+                .build();
+    }
+
+    /**
+     * Verifica se o relatório mensal é montado a partir do resumo mensal, com o mês no formato yyyy-MM.
+     * @throws Exception
+     */
+    @Test
+    void testMonthlyReport() throws Exception {
+        RollupTotal janeiro = Mockito.mock(RollupTotal.class);
+        Mockito.when(janeiro.getPeriod()).thenReturn(202201);
+        Mockito.when(janeiro.getTotal()).thenReturn(12345L);
+        Mockito.when(janeiro.getQuantity()).thenReturn(3L);
+        Mockito.when(despesaService.monthlyReport(2022)).thenReturn(List.of(janeiro));
+        mockMvc.perform(get("/api/despesa/report/monthly").param("year", "2022"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].mes", is("2022-01")))
+                .andExpect(jsonPath("$[0].total", is(123.45)))
+                .andExpect(jsonPath("$[0].quantidade", is(3)));
+    }
+
+    /**
+     * Verifica se o somatório por intervalo repassa as datas, a conta e o tipo ao serviço.
+     * @throws Exception
+     */
+    @Test
+    void testRangeSum() throws Exception {
+        Mockito.when(despesaService.rangeSum(LocalDate.parse("2022-01-01"), LocalDate.parse("2022-01-31"), 7,
+                Despesa.TypeOfExpense.MORADIA)).thenReturn(250075L);
+        mockMvc.perform(get("/api/despesa/sum")
+                        .param("start", "01-01-2022")
+                        .param("end", "31-01-2022")
+                        .param("account", "7")
+                        .param("type", "MORADIA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(2500.75)));
+    }
+
+    /**
+     * Verifica o cadastro assíncrono: ACCEPTED (202) com o 'id' reservado e, com a fila cheia,
+     * TOO MANY REQUESTS (429), sem gravação síncrona em nenhum dos casos; com a fila encerrada, a despesa é
+     * gravada de forma síncrona com o 'id' reservado.
+     * @throws Exception
+     */
+    @Test
+    void testAsyncCreate() throws Exception {
+        Mockito.when(despesaIngest.isEnabled()).thenReturn(true);
+        Mockito.when(despesaService.allocateId(any(Despesa.class))).thenReturn(77L);
+        Mockito.when(despesaIngest.offer(any(Despesa.class)))
+                .thenReturn(WriteBehind.Offer.QUEUED, WriteBehind.Offer.FULL, WriteBehind.Offer.CLOSED);
+        mockMvc.perform(post("/api/despesa/create")
+                        .header("Prefer", "respond-async")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(despesa)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.id", is(77)));
+        mockMvc.perform(post("/api/despesa/create")
+                        .header("Prefer", "respond-async")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(despesa)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "1"));
+        verify(despesaService, times(0)).insertAll(any());
+        mockMvc.perform(post("/api/despesa/create")
+                        .header("Prefer", "respond-async")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(despesa)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(77)));
+        verify(despesaService).insertAll(any());
+        verify(despesaService, times(0)).save(any(Despesa.class));
+    }
+
+    /**
+     * Verifica se a exportação em CSV é compactada em gzip quando o cliente a aceita e enviada como anexo.
+     * @throws Exception
+     */
+    @Test
+    void testExportCsvGzip() throws Exception {
+        LocalDate start = LocalDate.parse("2022-01-01");
+        Mockito.doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("id;data\n1;05/01/2022\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(csvExport).despesas(eq(start), isNull(), any());
+        MvcResult mvcResult = mockMvc.perform(get("/api/despesa/export/csv")
+                        .param("start", "01-01-2022")
+                        .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", containsString("despesas.csv")))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("id;data\n1;05/01/2022\n");
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import br.dev.pubfuture.desafio.businesslayer.IdempotencyRecord;
+import br.dev.pubfuture.desafio.businesslayer.service.IdempotencyStore;
+import br.dev.pubfuture.desafio.persistence.IdempotencyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes do filtro de idempotência, com um 'servlet' que conta as execuções.
+ */
+class IdempotencyFilterTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicInteger status = new AtomicInteger(201);
+
+    /**
+     * Tabela 'idempotencia' simulada.
+     */
+    private final Map<String, IdempotencyRecord> table = new ConcurrentHashMap<>();
+    private final IdempotencyRepository repository = mock(IdempotencyRepository.class);
+    private final IdempotencyFilter filter;
+
+    IdempotencyFilterTest() {
+        when(repository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(
+                table.get(invocation.<String>getArgument(0))));
+        when(repository.save(any(IdempotencyRecord.class))).thenAnswer(this::save);
+        doAnswer(invocation -> table.remove(invocation.<String>getArgument(0))).when(repository).deleteById(any());
+        IdempotencyStore store = new IdempotencyStore(repository, new SimpleMeterRegistry(), 100,
+                Duration.ofHours(24), Duration.ofSeconds(5), Duration.ofHours(1));
+        filter = new IdempotencyFilter(store, 64);
+    }
+
+    @Test
+    void testReplay() throws Exception {
+        MockHttpServletResponse first = post("k1", "{\"valor\":10}");
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(first.getHeader(IdempotencyFilter.REPLAYED)).isNull();
+
+        MockHttpServletResponse second = post("k1", "{\"valor\":10}");
+        assertThat(second.getStatus()).isEqualTo(201);
+        assertThat(second.getContentAsString()).isEqualTo("{\"id\":1}");
+        assertThat(second.getContentType()).startsWith("application/json");
+        assertThat(second.getHeader(IdempotencyFilter.REPLAYED)).isEqualTo("true");
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testRecordFailureDeliversResponse() throws Exception {
+        doAnswer(this::save).doThrow(new DataAccessResourceFailureException("indisponível"))
+                .when(repository).save(any(IdempotencyRecord.class));
+        MockHttpServletResponse first = post("k4", "{\"valor\":10}");
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(first.getContentAsString()).isEqualTo("{\"id\":1}");
+
+        //a operação foi confirmada sem o registro da resposta: a repetição é recusada, sem nova execução
+        MockHttpServletResponse second = post("k4", "{\"valor\":10}");
+        assertThat(second.getStatus()).isEqualTo(409);
+        assertThat(second.getContentAsString()).contains("erro");
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testServerErrorIsNotRecorded() throws Exception {
+        status.set(503);
+        assertThat(post("k5", "{\"valor\":10}").getStatus()).isEqualTo(503);
+        assertThat(table).isEmpty();
+
+        status.set(201);
+        assertThat(post("k5", "{\"valor\":10}").getStatus()).isEqualTo(201);
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(table.get("k5").getStatus()).isEqualTo(201);
+    }
+
+    @Test
+    void testNonBlockingRead() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/receita/cadastrar");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, "k6");
+        request.setContent("{\"valor\":10}".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        AtomicInteger completed = new AtomicInteger();
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                ServletInputStream in = req.getInputStream();
+                in.setReadListener(new ReadListener() {
+                    @Override
+                    public void onDataAvailable() throws IOException {
+                        while (in.isReady() && !in.isFinished())
+                            read.write(in.read());
+                    }
+
+                    @Override
+                    public void onAllDataRead() {
+                        completed.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        throw new AssertionError(t);
+                    }
+                });
+                resp.setStatus(201);
+            }
+        }));
+
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"valor\":10}");
+        assertThat(completed.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testKeyReusedWithDifferentBody() throws Exception {
+        post("k2", "{\"valor\":10}");
+        assertThat(post("k2", "{\"valor\":20}").getStatus()).isEqualTo(422);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    void testInvalidRequests() throws Exception {
+        assertThat(post(" ", "{}").getStatus()).isEqualTo(400);
+        assertThat(post("k3", "x".repeat(65)).getStatus()).isEqualTo(413);
+        assertThat(executions.get()).isZero();
+    }
+
+    @Test
+    void testWithoutKey() throws Exception {
+        post(null, "{}");
+        post(null, "{}");
+        assertThat(executions.get()).isEqualTo(2);
+    }
+
+    private IdempotencyRecord save(InvocationOnMock invocation) {
+        IdempotencyRecord record = invocation.getArgument(0);
+        table.put(record.getKey(), record);
+        return record;
+    }
+
+    private MockHttpServletResponse post(String key, String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/receita/cadastrar");
+        if (key != null) request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                executions.incrementAndGet();
+                assertThat(new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(body);
+                resp.setStatus(status.get());
+                resp.setContentType("application/json");
+                resp.getOutputStream().write("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+            }
+        }));
+        return response;
+    }
+
+}
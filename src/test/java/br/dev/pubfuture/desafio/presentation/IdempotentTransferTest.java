@@ -0,0 +1,81 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.persistence.ContaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Teste de Integração das transferências em lote com 'Idempotency-Key'.
+ */
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:idempotentTransfer;DB_CLOSE_DELAY=-1",
+        "desafio.ingest.enabled=false"})
+@AutoConfigureMockMvc
+class IdempotentTransferTest {
+
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ContaRepository contaRepository;
+
+    /**
+     * Duas requisições concorrentes, com chaves distintas, transferem todo o saldo da mesma conta: apenas uma
+     * pode ser aplicada, e nenhuma atualização pode ser perdida.
+     */
+    @Test
+    void testConcurrentKeyedBatchesDoNotDoubleSpend() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                long from = contaRepository.save(conta(10000)).getId();
+                long to = contaRepository.save(conta(0)).getId();
+                String body = "[{\"from\":" + from + ",\"to\":" + to + ",\"value\":100.00}]";
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Integer>> statuses = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    String key = "batch-" + round + "-" + i;
+                    statuses.add(executor.submit(() -> {
+                        start.await();
+                        return mockMvc.perform(put("/api/conta/transfer/batch")
+                                        .header(IdempotencyFilter.IDEMPOTENCY_KEY, key)
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .content(body))
+                                .andReturn().getResponse().getStatus();
+                    }));
+                }
+                start.countDown();
+                List<Integer> results = new ArrayList<>();
+                for (Future<Integer> status : statuses)
+                    results.add(status.get(30, TimeUnit.SECONDS));
+
+                assertThat(results).containsExactlyInAnyOrder(200, 400);
+                assertThat(contaRepository.findById(from).orElseThrow().getBalance()).isZero();
+                assertThat(contaRepository.findById(to).orElseThrow().getBalance()).isEqualTo(10000);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Conta conta(long balance) {
+        return Conta.builder()
+                .balance(balance)
+                .accountType(Conta.AccountType.CONTA_CORRENTE)
+                .financialInstitution("Banco")
+                .build();
+    }
+
+}
@@ -0,0 +1,72 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import br.dev.pubfuture.desafio.businesslayer.service.StatementImport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Testes de Unidade do Controller da importação de extratos bancários.
+ */
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(controllers = ImportController.class)
+class ImportControllerTest {
+
+    /**
+     * Simula solicitações HTTP.
+     */
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Simula a lógica de negócios.
+     */
+    @MockBean
+    private StatementImport statementImport;
+
+    /**
+     * Verifica se o arquivo enviado é repassado ao serviço e se os erros e o progresso são escritos, um por
+     * linha, no formato NDJSON.
+     * @throws Exception
+     */
+    @Test
+    void testImportNdjson() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Reader reader = invocation.getArgument(1);
+            assertThat(new BufferedReader(reader).readLine()).isEqualTo("data;valor");
+            StatementImport.Listener listener = invocation.getArgument(3);
+            listener.error(3, "Valor não pode ser zero.");
+            StatementImport.Progress progress = new StatementImport.Progress(2, 1, 0, 1, true);
+            listener.progress(progress);
+            return progress;
+        }).when(statementImport).run(eq(StatementImport.Format.OFX), any(), eq(7), any());
+        MvcResult mvcResult = mockMvc.perform(post("/api/import")
+                        .param("format", "OFX")
+                        .param("account", "7")
+                        .content("data;valor\n01/01/2022;1,00\n01/01/2022;0\n".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String[] lines = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).containsExactly(
+                "{\"linha\":3,\"erro\":\"Valor não pode ser zero.\"}",
+                "{\"linhas\":2,\"receitas\":1,\"despesas\":0,\"erros\":1,\"concluido\":true}");
+    }
+
+}
@@ -1,7 +1,12 @@
 package br.dev.pubfuture.desafio.presentation;
 
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
 import br.dev.pubfuture.desafio.businesslayer.Receita;
+import br.dev.pubfuture.desafio.businesslayer.service.CsvExport;
 import br.dev.pubfuture.desafio.businesslayer.service.ReceitaService;
+import br.dev.pubfuture.desafio.businesslayer.service.TypeCounters;
+import br.dev.pubfuture.desafio.businesslayer.service.WriteBehind;
+import br.dev.pubfuture.desafio.persistence.Aggregate;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,10 +20,16 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -53,6 +64,18 @@ class ReceitaControllerTest {
     @MockBean
     private ReceitaService receitaService;
 
+    /**
+     * Simula a fila de gravação assíncrona.
+     */
+    @MockBean
+    private WriteBehind<Receita> receitaIngest;
+
+    /**
+     * Simula a exportação em CSV.
+     */
+    @MockBean
+    private CsvExport csvExport;
+
     /**
      * Membro de classe tipo Receita utilizado no construtor para instanciar um objeto modelo/exemplo.
      */
@@ -205,13 +228,58 @@ class ReceitaControllerTest {
     @Test
     void testListAll() throws Exception {
         List<Receita> receitas = Arrays.asList(receita, receita, receita, receita);
-        Mockito.when(receitaService.findAll()).thenReturn(receitas);
+        Mockito.when(receitaService.findAll(0L, null)).thenReturn(new KeysetPage<>(receitas, null));
         mockMvc.perform(get("/api/receita/all"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(4)))
                 .andExpect(jsonPath("$[0].description", is("TESTE")));
     }
 
+    /**
+     * Verifica se a atualização parcial repassa ao serviço apenas os campos enviados, já convertidos.
+     * @throws Exception
+     */
+    @Test
+    void testPatch() throws Exception {
+        Mockito.when(receitaService.patchableFields()).thenReturn(Set.of("value", "description", "account"));
+        Mockito.when(receitaService.patch(eq(1L), any(), any())).thenReturn(Optional.of(receita));
+        mockMvc.perform(patch("/api/receita/{id}", 1L)
+                        .contentType("application/json")
+                        .content("{\"value\": 12.34, \"description\": \"Bônus\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(1)));
+        ArgumentCaptor<Receita> values = ArgumentCaptor.forClass(Receita.class);
+        verify(receitaService).patch(eq(1L), values.capture(), eq(Set.of("value", "description")));
+        assertThat(values.getValue().getValue()).isEqualTo(1234L);
+        assertThat(values.getValue().getDescription()).isEqualTo("Bônus");
+    }
+
+    /**
+     * Verifica se a atualização parcial recusa campos não atualizáveis e valores inválidos, sem chamar o
+     * serviço, e responde Not Found quando nenhuma linha for atualizada.
+     * @throws Exception
+     */
+    @Test
+    void testPatchValidationAndNotFound() throws Exception {
+        Mockito.when(receitaService.patchableFields()).thenReturn(Set.of("description", "account"));
+        mockMvc.perform(patch("/api/receita/{id}", 1L)
+                        .contentType("application/json")
+                        .content("{\"id\": 2, \"description\": \" \", \"account\": 1000}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.erros[*].campo", contains("id", "description", "account")));
+        mockMvc.perform(patch("/api/receita/{id}", 1L)
+                        .contentType("application/json")
+                        .content("{}"))
+                .andExpect(status().isBadRequest());
+        verify(receitaService, times(0)).patch(anyLong(), any(), any());
+
+        Mockito.when(receitaService.patch(eq(5L), any(), any())).thenReturn(Optional.empty());
+        mockMvc.perform(patch("/api/receita/{id}", 5L)
+                        .contentType("application/json")
+                        .content("{\"account\": 3}"))
+                .andExpect(status().isNotFound());
+    }
+
     /**
      * Verifica se a resposta será Not Found quando do envio de um null object.
      * @throws Exception
@@ -236,4 +304,75 @@ class ReceitaControllerTest {
                 .andExpect(status().isOk());
     }
 
-}
\ No newline at end of file
+    /**
+     * Verifica se a exportação NDJSON escreve um objeto Json por linha para cada receita entregue pelo serviço,
+     * repassando o intervalo de datas informado.
+     * @throws Exception
+     */
+    @Test
+    void testExportNdjson() throws Exception {
+        LocalDate start = LocalDate.parse("2022-01-01");
+        LocalDate end = LocalDate.parse("2022-01-31");
+        Mockito.doAnswer(invocation -> {
+            Consumer<Receita> consumer = invocation.getArgument(2);
+            consumer.accept(receita);
+            consumer.accept(receita);
+            return null;
+        }).when(receitaService).forEach(eq(start), eq(end), any());
+        MvcResult mvcResult = mockMvc.perform(get("/api/receita/export")
+                        .param("start", "01-01-2022")
+                        .param("end", "31-01-2022"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String[] lines = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[1], Receita.class).getDescription()).isEqualTo("TESTE");
+    }
+
+    /**
+     * Verifica se a agregação por tipo repassa o intervalo de datas ao serviço e representa os valores em decimal.
+     * @throws Exception
+     */
+    @Test
+    void testAggregateByType() throws Exception {
+        Aggregate salario = Mockito.mock(Aggregate.class);
+        Mockito.when(salario.getGroupKey()).thenReturn("SALARIO");
+        Mockito.when(salario.getTotal()).thenReturn(150050L);
+        Mockito.when(salario.getQuantity()).thenReturn(2L);
+        Mockito.when(salario.getMinimum()).thenReturn(50050L);
+        Mockito.when(salario.getMaximum()).thenReturn(100000L);
+        Mockito.when(receitaService.aggregate(Aggregate.Dimension.TYPE, LocalDate.parse("2022-01-01"), null))
+                .thenReturn(List.of(salario));
+        mockMvc.perform(get("/api/receita/aggregate/TYPE").param("start", "01-01-2022"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].grupo", is("SALARIO")))
+                .andExpect(jsonPath("$[0].total", is(1500.50)))
+                .andExpect(jsonPath("$[0].quantidade", is(2)))
+                .andExpect(jsonPath("$[0].minimo", is(500.50)))
+                .andExpect(jsonPath("$[0].maximo", is(1000.00)));
+    }
+
+    /**
+     * Verifica se as estatísticas por tipo listam todos os tipos, na ordem das constantes.
+     * @throws Exception
+     */
+    @Test
+    void testTypeStats() throws Exception {
+        EnumMap<Receita.Revenue, TypeCounters.Stats> stats = new EnumMap<>(Receita.Revenue.class);
+        for (Receita.Revenue revenue : Receita.Revenue.values())
+            stats.put(revenue, new TypeCounters.Stats(0, 0));
+        stats.put(Receita.Revenue.PREMIO, new TypeCounters.Stats(150050L, 2));
+        Mockito.when(receitaService.typeStats(7)).thenReturn(stats);
+        mockMvc.perform(get("/api/receita/tp/stats").param("account", "7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[2].tipo", is("PREMIO")))
+                .andExpect(jsonPath("$[2].quantidade", is(2)))
+                .andExpect(jsonPath("$[2].total", is(1500.50)))
+                .andExpect(jsonPath("$[3].quantidade", is(0)));
+    }
+
+}
@@ -0,0 +1,67 @@
+package br.dev.pubfuture.desafio.presentation;
+
+import br.dev.pubfuture.desafio.businesslayer.Conta;
+import br.dev.pubfuture.desafio.businesslayer.KeysetPage;
+import br.dev.pubfuture.desafio.businesslayer.service.SummaryService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import java.util.List;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Testes de Unidade do Controller do resumo da tela inicial.
+ */
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(controllers = SummaryController.class)
+class SummaryControllerTest {
+
+    /**
+     * Simula solicitações HTTP.
+     */
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Simula a lógica de negócios.
+     */
+    @MockBean
+    private SummaryService summaryService;
+
+    /**
+     * Verifica se o resumo reúne as partes e os tempos e informa a parte que falhou sem omitir as demais.
+     * @throws Exception
+     */
+    @Test
+    void testSummary() throws Exception {
+        Conta conta = Conta.builder()
+                .id(1)
+                .balance(10000)
+                .accountType(Conta.AccountType.CARTEIRA)
+                .financialInstitution("BANCO DO BRASIL")
+                .build();
+        Mockito.when(summaryService.summary()).thenReturn(new SummaryService.Summary(
+                new SummaryService.Part<>(10000L, 1, null),
+                new SummaryService.Part<>(250075L, 12, null),
+                new SummaryService.Part<>(null, 5000, "Tempo esgotado."),
+                new SummaryService.Part<>(new KeysetPage<>(List.of(conta), null), 3, null),
+                5000));
+        mockMvc.perform(get("/api/summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.saldo", is(100.0)))
+                .andExpect(jsonPath("$.receita-total", is(2500.75)))
+                .andExpect(jsonPath("$.despesa-total", nullValue()))
+                .andExpect(jsonPath("$.contas", hasSize(1)))
+                .andExpect(jsonPath("$.tempos-ms.receita-total", is(12)))
+                .andExpect(jsonPath("$.tempos-ms.total", is(5000)))
+                .andExpect(jsonPath("$.erros.despesa-total", is("Tempo esgotado.")));
+    }
+
+}